@@ -0,0 +1,28 @@
+package com.github.zthulj.zcopybook.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks matching the arguments, all of them by default, with the GC profiler :
+ * gc.alloc.rate.norm gives the bytes allocated per operation, so per record for the converters.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        if (0 == args.length)
+            options.include(Benchmarks.class.getPackage().getName());
+        for (String include : args) {
+            options.include(include);
+        }
+        Options withProfiler = options.addProfiler(GCProfiler.class).build();
+        new Runner(withProfiler).run();
+    }
+}
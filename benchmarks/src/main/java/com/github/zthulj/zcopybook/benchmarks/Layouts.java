@@ -0,0 +1,104 @@
+package com.github.zthulj.zcopybook.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Copybooks generated for the benchmarks, so that every run measures the same layouts.
+ */
+final class Layouts {
+
+    private Layouts() {
+    }
+
+    /**
+     * @param layout narrow, wide, occurs, small or huge
+     * @return the copybook text
+     */
+    static String copybook(String layout) {
+        switch (layout) {
+            case "narrow":
+                return flat(10);
+            case "wide":
+                return flat(1500);
+            case "occurs":
+                return occurs();
+            case "small":
+                return flat(30);
+            case "huge":
+                return huge();
+            default:
+                throw new IllegalArgumentException("Unknown layout " + layout);
+        }
+    }
+
+    /**
+     * @return a group of 100 occurrences, each holding a group of 100 occurrences of 50 fields
+     */
+    static String nestedOccurs() {
+        StringBuilder copybook = new StringBuilder("01 ROOT.\n  03 OUTER OCCURS 100 TIMES.\n    05 INNER OCCURS 100 TIMES.\n");
+        for (int i = 0; i < 50; i++) {
+            copybook.append("      07 FIELD-").append(i).append(" PIC X(4).\n");
+        }
+        return copybook.toString();
+    }
+
+    /**
+     * @param length the record length
+     * @param seed the random seed
+     * @return a record of printable chars, valid for every generated layout
+     */
+    static String record(int length, long seed) {
+        Random random = new Random(seed);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Text, zoned decimal and signed fields, one after the other
+     */
+    private static String flat(int fields) {
+        StringBuilder copybook = new StringBuilder("01 RECORD.\n");
+        for (int i = 0; i < fields; i++) {
+            copybook.append("  05 FIELD-").append(i);
+            switch (i % 3) {
+                case 0:
+                    copybook.append(" PIC X(12).\n");
+                    break;
+                case 1:
+                    copybook.append(" PIC 9(6).\n");
+                    break;
+                default:
+                    copybook.append(" PIC S9(7)V99.\n");
+                    break;
+            }
+        }
+        return copybook.toString();
+    }
+
+    private static String occurs() {
+        StringBuilder copybook = new StringBuilder("01 RECORD.\n  05 HEADER PIC X(20).\n  05 LINES OCCURS 200 TIMES.\n");
+        for (int i = 0; i < 8; i++) {
+            copybook.append("    10 LINE-FIELD-").append(i).append(i % 2 == 0 ? " PIC X(5).\n" : " PIC S9(5).\n");
+        }
+        return copybook.append("  05 TRAILER PIC X(20).\n").toString();
+    }
+
+    /**
+     * About 15 000 lines : groups of commented fields, some with 88 levels
+     */
+    private static String huge() {
+        StringBuilder copybook = new StringBuilder("01 RECORD.\n");
+        for (int group = 0; group < 1000; group++) {
+            copybook.append("      * Group ").append(group).append('\n');
+            copybook.append("  03 GROUP-").append(group).append(".\n");
+            for (int i = 0; i < 12; i++) {
+                copybook.append("    05 FIELD-").append(group).append('-').append(i).append(i % 2 == 0 ? "    PIC X(8).\n" : "    PIC S9(5)V99.\n");
+            }
+            copybook.append("       88 ACTIVE VALUE 'Y'.\n");
+        }
+        return copybook.toString();
+    }
+}
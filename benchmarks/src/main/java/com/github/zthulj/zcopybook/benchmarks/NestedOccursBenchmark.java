@@ -0,0 +1,34 @@
+package com.github.zthulj.zcopybook.benchmarks;
+
+import com.github.zthulj.zcopybook.engine.ZLoader;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import com.github.zthulj.zcopybook.plan.ZPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading and compiling a 100 x 100 nested OCCURS of 50 fields.
+ * Run with -prof gc : the allocation per operation is the memory taken by the schema.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class NestedOccursBenchmark {
+
+    private final String copybook = Layouts.nestedOccurs();
+    private final ZLoader loader = new ZLoader();
+
+    @Benchmark
+    public ZCopyBook load() {
+        return loader.load(copybook);
+    }
+
+    @Benchmark
+    public ZPlan loadAndCompile() {
+        return ZPlan.from(loader.load(copybook));
+    }
+}
@@ -0,0 +1,273 @@
+package com.github.zthulj.zcopybook.benchmarks;
+
+import com.github.zthulj.zcopybook.codec.BinaryInteger;
+import com.github.zthulj.zcopybook.codec.PackedDecimal;
+import com.github.zthulj.zcopybook.factory.NodeFactory;
+import com.github.zthulj.zcopybook.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex based loader replaced by the single pass tokenizer, kept as is to be measured against {@link com.github.zthulj.zcopybook.engine.ZLoader}.
+ * It ignores REDEFINES and knows neither OCCURS DEPENDING ON nor the table clauses.
+ */
+final class RegexZLoader {
+
+    private static Logger logger = LoggerFactory.getLogger(RegexZLoader.class);
+
+    private static final Pattern parentPattern = Pattern.compile("([^ ]*?)( {1})([^ ]*?)");
+    private static final Pattern levelNbPattern = Pattern.compile("([^ ]*?)( {1})(.*?)");
+    private static final Pattern simpleValuePattern = Pattern.compile("([^ ]*?)( {1})([^ ]*?)( {1})([^ ]*?)( {1})([^ ]*)");
+    private static final Pattern parentArrayPattern = Pattern.compile("([^ ]*?)( {1})([^ ]*?)( {1})(OCCURS)( {1})([^ ]*)");
+    private static final Pattern usageValuePattern = Pattern.compile("([^ ]*?)( {1})([^ ]*?)( {1})(PIC|PICTURE)( {1})([^ ]*)( {1})(USAGE )?(IS )?([^ ]*)");
+    private static final Pattern redefineParentPattern = Pattern.compile("([^ ]*?)( {1})([^ ]*?)( {1})(REDEFINES)( {1})([^ ]*)");
+
+    private static final Pattern picX_n_Pattern = Pattern.compile("(X|9)(\\({1})([^\\)]*?)(\\){1})");
+    private static final Pattern picS9_n_v99_Pattern = Pattern.compile("(S9)(\\({1})([^\\)]*?)(\\){1})(V)(9*)");
+    private static final Pattern picS9_n_Pattern = Pattern.compile("(S9)(\\({1})([^\\)]*?)(\\){1})");
+    private static final Pattern picX_pattern = Pattern.compile("X*");
+    private static final Pattern picNumeric_pattern = Pattern.compile("(S?)(9\\((\\d+)\\)|9*)(V(9\\((\\d+)\\)|9+))?");
+
+    class Cursor{
+        int cursorPosition;
+        ParentNode lastParent;
+
+        public Cursor(ParentNode lastParent) {
+            this.lastParent = lastParent;
+            this.cursorPosition = 0;
+        }
+    }
+
+    /**
+     * Create a zCopybook from a String
+     * @param copybook a String containing the copybook format
+     * @return the root node containing the converted copybook
+     */
+    public ZCopyBook load(final String copybook) {
+
+        if (null == copybook)
+            throw new IllegalArgumentException("copybook can't be null !");
+
+        if(logger.isDebugEnabled())
+            logger.debug(String.format("Started the conversion of the copybook : %n[%n%s%n]", copybook));
+
+        RootNode root = NodeFactory.createRootNode();
+        Cursor cursor = new Cursor(root);
+
+       List<String> cleanedCopybook = this.cleanCopybook(copybook);
+
+        /* WIP : Temporary flags to ignore the redefines */
+        boolean inANodeToIgnore = false;
+        int levelToIgnore = 0;
+        /* End WIP */
+
+        for (String line : cleanedCopybook) {
+            int levelNb = this.getLevelNbFromLine(line);
+
+            /* WIP : Temporary ignore the redefines */
+            if (inANodeToIgnore && levelNb <= levelToIgnore)
+                inANodeToIgnore = false;
+
+            Matcher redefineParentMatcher = RegexZLoader.redefineParentPattern.matcher(line);
+
+            if (redefineParentMatcher.matches()) {
+                inANodeToIgnore = true;
+                levelToIgnore = levelNb;
+            }
+
+            if (inANodeToIgnore) {
+                logger.debug("Ignoring line : {}.", line);
+                continue;
+            }
+            /* End WIP */
+
+            this.updateCursorWithCurrentLevelNb(cursor, levelNb);
+
+            boolean handled = this.handleSimpleParent(line,cursor,levelNb);
+
+            if(!handled){
+                handled = this.handleOccursParent(line,cursor,levelNb);
+            }
+            if(!handled){
+                this.handleValue(line,cursor);
+            }
+        }
+
+        if (cursor.lastParent instanceof ParentArrayNode)
+            ((ParentArrayNode) cursor.lastParent).duplicateOccurs(cursor.cursorPosition);
+
+        return ZCopyBook.from(root);
+    }
+
+    private List<String> cleanCopybook(final String copybook) {
+        String cleanedLinedCopybook = this.cleanLines(copybook);
+        List<String> cleanedCopybook = new ArrayList<>();
+        for (String field:cleanedLinedCopybook.split("\\.")) {
+            cleanedCopybook.add(field.trim());
+        }
+        return cleanedCopybook;
+    }
+
+    private String cleanLines(final String copybook) {
+        StringBuilder builder = new StringBuilder();
+
+        for (String line : copybook.split("\\n")) {
+            if (lineShouldBeAdded(line)) {
+                builder.append(" ").append(line.trim());
+            }
+        }
+        return builder.toString().replaceAll(" +", " ");
+    }
+
+    private boolean lineShouldBeAdded(final String line) {
+        boolean shouldBeIgnored =
+                line.trim().startsWith("*") || line.trim().startsWith("88");
+
+        if (shouldBeIgnored) {
+            logger.debug("Ignoring line : {}", line);
+        }
+
+        return !shouldBeIgnored;
+    }
+
+    private int getLevelNbFromLine(final String line) {
+        Matcher matcher = levelNbPattern.matcher(line);
+        if (!matcher.matches())
+            return 0;
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private void updateCursorWithCurrentLevelNb(Cursor cursor, final int levelNb) {
+        while (cursor.lastParent != null && levelNb <= cursor.lastParent.getLevelNumber()) {
+            if (cursor.lastParent instanceof ParentArrayNode)
+                cursor.cursorPosition = ((ParentArrayNode) cursor.lastParent).duplicateOccurs(cursor.cursorPosition);
+            cursor.lastParent = cursor.lastParent.getParentNode();
+        }
+    }
+
+    private boolean handleSimpleParent(final String line, Cursor cursor, final int levelNb) {
+        Matcher nodeMatcher = parentPattern.matcher(line);
+        if (nodeMatcher.matches()) {
+            ParentNode newParent = NodeFactory.createParentNode(cursor.lastParent, levelNb);
+            cursor.lastParent.addChild(newParent, nodeMatcher.group(3));
+            cursor.lastParent = newParent;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean handleOccursParent(final String line, Cursor cursor, final int levelNb) {
+        Matcher occursMatcher = RegexZLoader.parentArrayPattern.matcher(line);
+        if (occursMatcher.matches()) {
+            int occursNb = Integer.parseInt(occursMatcher.group(7));
+            ParentNode newParent = NodeFactory.createParentNodeArray(cursor.lastParent, levelNb, occursNb);
+            cursor.lastParent.addChild(newParent, occursMatcher.group(3));
+            cursor.lastParent = newParent;
+            return true;
+        }
+        return false;
+    }
+
+    private void handleValue(final String line, Cursor cursor) {
+        Matcher valueMatcher = RegexZLoader.simpleValuePattern.matcher(line);
+
+        if (valueMatcher.matches()) {
+            cursor.cursorPosition = addValueNode(cursor.lastParent, cursor.cursorPosition, valueMatcher);
+            return;
+        }
+
+        Matcher usageMatcher = RegexZLoader.usageValuePattern.matcher(line);
+        if (usageMatcher.matches()) {
+            cursor.cursorPosition = addUsageValueNode(cursor.lastParent, cursor.cursorPosition, usageMatcher);
+        }
+    }
+
+    private int addUsageValueNode(ParentNode lastParent, int nextStart, Matcher usageMatcher) {
+        String usage = usageMatcher.group(11);
+        Matcher numericMatcher = RegexZLoader.picNumeric_pattern.matcher(usageMatcher.group(7));
+
+        if (!numericMatcher.matches() || !(isPacked(usage) || isBinary(usage))) {
+            logger.debug("Ignoring unsupported usage {} for {}", usage, usageMatcher.group(3));
+            return nextStart;
+        }
+
+        int integerDigits = null != numericMatcher.group(3) ? Integer.parseInt(numericMatcher.group(3)) : numericMatcher.group(2).length();
+        int scale = 0;
+        if (null != numericMatcher.group(4))
+            scale = null != numericMatcher.group(6) ? Integer.parseInt(numericMatcher.group(6)) : numericMatcher.group(5).length();
+        int digits = integerDigits + scale;
+
+        int fieldSize;
+        ValueNode.ValueType type;
+        if (isPacked(usage)) {
+            fieldSize = PackedDecimal.byteLength(digits);
+            type = ValueNode.ValueType.PACKED_DECIMAL;
+        } else if (digits <= BinaryInteger.MAX_DIGITS) {
+            fieldSize = BinaryInteger.byteLength(digits);
+            type = numericMatcher.group(1).isEmpty() ? ValueNode.ValueType.UNSIGNED_BINARY_INT : ValueNode.ValueType.BINARY_INT;
+        } else {
+            throw new IllegalArgumentException("A binary field can't hold more than " + BinaryInteger.MAX_DIGITS + " digits : " + usageMatcher.group(3));
+        }
+
+        Node node = NodeFactory.createValueNode(lastParent, Coordinates.create(nextStart, nextStart + fieldSize), type, scale);
+        lastParent.addChild(node, usageMatcher.group(3));
+
+        return nextStart + fieldSize;
+    }
+
+    private static boolean isPacked(String usage) {
+        return "COMP-3".equals(usage) || "COMPUTATIONAL-3".equals(usage) || "PACKED-DECIMAL".equals(usage);
+    }
+
+    private static boolean isBinary(String usage) {
+        switch (usage) {
+            case "COMP": case "COMPUTATIONAL":
+            case "COMP-4": case "COMPUTATIONAL-4":
+            case "COMP-5": case "COMPUTATIONAL-5":
+            case "BINARY":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private int addValueNode(ParentNode lastParent, int nextStart, Matcher valueMatcher) {
+
+        int fieldSize = 0;
+        int scale = 0;
+        ValueNode.ValueType type = ValueNode.ValueType.STRING;
+
+        String dataType = valueMatcher.group(7);
+
+        Matcher defaultMatcher = RegexZLoader.picX_n_Pattern.matcher(dataType);
+        Matcher signedIntMatcher = RegexZLoader.picS9_n_Pattern.matcher(dataType);
+        Matcher signedFloatMatcher = RegexZLoader.picS9_n_v99_Pattern.matcher(dataType);
+        Matcher picXMatcher = RegexZLoader.picX_pattern.matcher(dataType);
+
+        if (defaultMatcher.matches()) {
+            fieldSize = Integer.parseInt(defaultMatcher.group(3));
+        } else if (signedFloatMatcher.matches()) {
+            scale = signedFloatMatcher.group(6).length();
+            fieldSize = Integer.parseInt(signedFloatMatcher.group(3)) + scale;
+            type = ValueNode.ValueType.SIGNED_FLOAT;
+        } else if (signedIntMatcher.matches()) {
+            fieldSize = Integer.parseInt(signedIntMatcher.group(3));
+            type = ValueNode.ValueType.SIGNED_INT;
+        } else if (picXMatcher.matches()) {
+            fieldSize = dataType.length();
+        }
+
+        Node node = NodeFactory.createValueNode(lastParent, Coordinates.create(nextStart, nextStart + fieldSize), type, scale);
+        lastParent.addChild(node, valueMatcher.group(3));
+
+        nextStart += fieldSize;
+        return nextStart;
+    }
+
+
+}
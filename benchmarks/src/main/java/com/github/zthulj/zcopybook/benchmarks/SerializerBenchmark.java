@@ -0,0 +1,49 @@
+package com.github.zthulj.zcopybook.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zthulj.zcopybook.engine.ZLoader;
+import com.github.zthulj.zcopybook.model.Coordinates;
+import com.github.zthulj.zcopybook.model.ValueNode;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The node tree serializer chain : values set on the nodes, then the root node written by Jackson.
+ * To compare with {@link ZConverterBenchmark#convertToJson()} on the same layouts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializerBenchmark {
+
+    @Param({"narrow", "wide", "occurs"})
+    public String layout;
+
+    private ZCopyBook<String> copybook;
+    private List<ValueNode<String>> valueNodes;
+    private String line;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup
+    public void setUp() {
+        copybook = new ZLoader().load(Layouts.copybook(layout));
+        valueNodes = copybook.getValueNodes();
+        line = Layouts.record(copybook.getWaitedLength(), 42);
+    }
+
+    @Benchmark
+    public String serialize() throws JsonProcessingException {
+        for (ValueNode<String> valueNode : valueNodes) {
+            Coordinates coordinates = valueNode.getCoordinates();
+            valueNode.setValue(line.substring(coordinates.getStart(), coordinates.getEnd()));
+        }
+        return mapper.writeValueAsString(copybook.getRootNode());
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.zthulj.zcopybook.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.zthulj.zcopybook.engine.ZConverter;
+import com.github.zthulj.zcopybook.engine.ZLoader;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import com.github.zthulj.zcopybook.plan.BytesRecord;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting one record per operation, on narrow, wide and OCCURS heavy layouts, with the interpreted and the compiled plan.
+ * Run with -prof gc : gc.alloc.rate.norm is then the allocation per record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ZConverterBenchmark {
+
+    @Param({"narrow", "wide", "occurs"})
+    public String layout;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private ZConverter converter;
+    private String line;
+    private byte[] bytes;
+    private BytesRecord record;
+    private JsonGenerator generator;
+
+    @Setup
+    public void setUp() throws IOException {
+        ZCopyBook<String> copybook = new ZLoader().load(Layouts.copybook(layout));
+        converter = ZConverter.builder().copyBook(copybook).compiled(compiled).build();
+        line = Layouts.record(copybook.getWaitedLength(), 42);
+        bytes = line.getBytes(StandardCharsets.UTF_8);
+        record = converter.newBytesRecord();
+        generator = converter.createGenerator(NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        generator.close();
+    }
+
+    /**
+     * A String in, a String out
+     */
+    @Benchmark
+    public String convertToJson() throws JsonProcessingException {
+        return converter.convertToJson(line);
+    }
+
+    /**
+     * Bytes in, streamed into a reused generator : the bulk path
+     */
+    @Benchmark
+    public boolean writeJson() throws IOException {
+        boolean written = converter.writeJson(record.wrap(bytes, 0, bytes.length), generator);
+        generator.flush();
+        return written;
+    }
+}
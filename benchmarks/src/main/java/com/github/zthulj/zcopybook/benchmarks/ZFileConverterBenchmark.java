@@ -0,0 +1,64 @@
+package com.github.zthulj.zcopybook.benchmarks;
+
+import com.github.zthulj.zcopybook.engine.ZConverter;
+import com.github.zthulj.zcopybook.engine.ZFileConverter;
+import com.github.zthulj.zcopybook.engine.ZLoader;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting a whole file of wide records, by the calling thread (0) or on a pool of 1 to N threads.
+ * Set the thread counts of the machine with -p threads=0,1,2,4,8,16,32
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZFileConverterBenchmark {
+
+    private static final int RECORDS = 20_000;
+
+    @Param({"0", "1", "2", "4", "8"})
+    public int threads;
+
+    private Path input;
+    private ForkJoinPool pool;
+    private ZFileConverter fileConverter;
+
+    @Setup
+    public void setUp() throws IOException {
+        ZCopyBook<String> copybook = new ZLoader().load(Layouts.copybook("wide"));
+        input = Files.createTempFile("zcopybook", ".dat");
+        try (OutputStream out = Files.newOutputStream(input)) {
+            for (int i = 0; i < RECORDS; i++) {
+                out.write(Layouts.record(copybook.getWaitedLength(), i).getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+        }
+        pool = threads > 0 ? new ForkJoinPool(threads) : null;
+        fileConverter = ZFileConverter.builder().converter(new ZConverter(copybook)).executor(pool).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (null != pool)
+            pool.shutdown();
+        Files.deleteIfExists(input);
+    }
+
+    @Benchmark
+    public long convert() throws IOException {
+        return fileConverter.convert(input, NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.zthulj.zcopybook.benchmarks;
+
+import com.github.zthulj.zcopybook.engine.ZLoader;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a copybook, with the tokenizer of {@link ZLoader} and with the regex loader it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ZLoaderBenchmark {
+
+    @Param({"small", "huge"})
+    public String layout;
+
+    private String copybook;
+    private final ZLoader loader = new ZLoader();
+    private final RegexZLoader regexLoader = new RegexZLoader();
+
+    @Setup
+    public void setUp() {
+        copybook = Layouts.copybook(layout);
+    }
+
+    @Benchmark
+    public ZCopyBook tokenizer() {
+        return loader.load(copybook);
+    }
+
+    @Benchmark
+    public ZCopyBook regex() {
+        return regexLoader.load(copybook);
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.zthulj.zcopybook.codec;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Decode COMP, COMP-4, COMP-5 and BINARY fields : big-endian two's complement integers of 2, 4 or 8 bytes.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BinaryInteger {
+
+    /** The most digits a binary field can declare */
+    public static final int MAX_DIGITS = 18;
+
+    /**
+     * @param digits the number of digits of the picture, including the decimals
+     * @return the size of the field, in bytes
+     */
+    public static int byteLength(final int digits) {
+        if (digits <= 4)
+            return 2;
+        if (digits <= 9)
+            return 4;
+        return 8;
+    }
+
+    /**
+     * @param source the record
+     * @param offset where the field starts
+     * @param length the field size, from 1 to 8 bytes
+     * @param signed whether the first bit is the sign
+     * @return the value. An unsigned field of 8 bytes may not fit and must then be read with {@link Long#toUnsignedString(long)}
+     */
+    public static long toLong(final ByteSource source, final int offset, final int length, final boolean signed) {
+        long value = signed && (source.byteAt(offset) & 0x80) != 0 ? -1L : 0L;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | source.byteAt(offset + i);
+        }
+        return value;
+    }
+}
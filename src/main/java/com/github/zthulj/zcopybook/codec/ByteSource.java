@@ -0,0 +1,13 @@
+package com.github.zthulj.zcopybook.codec;
+
+/**
+ * Random access to the raw bytes of a record, read by the binary decoders.
+ */
+public interface ByteSource {
+
+    /**
+     * @param offset the position to read
+     * @return the raw byte at this position, between 0 and 255
+     */
+    int byteAt(int offset);
+}
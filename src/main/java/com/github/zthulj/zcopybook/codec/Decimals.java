@@ -0,0 +1,40 @@
+package com.github.zthulj.zcopybook.codec;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Write unscaled longs as the chars of a json number, without String nor BigDecimal.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Decimals {
+
+    /** Chars needed for any long with a scale up to 18 : sign, 19 digits, leading zero and point */
+    public static final int MAX_CHARS = 22;
+
+    /**
+     * @param unscaled the value without its decimal point
+     * @param scale the number of implied decimals
+     * @param destination where to put the chars, at least {@link #MAX_CHARS} long, or scale + 3 for bigger scales
+     * @return the number of chars
+     */
+    public static int toChars(final long unscaled, final int scale, final char[] destination) {
+        int digits = 1;
+        for (long rest = unscaled / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int length = Math.max(digits, scale + 1) + (scale > 0 ? 1 : 0) + (unscaled < 0 ? 1 : 0);
+
+        long rest = unscaled;
+        int position = length;
+        for (int i = 0; i < Math.max(digits, scale + 1); i++) {
+            if (scale > 0 && i == scale)
+                destination[--position] = '.';
+            destination[--position] = (char) ('0' + Math.abs(rest % 10));
+            rest /= 10;
+        }
+        if (unscaled < 0)
+            destination[--position] = '-';
+        return length;
+    }
+}
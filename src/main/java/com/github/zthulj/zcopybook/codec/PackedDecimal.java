@@ -0,0 +1,117 @@
+package com.github.zthulj.zcopybook.codec;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Decode COMP-3 (packed decimal) fields : two digits per byte, the last nibble holding the sign
+ * (C, A, E, F positive, D, B negative).
+ * Fields are read straight from the record bytes, without String nor BigDecimal.
+ * Invalid fields are reported by the return value, never by an exception.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PackedDecimal {
+
+    /** Returned by {@link #toLong} for an invalid field, or one that doesn't fit in a long */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * @param digits the number of digits of the picture, including the decimals
+     * @return the size of the field, in bytes
+     */
+    public static int byteLength(final int digits) {
+        return digits / 2 + 1;
+    }
+
+    /**
+     * @param length the field size, in bytes
+     * @return the maximum number of chars written by {@link #toChars} : sign, leading zero, point and digits
+     */
+    public static int maxChars(final int length) {
+        return 2 * length + 2;
+    }
+
+    /**
+     * Decode a field to its unscaled value
+     * @param source the record
+     * @param offset where the field starts
+     * @param length the field size, in bytes
+     * @return the unscaled value, or {@link #INVALID}
+     */
+    public static long toLong(final ByteSource source, final int offset, final int length) {
+        if (length < 1)
+            return INVALID;
+        long value = 0;
+        int digits = 2 * length - 1;
+        for (int i = 0; i < digits; i++) {
+            int digit = nibble(source, offset, i);
+            if (digit > 9 || value > (Long.MAX_VALUE - digit) / 10)
+                return INVALID;
+            value = value * 10 + digit;
+        }
+        int sign = nibble(source, offset, digits);
+        if (sign < 0xA)
+            return INVALID;
+        return isNegative(sign) ? -value : value;
+    }
+
+    /**
+     * Decode a field to the chars of a json number, whatever its precision
+     * @param source the record
+     * @param offset where the field starts
+     * @param length the field size, in bytes
+     * @param scale the number of implied decimals
+     * @param destination where to put the chars, at least {@link #maxChars} long
+     * @return the number of chars, or -1 when the field is invalid
+     */
+    public static int toChars(final ByteSource source, final int offset, final int length, final int scale, final char[] destination) {
+        if (length < 1)
+            return -1;
+        int digits = 2 * length - 1;
+        int sign = nibble(source, offset, digits);
+        if (sign < 0xA)
+            return -1;
+
+        boolean zero = true;
+        for (int i = 0; i < digits; i++) {
+            int digit = nibble(source, offset, i);
+            if (digit > 9)
+                return -1;
+            zero &= digit == 0;
+        }
+
+        int position = 0;
+        if (isNegative(sign) && !zero)
+            destination[position++] = '-';
+
+        int integerDigits = digits - scale;
+        int i = 0;
+        while (i < integerDigits - 1 && nibble(source, offset, i) == 0) {
+            i++;
+        }
+        if (integerDigits <= 0)
+            destination[position++] = '0';
+        for (; i < integerDigits; i++) {
+            destination[position++] = (char) ('0' + nibble(source, offset, i));
+        }
+        if (scale > 0) {
+            destination[position++] = '.';
+            for (int missing = integerDigits; missing < 0; missing++) {
+                destination[position++] = '0';
+            }
+            for (i = Math.max(0, integerDigits); i < digits; i++) {
+                destination[position++] = (char) ('0' + nibble(source, offset, i));
+            }
+        }
+        return position;
+    }
+
+    private static int nibble(ByteSource source, int offset, int index) {
+        int b = source.byteAt(offset + index / 2);
+        return (index & 1) == 0 ? b >>> 4 : b & 0x0F;
+    }
+
+    private static boolean isNegative(int sign) {
+        return sign == 0xD || sign == 0xB;
+    }
+}
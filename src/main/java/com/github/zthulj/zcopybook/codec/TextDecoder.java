@@ -0,0 +1,109 @@
+package com.github.zthulj.zcopybook.codec;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+
+/**
+ * Decode the bytes of a single field into chars.
+ * Single byte charsets (ISO-8859-1, Cp037, Cp1047...) are decoded through a 256 entries table,
+ * other charsets go through a {@link CharsetDecoder}, which must then be created per thread.
+ * Instances are immutable and can be shared.
+ */
+public final class TextDecoder {
+
+    @Getter
+    private final Charset charset;
+    private final char[] table;
+
+    private TextDecoder(Charset charset, char[] table) {
+        this.charset = charset;
+        this.table = table;
+    }
+
+    public static TextDecoder of(final Charset charset) {
+        if (null == charset)
+            throw new IllegalArgumentException("charset can't be null");
+        return new TextDecoder(charset, singleByteTable(charset));
+    }
+
+    private static char[] singleByteTable(Charset charset) {
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1f)
+            return null;
+        byte[] allBytes = new byte[256];
+        for (int i = 0; i < allBytes.length; i++) {
+            allBytes[i] = (byte) i;
+        }
+        char[] table = new String(allBytes, charset).toCharArray();
+        return table.length == allBytes.length ? table : null;
+    }
+
+    public boolean isSingleByte() {
+        return null != table;
+    }
+
+    /**
+     * @return a new decoder, replacing malformed input, to use with the decode methods when the charset is not single byte
+     */
+    public CharsetDecoder newCharsetDecoder() {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * @param b a byte, between 0 and 255
+     * @return its char, through the single byte table
+     */
+    public char decode(final int b) {
+        return table[b];
+    }
+
+    /**
+     * Decode a field through the single byte table
+     * @param source the record bytes
+     * @param offset where the field starts
+     * @param length the field size, in bytes
+     * @param destination where to put the chars
+     * @return the number of decoded chars
+     */
+    public int decode(final byte[] source, final int offset, final int length, final char[] destination) {
+        for (int i = 0; i < length; i++) {
+            destination[i] = table[source[offset + i] & 0xFF];
+        }
+        return length;
+    }
+
+    /**
+     * Decode a field through the single byte table, without moving the buffer position
+     * @param source the record bytes
+     * @param offset absolute index where the field starts
+     * @param length the field size, in bytes
+     * @param destination where to put the chars
+     * @return the number of decoded chars
+     */
+    public int decode(final ByteBuffer source, final int offset, final int length, final char[] destination) {
+        for (int i = 0; i < length; i++) {
+            destination[i] = table[source.get(offset + i) & 0xFF];
+        }
+        return length;
+    }
+
+    /**
+     * Decode a field of a multi bytes charset
+     * @param field the field bytes, between position and limit
+     * @param destination where to put the chars
+     * @param decoder a decoder from {@link #newCharsetDecoder()}
+     * @return the number of decoded chars
+     */
+    public int decode(final ByteBuffer field, final char[] destination, final CharsetDecoder decoder) {
+        CharBuffer out = CharBuffer.wrap(destination);
+        decoder.reset();
+        CoderResult result = decoder.decode(field, out, true);
+        if (!result.isUnderflow() || !decoder.flush(out).isUnderflow())
+            throw new IllegalArgumentException("Field can't be decoded with " + charset + " into " + destination.length + " chars");
+        return out.position();
+    }
+}
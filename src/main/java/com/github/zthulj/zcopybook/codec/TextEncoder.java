@@ -0,0 +1,57 @@
+package com.github.zthulj.zcopybook.codec;
+
+import lombok.Getter;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Encode the chars of a text field, one byte per char, through a table built once.
+ * Single byte charsets (ISO-8859-1, Cp037, Cp1047...) map all their chars, other charsets only their ASCII chars.
+ * Instances are immutable and can be shared.
+ */
+public final class TextEncoder {
+
+    /** Returned by {@link #encode(char)} for a char without single byte */
+    public static final int UNMAPPABLE = -1;
+
+    @Getter
+    private final Charset charset;
+    private final short[] table;
+
+    private TextEncoder(Charset charset, short[] table) {
+        this.charset = charset;
+        this.table = table;
+    }
+
+    public static TextEncoder of(final Charset charset) {
+        if (null == charset)
+            throw new IllegalArgumentException("charset can't be null");
+        if (!charset.canEncode())
+            throw new IllegalArgumentException(charset + " can't encode");
+
+        short[] table = new short[Character.MAX_VALUE + 1];
+        Arrays.fill(table, (short) UNMAPPABLE);
+        boolean singleByte = charset.newEncoder().maxBytesPerChar() == 1f;
+        byte[] allBytes = new byte[singleByte ? 256 : 128];
+        for (int i = 0; i < allBytes.length; i++) {
+            allBytes[i] = (byte) i;
+        }
+        String chars = new String(allBytes, charset);
+        if (chars.length() == allBytes.length) {
+            for (int i = allBytes.length - 1; i >= 0; i--) {
+                if (chars.charAt(i) != '\uFFFD')
+                    table[chars.charAt(i)] = (short) i;
+            }
+        }
+        return new TextEncoder(charset, table);
+    }
+
+    /**
+     * @param c the char to encode
+     * @return its byte, between 0 and 255, or {@link #UNMAPPABLE}
+     */
+    public int encode(final char c) {
+        return table[c];
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.zthulj.zcopybook.codec;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Decode zoned decimal (DISPLAY) fields, once their bytes are decoded to chars with the record charset.
+ * The sign is either overpunched on the last digit ({ and A to I positive, } and J to R negative)
+ * or written as a separate leading or trailing + or -.
+ * With SIGN SEPARATE, the place of the sign is known : {@link #toLong(char[], int, int, boolean)} checks it is there.
+ * Invalid fields are reported by the return value, never by an exception.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ZonedDecimal {
+
+    /** Returned by {@link #toLong} for an invalid field, or one that doesn't fit in a long */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /** The most digits decoded with long arithmetic */
+    public static final int MAX_DIGITS = 18;
+
+    /**
+     * @param chars the decoded field
+     * @param offset where the field starts
+     * @param length the field size, in chars
+     * @return the unscaled value, or {@link #INVALID}
+     */
+    public static long toLong(final char[] chars, final int offset, final int length) {
+        int from = offset;
+        int to = offset + length;
+        boolean negative = false;
+        boolean signed = false;
+
+        if (length > 1 && (chars[from] == '-' || chars[from] == '+')) {
+            negative = chars[from++] == '-';
+            signed = true;
+        } else if (length > 1 && (chars[to - 1] == '-' || chars[to - 1] == '+')) {
+            negative = chars[--to] == '-';
+            signed = true;
+        }
+        if (from == to || to - from > MAX_DIGITS)
+            return INVALID;
+
+        long value = 0;
+        for (int i = from; i < to - 1; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9)
+                return INVALID;
+            value = value * 10 + digit;
+        }
+
+        char last = chars[to - 1];
+        int digit;
+        if (last >= '0' && last <= '9') {
+            digit = last - '0';
+        } else if (signed) {
+            return INVALID;
+        } else if (last == '{') {
+            digit = 0;
+        } else if (last >= 'A' && last <= 'I') {
+            digit = last - 'A' + 1;
+        } else if (last == '}') {
+            digit = 0;
+            negative = true;
+        } else if (last >= 'J' && last <= 'R') {
+            digit = last - 'J' + 1;
+            negative = true;
+        } else {
+            return INVALID;
+        }
+        value = value * 10 + digit;
+        return negative ? -value : value;
+    }
+
+    /**
+     * @param chars the decoded field, sign included
+     * @param offset where the field starts
+     * @param length the field size, in chars, sign included
+     * @param leading true when the sign is the first char (SIGN LEADING SEPARATE), false when it is the last one
+     * @return the unscaled value, or {@link #INVALID} when the sign isn't + or - or a digit is invalid
+     */
+    public static long toLong(final char[] chars, final int offset, final int length, final boolean leading) {
+        if (length < 2 || length - 1 > MAX_DIGITS)
+            return INVALID;
+        int sign = leading ? offset : offset + length - 1;
+        if (chars[sign] != '+' && chars[sign] != '-')
+            return INVALID;
+        int from = leading ? offset + 1 : offset;
+        int to = from + length - 1;
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9)
+                return INVALID;
+            value = value * 10 + digit;
+        }
+        return chars[sign] == '-' ? -value : value;
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.zthulj.zcopybook.engine;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Split a copybook into statements of tokens, in a single pass over its chars.
+ * <ul>
+ *     <li>Lines starting with * and the end of a line after *&gt; are comments</li>
+ *     <li>A statement ends with a period followed by a blank or the end of the copybook,
+ *     so pictures like 9(5).99 are kept whole</li>
+ *     <li>Quoted literals are single tokens, blanks and periods included</li>
+ * </ul>
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class CopybookTokenizer {
+
+    static List<String[]> tokenize(final String copybook) {
+        List<String[]> statements = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        int length = copybook.length();
+        boolean lineStart = true;
+        int i = 0;
+
+        while (i < length) {
+            char c = copybook.charAt(i);
+            if (c == '\n') {
+                lineStart = true;
+                i++;
+            } else if (isBlank(c)) {
+                i++;
+            } else if ((lineStart && c == '*') || (c == '*' && i + 1 < length && copybook.charAt(i + 1) == '>')) {
+                i = endOfLine(copybook, i);
+            } else if (isStatementEnd(copybook, i)) {
+                addStatement(statements, tokens);
+                lineStart = false;
+                i++;
+            } else {
+                int start = i;
+                i = endOfToken(copybook, i);
+                tokens.add(copybook.substring(start, i));
+                lineStart = false;
+            }
+        }
+        addStatement(statements, tokens);
+        return statements;
+    }
+
+    private static int endOfToken(String copybook, int i) {
+        int length = copybook.length();
+        while (i < length) {
+            char c = copybook.charAt(i);
+            if (isBlank(c) || c == '\n' || isStatementEnd(copybook, i))
+                return i;
+            if (c == '\'' || c == '"')
+                i = endOfLiteral(copybook, i);
+            else
+                i++;
+        }
+        return i;
+    }
+
+    private static int endOfLiteral(String copybook, int i) {
+        char quote = copybook.charAt(i++);
+        int length = copybook.length();
+        while (i < length) {
+            if (copybook.charAt(i) == quote) {
+                if (i + 1 < length && copybook.charAt(i + 1) == quote)
+                    i += 2;
+                else
+                    return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static int endOfLine(String copybook, int i) {
+        int end = copybook.indexOf('\n', i);
+        return end < 0 ? copybook.length() : end;
+    }
+
+    private static boolean isStatementEnd(String copybook, int i) {
+        if (copybook.charAt(i) != '.')
+            return false;
+        if (i + 1 == copybook.length())
+            return true;
+        char next = copybook.charAt(i + 1);
+        return next == '\n' || isBlank(next);
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    private static void addStatement(List<String[]> statements, List<String> tokens) {
+        if (tokens.isEmpty())
+            return;
+        statements.add(tokens.toArray(new String[0]));
+        tokens.clear();
+    }
+}
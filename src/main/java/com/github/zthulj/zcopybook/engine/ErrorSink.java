@@ -0,0 +1,19 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.github.zthulj.zcopybook.plan.DecodeException;
+import com.github.zthulj.zcopybook.plan.PositionalRecord;
+
+/**
+ * Receive the records that can't be decoded, to keep converting the other ones : count them, log them, write them to a reject file...
+ * A {@link ZFileConverter} with an executor calls its sink from many threads.
+ */
+@FunctionalInterface
+public interface ErrorSink {
+
+    /**
+     * @param index the position of the record in its input, from 0
+     * @param record the rejected record, only valid during the call
+     * @param error why it is rejected : the reason, the field and its offset
+     */
+    void reject(long index, PositionalRecord record, DecodeException error);
+}
@@ -0,0 +1,69 @@
+package com.github.zthulj.zcopybook.engine;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A parsed PIC clause. Repetitions like X(18) are expanded, S, V and P take no room.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+final class Picture {
+
+    /** Number of chars of the field when displayed */
+    private final int size;
+    /** Number of 9, including the decimals */
+    private final int digits;
+    /** Number of 9 after V */
+    private final int scale;
+    private final boolean signed;
+    /** Only made of 9, S, V and P : the picture can be packed, binary or zoned */
+    private final boolean numeric;
+
+    static Picture parse(final String picture) {
+        int size = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean signed = false;
+        boolean numeric = true;
+        boolean decimals = false;
+        char previous = 0;
+
+        for (int i = 0; i < picture.length(); i++) {
+            char c = Character.toUpperCase(picture.charAt(i));
+            int count = 1;
+            if (c == '(') {
+                int end = picture.indexOf(')', i);
+                if (end < 0 || 0 == previous)
+                    throw new IllegalArgumentException("Invalid picture : " + picture);
+                count = Integer.parseInt(picture.substring(i + 1, end)) - 1;
+                c = previous;
+                i = end;
+            }
+
+            switch (c) {
+                case 'S':
+                    signed = true;
+                    break;
+                case 'V':
+                    decimals = true;
+                    break;
+                case 'P':
+                    break;
+                case '9':
+                    digits += count;
+                    size += count;
+                    if (decimals)
+                        scale += count;
+                    break;
+                default:
+                    numeric = false;
+                    size += count;
+                    break;
+            }
+            previous = c;
+        }
+        return new Picture(size, digits, scale, signed, numeric && digits > 0);
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.zthulj.zcopybook.plan.ByteBufferRecord;
+import com.github.zthulj.zcopybook.plan.PositionalRecord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * What a {@link ZFileConverter} needs to convert records : a {@link ZConverter}, or a {@link ZDispatcher} of many
+ */
+interface RecordConversion {
+
+    boolean writeJson(PositionalRecord record, JsonGenerator generator) throws IOException;
+
+    JsonGenerator createGenerator(OutputStream out) throws IOException;
+
+    ByteBufferRecord newByteBufferRecord();
+}
@@ -1,37 +1,424 @@
 package com.github.zthulj.zcopybook.engine;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.zthulj.zcopybook.model.Coordinates;
-import com.github.zthulj.zcopybook.model.ValueNode;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.github.zthulj.zcopybook.codec.TextDecoder;
+import com.github.zthulj.zcopybook.metrics.ZMetrics;
 import com.github.zthulj.zcopybook.model.ZCopyBook;
-import lombok.RequiredArgsConstructor;
+import com.github.zthulj.zcopybook.plan.*;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
 
-@RequiredArgsConstructor
-public class ZConverter {
-    private final ZCopyBook<String> copyBook;
-    private ObjectMapper mapperJson = new ObjectMapper();
+/**
+ * Convert positional lines to json, following a compiled {@link ZPlan}.
+ * The converter holds no per-record state and can be shared between threads.
+ * <p>
+ * Binary records (byte arrays, buffers) are decoded field by field with the converter charset,
+ * UTF-8 by default. Use for instance Cp037 or Cp1047 for EBCDIC records.
+ * <p>
+ * Zoned decimal fields are written as json strings, as read. Build the converter with typedNumbers
+ * to get json numbers, signed from their overpunched digit and scaled by their implied decimal point.
+ * <p>
+ * With an OCCURS DEPENDING ON, records are variable : each one must have the length computed from its counters.
+ * <p>
+ * A REDEFINES is written with its redefined item only, unless a {@link Discriminator} is given for it :
+ * the branch it chooses is then the only one decoded.
+ * <p>
+ * Build the converter with some fields to convert only them : the other ones are never decoded.
+ * <p>
+ * With {@link Filter filters}, records are checked on their raw fields first : the dropped ones are never converted.
+ * <p>
+ * Build the converter with compiled to write records with a class generated for the plan, see {@link ZPlan#compiled()}.
+ * <p>
+ * Records can also be decoded into a {@link ColumnBatch}, one primitive array per field, without json.
+ * <p>
+ * Build the converter with {@link ZMetrics} to measure its conversions, under the name of its layout.
+ * <p>
+ * Records that can't be decoded throw a {@link DecodeException}, or are sent to an {@link ErrorSink}
+ * with {@link #convertToJson(PositionalRecord, long, ErrorSink)}.
+ */
+public class ZConverter implements RecordConversion {
+    /** A thread drops its writer past this json length, not to keep the buffer of an unusually large record */
+    private static final int MAX_KEPT_WRITER_LENGTH = 1 << 16;
+
+    @Getter
+    private final ZPlan plan;
+    private final TextDecoder textDecoder;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    /** The writer of each thread, reused from one record to the next */
+    private final ThreadLocal<StringWriter> writers = ThreadLocal.withInitial(StringWriter::new);
+    @Getter
+    private final String name;
+    private final ZMetrics metrics;
+    private final boolean metered;
+    /** The OCCURS DEPENDING ON steps, measured for each record */
+    private final int[] dependingArrays;
+
+    public ZConverter(final ZCopyBook<String> copyBook) {
+        this(ZPlan.from(copyBook));
+    }
+
+    public ZConverter(final ZPlan plan) {
+        this(plan, null, false, null, null, null, false, null, null);
+    }
+
+    /**
+     * @param discriminators the discriminator of each REDEFINES, by json path of the redefined item
+     * @param filters the conditions the records must all match to be converted
+     * @param projection the json paths or glob patterns of the fields to convert, all of them when empty
+     * @param compiled true to generate a class writing the records, when the plan allows it
+     * @param name the layout name given to the metrics, the name of the 01 level by default
+     * @param metrics where conversions are measured, nothing is measured by default
+     */
+    @Builder
+    private ZConverter(final ZPlan plan, final Charset charset, final boolean typedNumbers, @Singular final Map<String, Discriminator> discriminators,
+                       @Singular final List<Filter> filters, @Singular("field") final Set<String> projection,
+                       final boolean compiled, final String name, final ZMetrics metrics) {
+        if (null == plan)
+            throw new IllegalArgumentException("plan can't be null");
+        this.metrics = null == metrics ? ZMetrics.NONE : metrics;
+        this.metered = this.metrics.isEnabled();
+        long start = metered ? System.nanoTime() : 0;
+        ZPlan configured = typedNumbers ? plan.withTypedNumbers() : plan;
+        if (null != discriminators) {
+            for (Map.Entry<String, Discriminator> discriminator : discriminators.entrySet()) {
+                configured = configured.withDiscriminator(discriminator.getKey(), discriminator.getValue());
+            }
+        }
+        if (null != filters) {
+            for (Filter filter : filters) {
+                configured = configured.withFilter(filter);
+            }
+        }
+        if (null != projection && !projection.isEmpty())
+            configured = configured.withProjection(projection);
+        if (compiled)
+            configured = configured.compiled();
+        this.plan = configured;
+        this.textDecoder = TextDecoder.of(null == charset ? StandardCharsets.UTF_8 : charset);
+
+        List<Step> steps = configured.getSteps();
+        this.name = null != name ? name : steps.stream().map(Step::getName).filter(Objects::nonNull).findFirst().orElse("");
+        this.dependingArrays = metered ? IntStream.range(0, steps.size()).filter(i -> steps.get(i).isDependingOn()).toArray() : new int[0];
+        if (metered)
+            this.metrics.planCompiled(this.name, System.nanoTime() - start);
+    }
+
+    public static class ZConverterBuilder {
+        public ZConverterBuilder copyBook(final ZCopyBook<String> copyBook) {
+            return this.plan(ZPlan.from(copyBook));
+        }
+    }
+
+    public Charset getCharset() {
+        return textDecoder.getCharset();
+    }
 
     /**
      * Convert a positional line to a json
      *
      * @param positionalLine the line to convert
-     * @return the converted json
+     * @return the converted json, null when the line is dropped by the filters
      * @throws JsonProcessingException
      */
     public String convertToJson(final String positionalLine) throws JsonProcessingException {
+        checkLine(positionalLine);
+        StringRecord record = new StringRecord().wrap(positionalLine);
+        checkLength(record);
+        return toJson(record);
+    }
+
+    /**
+     * Convert a binary positional record to a json, decoding each field with the converter charset
+     *
+     * @param record the bytes holding the record
+     * @param offset where the record starts
+     * @param length the record size
+     * @return the converted json, null when the record is dropped by the filters
+     * @throws JsonProcessingException
+     */
+    public String convertToJson(final byte[] record, final int offset, final int length) throws JsonProcessingException {
+        checkBytes(record, offset, length);
+        BytesRecord bytesRecord = newBytesRecord().wrap(record, offset, length);
+        checkLength(bytesRecord);
+        return toJson(bytesRecord);
+    }
+
+    /**
+     * Convert the remaining bytes of a buffer to a json, decoding each field with the converter charset.
+     * The buffer position is not modified.
+     *
+     * @param record the buffer holding the record
+     * @return the converted json, null when the record is dropped by the filters
+     * @throws JsonProcessingException
+     */
+    public String convertToJson(final ByteBuffer record) throws JsonProcessingException {
+        checkBuffer(record);
+        ByteBufferRecord bufferRecord = newByteBufferRecord().wrap(record);
+        checkLength(bufferRecord);
+        return toJson(bufferRecord);
+    }
+
+    /**
+     * Convert a record to a json
+     *
+     * @param record the record to convert, from {@link #newBytesRecord()} or {@link #newByteBufferRecord()} to decode with the converter charset
+     * @return the converted json, null when the record is dropped by the filters
+     * @throws JsonProcessingException
+     */
+    public String convertToJson(final PositionalRecord record) throws JsonProcessingException {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        checkLength(record);
+        return toJson(record);
+    }
+
+    /**
+     * Convert a record to a json, without throwing when it can't be decoded : the record is sent to the error sink instead.
+     * The record is {@link PositionalRecord#isLenient() lenient} during the call : bad records cost no stack trace, to convert dirty inputs at full speed.
+     *
+     * @param record the record to convert, from {@link #newBytesRecord()} or {@link #newByteBufferRecord()} to decode with the converter charset
+     * @param index the position of the record in its input, given to the sink
+     * @param errors where the records that can't be decoded are sent
+     * @return the converted json, null when the record is dropped by the filters or rejected
+     * @throws JsonProcessingException
+     */
+    public String convertToJson(final PositionalRecord record, final long index, final ErrorSink errors) throws JsonProcessingException {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        if (null == errors)
+            throw new IllegalArgumentException("errors can't be null");
+        boolean lenient = record.isLenient();
+        record.setLenient(true);
+        try {
+            checkLength(record);
+            return toJson(record);
+        } catch (DecodeException e) {
+            errors.reject(index, record, e);
+            return null;
+        } finally {
+            record.setLenient(lenient);
+        }
+    }
+
+    /**
+     * Write a positional line as json, token by token, into a generator.
+     * The generator is neither flushed nor closed, so many lines can be streamed into the same one.
+     *
+     * @param positionalLine the line to convert
+     * @param generator where to write the json
+     * @return true when the line was written, false when it is dropped by the filters
+     * @throws IOException when the generator can't write
+     */
+    public boolean writeJson(final String positionalLine, final JsonGenerator generator) throws IOException {
+        checkLine(positionalLine);
+        return writeJson(new StringRecord().wrap(positionalLine), generator);
+    }
+
+    /**
+     * Write a binary positional record as json into a generator
+     *
+     * @param record the bytes holding the record
+     * @param offset where the record starts
+     * @param length the record size
+     * @param generator where to write the json
+     * @return true when the record was written, false when it is dropped by the filters
+     * @throws IOException when the generator can't write
+     */
+    public boolean writeJson(final byte[] record, final int offset, final int length, final JsonGenerator generator) throws IOException {
+        checkBytes(record, offset, length);
+        return writeJson(newBytesRecord().wrap(record, offset, length), generator);
+    }
+
+    /**
+     * Write the remaining bytes of a buffer as json into a generator. The buffer position is not modified.
+     *
+     * @param record the buffer holding the record
+     * @param generator where to write the json
+     * @return true when the record was written, false when it is dropped by the filters
+     * @throws IOException when the generator can't write
+     */
+    public boolean writeJson(final ByteBuffer record, final JsonGenerator generator) throws IOException {
+        checkBuffer(record);
+        return writeJson(newByteBufferRecord().wrap(record), generator);
+    }
+
+    /**
+     * Write a record as json into a generator.
+     * Records from {@link #newBytesRecord()} or {@link #newByteBufferRecord()} can be rewrapped and reused
+     * by the same thread to convert many records without allocating.
+     *
+     * @param record the record to convert
+     * @param generator where to write the json
+     * @return true when the record was written, false when it is dropped by the filters
+     * @throws IOException when the generator can't write
+     */
+    @Override
+    public boolean writeJson(final PositionalRecord record, final JsonGenerator generator) throws IOException {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        if (null == generator)
+            throw new IllegalArgumentException("generator can't be null");
+        checkLength(record);
+        if (!accepts(record))
+            return false;
+
+        write(record, generator);
+        return true;
+    }
+
+    /**
+     * Write a positional line as UTF-8 json into an output stream. The stream is not closed.
+     *
+     * @param positionalLine the line to convert
+     * @param out where to write the json
+     * @return true when the line was written, false when it is dropped by the filters
+     * @throws IOException when the stream can't be written
+     */
+    public boolean writeJson(final String positionalLine, final OutputStream out) throws IOException {
+        checkLine(positionalLine);
+        if (null == out)
+            throw new IllegalArgumentException("out can't be null");
+        StringRecord record = new StringRecord().wrap(positionalLine);
+        checkLength(record);
+        if (!accepts(record))
+            return false;
+
+        try (JsonGenerator generator = createGenerator(out)) {
+            write(record, generator);
+        }
+        return true;
+    }
+
+    /**
+     * Create a UTF-8 generator, sharing this converter configuration, that won't close the stream
+     * @param out where the generator will write
+     * @return the generator
+     * @throws IOException when the generator can't be created
+     */
+    @Override
+    public JsonGenerator createGenerator(final OutputStream out) throws IOException {
+        return jsonFactory.createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * @param capacity the maximum number of records
+     * @return an empty batch, decoding records with the plan of this converter. Not thread safe.
+     */
+    public ColumnBatch newColumnBatch(final int capacity) {
+        return ColumnBatch.of(plan, capacity);
+    }
+
+    /**
+     * @return a reusable byte array record, decoding with the converter charset. Not thread safe.
+     */
+    public BytesRecord newBytesRecord() {
+        return new BytesRecord(textDecoder);
+    }
+
+    /**
+     * @return a reusable buffer record, decoding with the converter charset. Not thread safe.
+     */
+    @Override
+    public ByteBufferRecord newByteBufferRecord() {
+        return new ByteBufferRecord(textDecoder);
+    }
+
+    private String toJson(final PositionalRecord record) throws JsonProcessingException {
+        if (!accepts(record))
+            return null;
+        StringWriter writer = writers.get();
+        writer.getBuffer().setLength(0);
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            write(record, generator);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw JsonMappingException.fromUnexpectedIOE(e);
+        }
+        String json = writer.toString();
+        if (json.length() > MAX_KEPT_WRITER_LENGTH)
+            writers.remove();
+        return json;
+    }
+
+    private boolean accepts(final PositionalRecord record) {
+        if (plan.accepts(record))
+            return true;
+        if (metered)
+            metrics.recordFiltered(name, record.length());
+        return false;
+    }
+
+    private void write(final PositionalRecord record, final JsonGenerator generator) throws IOException {
+        long start = metered ? System.nanoTime() : 0L;
+        try {
+            plan.write(record, generator);
+        } catch (DecodeException e) {
+            if (metered)
+                metrics.decodeError(name, e.getField());
+            throw e;
+        }
+        if (!metered)
+            return;
+        metrics.recordConverted(name, record.length(), System.nanoTime() - start);
+        for (int array : dependingArrays) {
+            metrics.occursExpanded(name, plan.getSteps().get(array).getPath(), plan.occursIn(record, array));
+        }
+    }
 
+    private void checkLine(final String positionalLine) {
         if(null == positionalLine)
             throw new IllegalArgumentException("positionalLine can't be null");
+    }
+
+    private void checkBytes(final byte[] record, final int offset, final int length) {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        if (offset < 0 || length < 0 || offset + length > record.length)
+            throw new IllegalArgumentException("offset " + offset + " and length " + length + " are out of the record bounds (" + record.length + ")");
+    }
 
-        if(positionalLine.length() != copyBook.getWaitedLength())
-            throw new IllegalArgumentException("Waited length : " + copyBook.getWaitedLength() + ", actual positionnalLine length : "+ positionalLine.length());
+    private void checkBuffer(final ByteBuffer record) {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+    }
 
-        for(ValueNode<String> valueNode : copyBook.getValueNodes()){
-            Coordinates c = valueNode.getCoordinates();
-            valueNode.setValue(positionalLine.substring(c.getStart(), c.getEnd()));
+    private void checkLength(final PositionalRecord record) {
+        if (plan.isVariableLength() && record.length() < plan.getMinRecordLength())
+            throw wrongLength(record, record.length() + " bytes, at least " + plan.getMinRecordLength() + " waited");
+        int waitedLength;
+        try {
+            waitedLength = plan.lengthOf(record);
+        } catch (DecodeException e) {
+            if (metered)
+                metrics.decodeError(name, e.getField());
+            throw e;
         }
-        return mapperJson.writeValueAsString(copyBook.getRootNode());
+        if (record.length() != waitedLength)
+            throw wrongLength(record, record.length() + " bytes, " + waitedLength + " waited");
+    }
+
+    private DecodeException wrongLength(final PositionalRecord record, final String lengths) {
+        if (metered)
+            metrics.decodeError(name, ZMetrics.RECORD_LENGTH);
+        return new DecodeException(DecodeException.Reason.WRONG_LENGTH, null, -1, lengths, !record.isLenient());
     }
 }
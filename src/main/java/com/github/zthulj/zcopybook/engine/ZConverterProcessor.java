@@ -0,0 +1,340 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.github.zthulj.zcopybook.flow.Flow;
+import com.github.zthulj.zcopybook.plan.BytesRecord;
+import com.github.zthulj.zcopybook.plan.PositionalRecord;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Convert a stream of binary records, published one record per byte array, with demand-driven backpressure.
+ * At most bufferSize records are requested from upstream and not yet delivered downstream : a slow subscriber slows the source down,
+ * nothing is buffered without bound and no thread waits.
+ * <p>
+ * Records are converted by up to parallelism tasks of the executor, and published in their original order.
+ * By default, each record is converted to json and the ones dropped by the filters of the converter are not published.
+ * A {@link Mapper} can publish something else from each record view, a {@link com.github.zthulj.zcopybook.plan.ColumnBatch} row for instance.
+ * <p>
+ * The processor has a single subscriber. A failed conversion cancels the upstream subscription and is sent to it with onError.
+ */
+public class ZConverterProcessor<R> implements Flow.Processor<byte[], R> {
+
+    /**
+     * Turn a record into the published item
+     */
+    @FunctionalInterface
+    public interface Mapper<R> {
+        /**
+         * @param record the record view, decoding with the converter charset, only valid during the call
+         * @return the item to publish, null to drop the record
+         * @throws IOException when the record can't be converted
+         */
+        R map(PositionalRecord record) throws IOException;
+    }
+
+    @Getter
+    private final ZConverter converter;
+    private final Mapper<R> mapper;
+    private final Executor executor;
+    @Getter
+    private final int parallelism;
+    @Getter
+    private final int bufferSize;
+
+    private final Object lock = new Object();
+    private final AtomicInteger drains = new AtomicInteger();
+    /** The records requested from upstream and not yet published, in order */
+    private final Deque<Slot<R>> slots = new ArrayDeque<>();
+    private final Deque<Slot<R>> toConvert = new ArrayDeque<>();
+    private int workers;
+    private long demand;
+    private Flow.Subscription upstream;
+    private boolean subscribed;
+    private Flow.Subscriber<? super R> downstream;
+    private boolean upstreamDone;
+    /** The error of the upstream publisher */
+    private Throwable error;
+    /** A failed conversion, or a wrong request of the subscriber : the upstream subscription must be cancelled */
+    private Throwable failure;
+    private boolean terminated;
+
+    /**
+     * @param converter the converter decoding the records
+     * @param mapper what to publish for each record, see {@link #toJson(ZConverter)} to publish its json
+     * @param executor where records are converted, the common pool by default
+     * @param parallelism the maximum number of records converted at the same time, the number of processors by default
+     * @param bufferSize the maximum number of records requested and not yet published, {@link Flow#DEFAULT_BUFFER_SIZE} by default
+     */
+    @Builder
+    private ZConverterProcessor(final ZConverter converter, final Mapper<R> mapper, final Executor executor, final int parallelism, final int bufferSize) {
+        if (null == converter)
+            throw new IllegalArgumentException("converter can't be null");
+        if (null == mapper)
+            throw new IllegalArgumentException("mapper can't be null");
+        if (parallelism < 0 || bufferSize < 0)
+            throw new IllegalArgumentException("parallelism and bufferSize can't be negative");
+        this.converter = converter;
+        this.mapper = mapper;
+        this.executor = null == executor ? ForkJoinPool.commonPool() : executor;
+        this.parallelism = 0 == parallelism ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.bufferSize = 0 == bufferSize ? Flow.DEFAULT_BUFFER_SIZE : bufferSize;
+    }
+
+    /**
+     * @param converter the converter decoding the records
+     * @return a builder of processors publishing the json of each record
+     */
+    public static ZConverterProcessorBuilder<String> toJson(final ZConverter converter) {
+        if (null == converter)
+            throw new IllegalArgumentException("converter can't be null");
+        return ZConverterProcessor.<String>builder().converter(converter).mapper(converter::convertToJson);
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super R> subscriber) {
+        if (null == subscriber)
+            throw new NullPointerException("subscriber can't be null");
+        boolean first;
+        synchronized (lock) {
+            first = !subscribed;
+            subscribed = true;
+        }
+        if (!first) {
+            subscriber.onSubscribe(NoSubscription.INSTANCE);
+            subscriber.onError(new IllegalStateException("The processor already has a subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new DownstreamSubscription());
+        synchronized (lock) {
+            downstream = subscriber;
+        }
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        if (null == subscription)
+            throw new NullPointerException("subscription can't be null");
+        synchronized (lock) {
+            if (null != upstream || terminated) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        subscription.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(final byte[] item) {
+        if (null == item)
+            throw new NullPointerException("item can't be null");
+        boolean newWorker;
+        synchronized (lock) {
+            if (terminated)
+                return;
+            Slot<R> slot = new Slot<>(item);
+            slots.add(slot);
+            toConvert.add(slot);
+            newWorker = workers < parallelism;
+            if (newWorker)
+                workers++;
+        }
+        if (newWorker)
+            startWorker();
+    }
+
+    private void startWorker() {
+        try {
+            executor.execute(this::convert);
+        } catch (RejectedExecutionException e) {
+            synchronized (lock) {
+                workers--;
+                failure = e;
+            }
+            drain();
+        }
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        if (null == throwable)
+            throw new NullPointerException("throwable can't be null");
+        synchronized (lock) {
+            if (upstreamDone)
+                return;
+            upstreamDone = true;
+            error = throwable;
+        }
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (lock) {
+            upstreamDone = true;
+        }
+        drain();
+    }
+
+    /**
+     * Convert records until none is waiting, each task with its own record view
+     */
+    private void convert() {
+        BytesRecord record = converter.newBytesRecord();
+        while (true) {
+            Slot<R> slot;
+            synchronized (lock) {
+                slot = toConvert.poll();
+                if (null == slot) {
+                    workers--;
+                    return;
+                }
+            }
+            R item = null;
+            Throwable thrown = null;
+            try {
+                item = mapper.map(record.wrap(slot.input, 0, slot.input.length));
+            } catch (IOException | RuntimeException e) {
+                thrown = e;
+            }
+            synchronized (lock) {
+                slot.item = item;
+                slot.failure = thrown;
+                slot.done = true;
+            }
+            drain();
+        }
+    }
+
+    /**
+     * Publish the converted records, in order and as far as the demand goes. Called by any thread, run by one at a time
+     */
+    private void drain() {
+        if (drains.getAndIncrement() != 0)
+            return;
+        do {
+            publish();
+        } while (drains.decrementAndGet() != 0);
+    }
+
+    private void publish() {
+        while (true) {
+            Flow.Subscriber<? super R> subscriber;
+            Flow.Subscription subscription;
+            Slot<R> head = null;
+            Throwable upstreamError = null;
+            Throwable ownFailure = null;
+            boolean complete = false;
+            synchronized (lock) {
+                subscriber = downstream;
+                subscription = upstream;
+                if (terminated || null == subscriber)
+                    return;
+                Slot<R> first = slots.peek();
+                if (null != first && first.done && null != first.failure)
+                    failure = first.failure;
+                if (null != failure) {
+                    ownFailure = failure;
+                } else if (null != error) {
+                    upstreamError = error;
+                } else if (null != first && first.done && (null == first.item || demand > 0)) {
+                    head = slots.poll();
+                    if (null != head.item)
+                        demand--;
+                } else if (null == first && upstreamDone) {
+                    complete = true;
+                } else {
+                    return;
+                }
+                if (null == head) {
+                    terminated = true;
+                    slots.clear();
+                    toConvert.clear();
+                }
+            }
+
+            if (null != head) {
+                if (null != head.item)
+                    subscriber.onNext(head.item);
+                if (null != subscription)
+                    subscription.request(1);
+            } else if (complete) {
+                subscriber.onComplete();
+                return;
+            } else if (null != ownFailure) {
+                if (null != subscription)
+                    subscription.cancel();
+                subscriber.onError(ownFailure);
+                return;
+            } else {
+                subscriber.onError(upstreamError);
+                return;
+            }
+        }
+    }
+
+    private final class DownstreamSubscription implements Flow.Subscription {
+        @Override
+        public void request(final long n) {
+            synchronized (lock) {
+                if (terminated)
+                    return;
+                if (n <= 0)
+                    failure = new IllegalArgumentException("The requested number must be positive, not " + n);
+                else
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            Flow.Subscription subscription;
+            synchronized (lock) {
+                if (terminated)
+                    return;
+                terminated = true;
+                slots.clear();
+                toConvert.clear();
+                subscription = upstream;
+            }
+            if (null != subscription)
+                subscription.cancel();
+        }
+    }
+
+    /**
+     * Given to a rejected subscriber before its error : it has no effect on the stream of the accepted one
+     */
+    private enum NoSubscription implements Flow.Subscription {
+        INSTANCE;
+
+        @Override
+        public void request(final long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+
+    private static final class Slot<R> {
+        private final byte[] input;
+        private R item;
+        private Throwable failure;
+        private boolean done;
+
+        private Slot(byte[] input) {
+            this.input = input;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cache of compiled copybooks, keyed by the hash of their content : loading the same copybook twice,
+ * from any file or service, parses it once. The least recently used copybooks are evicted past maxEntries.
+ * <p>
+ * A directory can be watched : its copybooks are registered by file name and replaced, as a whole,
+ * once the file stopped changing for the settle delay. Converters already handed out keep converting with the version they were built from.
+ */
+public final class ZCopyBookRegistry implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(ZCopyBookRegistry.class);
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final Duration DEFAULT_SETTLE_DELAY = Duration.ofMillis(500);
+
+    private final ZLoader loader;
+    private final Charset charset;
+    private final Function<ZCopyBook<String>, ZConverter> converterFactory;
+    private final long settleNanos;
+    private final Map<String, Compiled> byHash;
+    private final Map<String, Compiled> byName = new ConcurrentHashMap<>();
+    private final Map<String, Path> sources = new ConcurrentHashMap<>();
+    private volatile WatchService watchService;
+
+    public ZCopyBookRegistry() {
+        this(null, null, 0, null, null);
+    }
+
+    /**
+     * @param loader the loader parsing the copybooks, a new {@link ZLoader} by default
+     * @param charset the charset of the copybook files, UTF-8 by default
+     * @param maxEntries the maximum number of cached copybooks, 1000 by default
+     * @param converterFactory how converters are built for registered copybooks, {@link ZConverter#ZConverter(ZCopyBook)} by default
+     * @param settleDelay how long a watched file must stay untouched before being reloaded, 500ms by default
+     */
+    @Builder
+    private ZCopyBookRegistry(final ZLoader loader, final Charset charset, final int maxEntries, final Function<ZCopyBook<String>, ZConverter> converterFactory,
+                              final Duration settleDelay) {
+        if (maxEntries < 0)
+            throw new IllegalArgumentException("maxEntries can't be negative");
+        if (null != settleDelay && settleDelay.isNegative())
+            throw new IllegalArgumentException("settleDelay can't be negative");
+        this.loader = null == loader ? new ZLoader() : loader;
+        this.charset = null == charset ? StandardCharsets.UTF_8 : charset;
+        this.converterFactory = null == converterFactory ? ZConverter::new : converterFactory;
+        this.settleNanos = (null == settleDelay ? DEFAULT_SETTLE_DELAY : settleDelay).toNanos();
+        this.byHash = new LruMap(0 == maxEntries ? DEFAULT_MAX_ENTRIES : maxEntries);
+    }
+
+    /**
+     * Load a copybook, or get it from the cache when the same content was already loaded
+     * @param copybook the copybook content
+     * @return the compiled copybook, shared with every caller loading the same content
+     */
+    public ZCopyBook<String> load(final String copybook) {
+        return compile(copybook).copyBook;
+    }
+
+    /**
+     * Load a copybook file, or get it from the cache when the same content was already loaded
+     * @param copybook the copybook file, read with the registry charset
+     * @return the compiled copybook
+     * @throws IOException when the file can't be read
+     */
+    public ZCopyBook<String> load(final Path copybook) throws IOException {
+        if (null == copybook)
+            throw new IllegalArgumentException("copybook can't be null");
+        return load(new String(Files.readAllBytes(copybook), charset));
+    }
+
+    /**
+     * Register a copybook under a name, replacing the previous version
+     * @param name the copybook name
+     * @param copybook the copybook content
+     * @return the compiled copybook
+     */
+    public ZCopyBook<String> register(final String name, final String copybook) {
+        if (null == name)
+            throw new IllegalArgumentException("name can't be null");
+        Compiled compiled = compile(copybook);
+        byName.put(name, compiled);
+        return compiled.copyBook;
+    }
+
+    /**
+     * @param name the registered name, the file name for watched directories
+     * @return the current version of the copybook, null when unknown
+     */
+    public ZCopyBook<String> getCopyBook(final String name) {
+        Compiled compiled = byName.get(name);
+        return null == compiled ? null : compiled.copyBook;
+    }
+
+    /**
+     * @param name the registered name, the file name for watched directories
+     * @return a converter for the current version of the copybook, null when unknown. It is built once per version.
+     */
+    public ZConverter getConverter(final String name) {
+        Compiled compiled = byName.get(name);
+        return null == compiled ? null : compiled.converter();
+    }
+
+    /**
+     * @return the number of cached copybooks
+     */
+    public int size() {
+        synchronized (byHash) {
+            return byHash.size();
+        }
+    }
+
+    /**
+     * Register every file of a directory, then keep them up to date from a background thread
+     * as files are created, modified or deleted. A file is reloaded once it stopped changing for the settle delay,
+     * and a file that can't be loaded keeps its previous version.
+     * @param directory the directory holding the copybooks
+     * @throws IOException when the directory can't be read or watched
+     * @throws IllegalArgumentException when a file has the same name as a file of another watched directory
+     */
+    public synchronized void watch(final Path directory) throws IOException {
+        if (null == directory)
+            throw new IllegalArgumentException("directory can't be null");
+
+        Map<String, Path> files = new LinkedHashMap<>();
+        try (DirectoryStream<Path> content = Files.newDirectoryStream(directory)) {
+            for (Path file : content) {
+                if (!Files.isRegularFile(file))
+                    continue;
+                String name = file.getFileName().toString();
+                Path source = sources.get(name);
+                if (null != source && !source.equals(file))
+                    throw new IllegalArgumentException("The copybook " + name + " of " + directory + " is already watched from " + source);
+                files.put(name, file);
+            }
+        }
+
+        if (null == watchService) {
+            watchService = directory.getFileSystem().newWatchService();
+            Thread watcher = new Thread(this::processEvents, "zcopybook-registry-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            byName.put(file.getKey(), compile(new String(Files.readAllBytes(file.getValue()), charset)));
+            sources.put(file.getKey(), file.getValue());
+        }
+    }
+
+    /**
+     * Stop watching the directories. Registered copybooks stay available.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (null != watchService) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private void processEvents() {
+        WatchService service = watchService;
+        // file -> nanoTime of its last creation or modification, reloaded once untouched for the settle delay
+        Map<Path, Long> pending = new HashMap<>();
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty() ? service.take() : service.poll(settleNanos, TimeUnit.NANOSECONDS);
+                if (null != key) {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                            continue;
+                        Path file = directory.resolve((Path) event.context());
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                            pending.remove(file);
+                            remove(file);
+                        } else {
+                            pending.put(file, System.nanoTime());
+                        }
+                    }
+                    key.reset();
+                }
+                reloadSettled(pending);
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Registry watcher stopped");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reloadSettled(Map<Path, Long> pending) {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Long> entry = it.next();
+            if (now - entry.getValue() >= settleNanos) {
+                it.remove();
+                reload(entry.getKey());
+            }
+        }
+    }
+
+    private void remove(Path file) {
+        String name = file.getFileName().toString();
+        if (sources.remove(name, file)) {
+            byName.remove(name);
+            logger.debug("Copybook {} removed", name);
+        }
+    }
+
+    private void reload(Path file) {
+        String name = file.getFileName().toString();
+        Path source = sources.get(name);
+        if (null != source && !source.equals(file)) {
+            logger.warn("Copybook {} ignored, it is already watched from {}", file, source);
+            return;
+        }
+        try {
+            if (Files.isRegularFile(file)) {
+                byName.put(name, compile(new String(Files.readAllBytes(file), charset)));
+                sources.put(name, file);
+                logger.debug("Copybook {} reloaded", name);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Copybook {} can't be reloaded, keeping the previous version", name, e);
+        }
+    }
+
+    private Compiled compile(String copybook) {
+        if (null == copybook)
+            throw new IllegalArgumentException("copybook can't be null");
+
+        String hash = hash(copybook);
+        Compiled compiled;
+        synchronized (byHash) {
+            compiled = byHash.get(hash);
+        }
+        if (null != compiled)
+            return compiled;
+
+        // the loader is not generic : its copybooks always hold String values
+        @SuppressWarnings("unchecked")
+        ZCopyBook<String> parsed = loader.load(copybook);
+        Compiled loaded = new Compiled(parsed);
+        synchronized (byHash) {
+            compiled = byHash.get(hash);
+            if (null != compiled)
+                return compiled;
+            byHash.put(hash, loaded);
+        }
+        return loaded;
+    }
+
+    private static String hash(String copybook) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(copybook.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private final class Compiled {
+        private final ZCopyBook<String> copyBook;
+        private volatile ZConverter converter;
+
+        private Compiled(ZCopyBook<String> copyBook) {
+            this.copyBook = copyBook;
+        }
+
+        private ZConverter converter() {
+            ZConverter current = converter;
+            if (null == current) {
+                synchronized (this) {
+                    current = converter;
+                    if (null == current) {
+                        current = converterFactory.apply(copyBook);
+                        converter = current;
+                    }
+                }
+            }
+            return current;
+        }
+    }
+
+    private static final class LruMap extends LinkedHashMap<String, Compiled> {
+        private static final long serialVersionUID = 1L;
+        private final int maxEntries;
+
+        private LruMap(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
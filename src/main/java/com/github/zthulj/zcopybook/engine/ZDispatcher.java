@@ -0,0 +1,193 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.zthulj.zcopybook.plan.ByteBufferRecord;
+import com.github.zthulj.zcopybook.plan.BytesRecord;
+import com.github.zthulj.zcopybook.plan.DecodeException;
+import com.github.zthulj.zcopybook.plan.PositionalRecord;
+import com.github.zthulj.zcopybook.plan.RecordTypes;
+import com.github.zthulj.zcopybook.plan.StringRecord;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Convert the records of a file mixing layouts, header, details and trailer for instance : each record is routed
+ * to the converter of its layout by a type code at a fixed position, found in a {@link RecordTypes} lookup table.
+ * Each layout keeps its own json, filters and metrics.
+ * <p>
+ * The layouts can come from as many copybooks, or from the 01 levels of a single one, see {@link ZLoader#loadAll(String)}.
+ * They must share a charset. A dispatcher holds no per-record state and can be shared between threads.
+ * <p>
+ * A record with an unknown type code goes to the default converter when there is one, else it can't be decoded.
+ */
+public class ZDispatcher implements RecordConversion {
+
+    private final RecordTypes types;
+    private final ZConverter[] converters;
+    /** The converter of the unknown type codes, null when they are rejected */
+    private final ZConverter otherwise;
+    @Getter
+    private final Map<String, ZConverter> layouts;
+
+    /**
+     * @param offset where the type code starts in the records
+     * @param length the size of the type code, from 1 to {@link RecordTypes#MAX_CODE_LENGTH}
+     * @param layouts the converter of each type code
+     * @param otherwise the converter of the other records, none by default
+     */
+    @Builder
+    private ZDispatcher(final int offset, final int length, @Singular final Map<String, ZConverter> layouts, final ZConverter otherwise) {
+        if (null == layouts || layouts.isEmpty())
+            throw new IllegalArgumentException("layouts can't be null or empty");
+        List<String> codes = new ArrayList<>(layouts.keySet());
+        this.types = RecordTypes.of(offset, length, codes);
+        this.converters = new ZConverter[codes.size()];
+        for (int i = 0; i < codes.size(); i++) {
+            converters[i] = layouts.get(codes.get(i));
+            if (null == converters[i])
+                throw new IllegalArgumentException("The converter of " + codes.get(i) + " can't be null");
+            checkCharset(converters[i]);
+        }
+        if (null != otherwise)
+            checkCharset(otherwise);
+        this.otherwise = otherwise;
+        this.layouts = Collections.unmodifiableMap(new LinkedHashMap<>(layouts));
+    }
+
+    private void checkCharset(ZConverter converter) {
+        if (!converter.getCharset().equals(converters[0].getCharset()))
+            throw new IllegalArgumentException("The layouts must share a charset, not " + converter.getCharset() + " and " + converters[0].getCharset());
+    }
+
+    public Charset getCharset() {
+        return converters[0].getCharset();
+    }
+
+    /**
+     * @param record the record to route
+     * @return the converter of its layout
+     * @throws DecodeException when its type code is unknown and there is no default converter
+     */
+    public ZConverter converterOf(final PositionalRecord record) {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        int index = types.indexOf(record);
+        if (RecordTypes.UNKNOWN != index)
+            return converters[index];
+        if (null != otherwise)
+            return otherwise;
+        throw new DecodeException(DecodeException.Reason.UNKNOWN_RECORD_TYPE, null, types.getOffset(), types.codeOf(record), !record.isLenient());
+    }
+
+    /**
+     * Convert a positional line to a json, with the converter of its layout
+     *
+     * @param positionalLine the line to convert
+     * @return the converted json, null when the line is dropped by the filters of its layout
+     * @throws JsonProcessingException
+     */
+    public String convertToJson(final String positionalLine) throws JsonProcessingException {
+        if (null == positionalLine)
+            throw new IllegalArgumentException("positionalLine can't be null");
+        return convertToJson(new StringRecord().wrap(positionalLine));
+    }
+
+    /**
+     * Convert a binary positional record to a json, with the converter of its layout
+     *
+     * @param record the bytes holding the record
+     * @param offset where the record starts
+     * @param length the record size
+     * @return the converted json, null when the record is dropped by the filters of its layout
+     * @throws JsonProcessingException
+     */
+    public String convertToJson(final byte[] record, final int offset, final int length) throws JsonProcessingException {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        if (offset < 0 || length < 0 || offset + length > record.length)
+            throw new IllegalArgumentException("offset " + offset + " and length " + length + " are out of the record bounds (" + record.length + ")");
+        return convertToJson(newBytesRecord().wrap(record, offset, length));
+    }
+
+    /**
+     * Convert a record to a json, with the converter of its layout
+     *
+     * @param record the record to convert, from {@link #newBytesRecord()} or {@link #newByteBufferRecord()} to decode with the charset of the layouts
+     * @return the converted json, null when the record is dropped by the filters of its layout
+     * @throws JsonProcessingException
+     */
+    public String convertToJson(final PositionalRecord record) throws JsonProcessingException {
+        return converterOf(record).convertToJson(record);
+    }
+
+    /**
+     * Convert a record to a json, with the converter of its layout, sending it to the error sink instead of throwing when it can't be decoded
+     *
+     * @param record the record to convert
+     * @param index the position of the record in its input, given to the sink
+     * @param errors where the records that can't be decoded, or have an unknown type code, are sent
+     * @return the converted json, null when the record is dropped by the filters of its layout or rejected
+     * @throws JsonProcessingException
+     */
+    public String convertToJson(final PositionalRecord record, final long index, final ErrorSink errors) throws JsonProcessingException {
+        if (null == errors)
+            throw new IllegalArgumentException("errors can't be null");
+        ZConverter converter;
+        boolean lenient = record.isLenient();
+        record.setLenient(true);
+        try {
+            converter = converterOf(record);
+        } catch (DecodeException e) {
+            errors.reject(index, record, e);
+            return null;
+        } finally {
+            record.setLenient(lenient);
+        }
+        return converter.convertToJson(record, index, errors);
+    }
+
+    /**
+     * Write a record as json into a generator, with the converter of its layout.
+     * The generator is neither flushed nor closed, so many records can be streamed into the same one.
+     *
+     * @param record the record to convert
+     * @param generator where to write the json
+     * @return true when the record was written, false when it is dropped by the filters of its layout
+     * @throws IOException when the generator can't write
+     */
+    @Override
+    public boolean writeJson(final PositionalRecord record, final JsonGenerator generator) throws IOException {
+        return converterOf(record).writeJson(record, generator);
+    }
+
+    @Override
+    public JsonGenerator createGenerator(final OutputStream out) throws IOException {
+        return converters[0].createGenerator(out);
+    }
+
+    /**
+     * @return a reusable byte array record, decoding with the charset of the layouts. Not thread safe.
+     */
+    public BytesRecord newBytesRecord() {
+        return converters[0].newBytesRecord();
+    }
+
+    /**
+     * @return a reusable buffer record, decoding with the charset of the layouts. Not thread safe.
+     */
+    @Override
+    public ByteBufferRecord newByteBufferRecord() {
+        return converters[0].newByteBufferRecord();
+    }
+}
@@ -0,0 +1,573 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.zthulj.zcopybook.codec.TextEncoder;
+import com.github.zthulj.zcopybook.codec.ZonedDecimal;
+import com.github.zthulj.zcopybook.model.ValueNode;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import com.github.zthulj.zcopybook.plan.Step;
+import com.github.zthulj.zcopybook.plan.ZPlan;
+import lombok.Builder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encode json back to positional records, following the same {@link ZPlan} as {@link ZConverter}.
+ * The json is read token by token from a {@link JsonParser}, straight into a reusable record : encoding many records allocates nothing per record,
+ * but the counters of an OCCURS DEPENDING ON.
+ * <p>
+ * Each record starts from its default value : spaces for text, zeros for numbers. Missing and null fields keep it.
+ * Text is left-justified and padded with spaces. Json numbers are right-justified and zero-filled,
+ * with an overpunched sign ({ and A to I positive, } and J to R negative) for signed zoned decimals.
+ * Json strings given to zoned decimal fields are copied as is, right-justified : the fields written as strings by {@link ZConverter} round-trip.
+ * <p>
+ * Char records hold binary fields (COMP, COMP-3) as chars from 0 to 255, like {@link com.github.zthulj.zcopybook.plan.StringRecord} reads them.
+ * Byte records encode text with the encoder charset, UTF-8 by default, one byte per char : use for instance Cp037 or Cp1047 for EBCDIC records.
+ * <p>
+ * A REDEFINES is encoded with the branch given in the json, or with its redefined item.
+ * An OCCURS DEPENDING ON is encoded with its counter occurrences, then the rest of the record is moved back : it can't be nested in an OCCURS.
+ * <p>
+ * The encoder holds no per-record state and can be shared between threads.
+ */
+public class ZEncoder {
+
+    private final Step[] steps;
+    private final int recordLength;
+    private final TextEncoder textEncoder;
+    /** The fields of each object, by step index. The items of a REDEFINES are fields of the object holding it */
+    private final Map<String, Integer>[] fields;
+    /** The empty record, as chars and as bytes */
+    private final char[] charTemplate;
+    private final byte[] byteTemplate;
+    /** The OCCURS DEPENDING ON arrays, in record order. Empty when the length is not variable */
+    private final int[] dependingArrays;
+    private final int counters;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public ZEncoder(final ZCopyBook<String> copyBook) {
+        this(ZPlan.from(copyBook));
+    }
+
+    public ZEncoder(final ZPlan plan) {
+        this(plan, null);
+    }
+
+    @Builder
+    @SuppressWarnings("unchecked")
+    private ZEncoder(final ZPlan plan, final Charset charset) {
+        if (null == plan)
+            throw new IllegalArgumentException("plan can't be null");
+        this.steps = plan.getSteps().toArray(new Step[0]);
+        this.recordLength = plan.getRecordLength();
+        this.textEncoder = TextEncoder.of(null == charset ? StandardCharsets.UTF_8 : charset);
+        if (TextEncoder.UNMAPPABLE == textEncoder.encode(' ') || TextEncoder.UNMAPPABLE == textEncoder.encode('0'))
+            throw new IllegalArgumentException(textEncoder.getCharset() + " can't encode records");
+
+        this.fields = new Map[steps.length];
+        int[] objectEnds = objectEnds(steps);
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i].getKind() == Step.Kind.OBJECT_START)
+                fields[i] = fieldsOf(i, objectEnds);
+        }
+
+        List<Integer> arrays = new ArrayList<>();
+        int slots = 0;
+        for (int i = 0; i < steps.length; i++) {
+            Step step = steps[i];
+            slots = Math.max(slots, step.getCounterSlot() + 1);
+            if (step.getKind() != Step.Kind.ARRAY_START)
+                continue;
+            if (step.isDependingOn())
+                arrays.add(i);
+            if (step.isDynamic()) {
+                for (int j = i + 1; j < step.getEnd(); j++) {
+                    if (steps[j].isDependingOn())
+                        throw new IllegalArgumentException("The OCCURS DEPENDING ON " + steps[j].getPath() + " can't be encoded, it is nested in " + step.getPath());
+                }
+                i = step.getEnd();
+            }
+        }
+        this.dependingArrays = arrays.stream().mapToInt(Integer::intValue).toArray();
+        this.counters = dependingArrays.length == 0 ? 0 : slots;
+
+        this.charTemplate = new char[recordLength];
+        this.byteTemplate = new byte[recordLength];
+        fillDefaults(charTemplate, null, 0, steps.length, 0);
+        fillDefaults(null, byteTemplate, 0, steps.length, 0);
+    }
+
+    public static class ZEncoderBuilder {
+        public ZEncoderBuilder copyBook(final ZCopyBook<String> copyBook) {
+            return this.plan(ZPlan.from(copyBook));
+        }
+    }
+
+    public Charset getCharset() {
+        return textEncoder.getCharset();
+    }
+
+    /**
+     * @return the record length, the longest one when the length is variable
+     */
+    public int getRecordLength() {
+        return recordLength;
+    }
+
+    /**
+     * Encode a json to a positional line
+     *
+     * @param json the json of a record, as written by {@link ZConverter}
+     * @return the positional line
+     * @throws IOException when the json can't be parsed
+     */
+    public String encode(final String json) throws IOException {
+        if (null == json)
+            throw new IllegalArgumentException("json can't be null");
+        char[] record = new char[recordLength];
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            int length = encode(parser, record);
+            if (length < 0)
+                throw new IllegalArgumentException("json can't be empty");
+            return new String(record, 0, length);
+        }
+    }
+
+    /**
+     * Encode the next json object of a parser into a char record.
+     * The parser is left on the end of the object, so a stream of records can be encoded one after the other into the same array.
+     *
+     * @param parser the parser, before or on the start of the object
+     * @param record where to encode, at least {@link #getRecordLength()} long
+     * @return the record length, -1 when the parser has no more object
+     * @throws IOException when the json can't be parsed
+     */
+    public int encode(final JsonParser parser, final char[] record) throws IOException {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        if (record.length < recordLength)
+            throw new IllegalArgumentException("record can't hold " + recordLength + " chars");
+        return encode(parser, record, null, 0);
+    }
+
+    /**
+     * Encode the next json object of a parser into a byte record, with the encoder charset.
+     * The parser is left on the end of the object, so a stream of records can be encoded one after the other into the same array.
+     *
+     * @param parser the parser, before or on the start of the object
+     * @param record where to encode
+     * @param offset where the record starts, followed by at least {@link #getRecordLength()} bytes
+     * @return the record length, -1 when the parser has no more object
+     * @throws IOException when the json can't be parsed
+     */
+    public int encode(final JsonParser parser, final byte[] record, final int offset) throws IOException {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        if (offset < 0 || offset + recordLength > record.length)
+            throw new IllegalArgumentException("record can't hold " + recordLength + " bytes from offset " + offset);
+        return encode(parser, null, record, offset);
+    }
+
+    /**
+     * @param json the json records, one object after the other
+     * @return a parser sharing this encoder configuration
+     * @throws IOException when the parser can't be created
+     */
+    public JsonParser createParser(final InputStream json) throws IOException {
+        return jsonFactory.createParser(json);
+    }
+
+    private int encode(JsonParser parser, char[] chars, byte[] bytes, int base) throws IOException {
+        if (null == parser)
+            throw new IllegalArgumentException("parser can't be null");
+        JsonToken token = parser.currentToken();
+        if (token != JsonToken.START_OBJECT)
+            token = parser.nextToken();
+        if (null == token)
+            return -1;
+        if (token != JsonToken.START_OBJECT)
+            throw new IllegalArgumentException("A record must be a json object, not " + token);
+
+        if (null != chars)
+            System.arraycopy(charTemplate, 0, chars, 0, recordLength);
+        else
+            System.arraycopy(byteTemplate, 0, bytes, base, recordLength);
+        // The counters, then the number of occurrences found in the json
+        long[] counts = 0 == counters ? null : new long[2 * counters];
+        encodeObject(parser, chars, bytes, counts, 0, base);
+        return null == counts ? recordLength : compact(chars, bytes, counts, base);
+    }
+
+    /**
+     * Encode the fields of an object, the parser being on its start
+     * @param shift the gap between the record positions and the offsets of the steps
+     */
+    private void encodeObject(JsonParser parser, char[] chars, byte[] bytes, long[] counts, int object, int shift) throws IOException {
+        Map<String, Integer> objectFields = fields[object];
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            Integer index = objectFields.get(name);
+            if (null == index)
+                throw new IllegalArgumentException("Unknown field " + name + " in " + pathOf(object));
+            token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL)
+                continue;
+
+            Step step = steps[index];
+            switch (step.getKind()) {
+                case OBJECT_START:
+                    expect(token, JsonToken.START_OBJECT, step);
+                    encodeObject(parser, chars, bytes, counts, index, shift);
+                    break;
+                case ARRAY_START:
+                    expect(token, JsonToken.START_ARRAY, step);
+                    encodeArray(parser, chars, bytes, counts, index, shift);
+                    break;
+                default:
+                    encodeValue(parser, token, chars, bytes, counts, step, step.getOffset() + shift);
+                    break;
+            }
+        }
+        if (token != JsonToken.END_OBJECT)
+            throw new IllegalArgumentException("Unexpected " + token + " in " + pathOf(object));
+    }
+
+    private void encodeArray(JsonParser parser, char[] chars, byte[] bytes, long[] counts, int array, int shift) throws IOException {
+        Step step = steps[array];
+        int occurrence = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (occurrence == step.getOccurs())
+                throw new IllegalArgumentException(step.getPath() + " can't hold more than " + step.getOccurs() + " occurrences");
+            if (token != JsonToken.VALUE_NULL) {
+                expect(token, JsonToken.START_OBJECT, step);
+                encodeObject(parser, chars, bytes, counts, array + 1, shift + occurrence * step.getStride());
+            }
+            occurrence++;
+        }
+        if (step.isDependingOn())
+            counts[counters + step.getCounterSlot()] = occurrence;
+    }
+
+    private void encodeValue(JsonParser parser, JsonToken token, char[] chars, byte[] bytes, long[] counts, Step step, int position) throws IOException {
+        boolean counter = null != counts && step.getCounterSlot() >= 0;
+        boolean zoned = step.getValueType() == ValueNode.ValueType.STRING || step.getValueType() == ValueNode.ValueType.SIGNED_INT
+                || step.getValueType() == ValueNode.ValueType.SIGNED_FLOAT || step.getValueType().isSeparateSign();
+        long value;
+        if (token == JsonToken.VALUE_STRING && zoned) {
+            char[] text = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+            if (length > step.getLength())
+                throw new IllegalArgumentException(step.getPath() + " can't hold " + length + " chars");
+            boolean numeric = counter || step.getValueType() != ValueNode.ValueType.STRING;
+            int padding = step.getLength() - length;
+            int start = numeric ? position + padding : position;
+            int fill = numeric ? position : position + length;
+            for (int i = 0; i < length; i++) {
+                putChar(chars, bytes, start + i, text[offset + i], step);
+            }
+            for (int i = 0; i < padding; i++) {
+                putChar(chars, bytes, fill + i, numeric ? '0' : ' ', step);
+            }
+            if (!counter)
+                return;
+            value = ZonedDecimal.toLong(text, offset, length);
+            if (value == ZonedDecimal.INVALID)
+                throw new IllegalArgumentException("Invalid counter " + step.getPath());
+        } else if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            value = unscaled(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), step);
+            switch (step.getValueType()) {
+                case PACKED_DECIMAL:
+                    putPacked(chars, bytes, position, value, step);
+                    break;
+                case BINARY_INT:
+                case UNSIGNED_BINARY_INT:
+                    putBinary(chars, bytes, position, value, step);
+                    break;
+                default:
+                    putZoned(chars, bytes, position, value, step);
+                    break;
+            }
+        } else {
+            throw new IllegalArgumentException("Expected a value for " + step.getPath() + ", not " + token);
+        }
+        if (counter)
+            counts[step.getCounterSlot()] = value;
+    }
+
+    /**
+     * @return the value of a json number, unscaled to the scale of the field
+     */
+    private static long unscaled(char[] text, int offset, int length, Step step) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (text[i] == 'e' || text[i] == 'E')
+                return unscaledExponent(new String(text, offset, length), step);
+        }
+        int i = offset;
+        boolean negative = i < end && text[i] == '-';
+        if (i < end && (text[i] == '-' || text[i] == '+'))
+            i++;
+        if (i == end)
+            throw new IllegalArgumentException("Invalid number for " + step.getPath());
+
+        long value = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            char c = text[i];
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+            if (c < '0' || c > '9')
+                throw new IllegalArgumentException("Invalid number for " + step.getPath());
+            int digit = c - '0';
+            if (decimals >= 0) {
+                if (decimals == step.getScale()) {
+                    if (digit != 0)
+                        throw new IllegalArgumentException(step.getPath() + " can't hold more than " + step.getScale() + " decimals");
+                    continue;
+                }
+                decimals++;
+            }
+            value = times10(value, step) + digit;
+        }
+        for (int scale = Math.max(0, decimals); scale < step.getScale(); scale++) {
+            value = times10(value, step);
+        }
+        return negative ? -value : value;
+    }
+
+    private static long unscaledExponent(String number, Step step) {
+        try {
+            return new BigDecimal(number).setScale(step.getScale()).unscaledValue().longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid number " + number + " for " + step.getPath(), e);
+        }
+    }
+
+    private static long times10(long value, Step step) {
+        if (value > (Long.MAX_VALUE - 9) / 10)
+            throw new IllegalArgumentException("Too many digits for " + step.getPath());
+        return value * 10;
+    }
+
+    private void putZoned(char[] chars, byte[] bytes, int position, long value, Step step) {
+        if (value < 0 && step.getValueType() == ValueNode.ValueType.STRING)
+            throw new IllegalArgumentException(step.getPath() + " can't hold a negative number");
+        boolean separate = step.getValueType().isSeparateSign();
+        boolean overpunched = step.getValueType() != ValueNode.ValueType.STRING && !separate;
+        int from = 0;
+        int to = step.getLength();
+        if (separate) {
+            int sign = step.getValueType() == ValueNode.ValueType.LEADING_SEPARATE_SIGN ? from++ : --to;
+            putChar(chars, bytes, position + sign, value < 0 ? '-' : '+', step);
+        }
+        long remaining = Math.abs(value);
+        for (int i = to - 1; i >= from; i--) {
+            int digit = (int) (remaining % 10);
+            remaining /= 10;
+            char c = (char) ('0' + digit);
+            if (overpunched && i == to - 1)
+                c = value < 0 ? (0 == digit ? '}' : (char) ('J' + digit - 1)) : (0 == digit ? '{' : (char) ('A' + digit - 1));
+            putChar(chars, bytes, position + i, c, step);
+        }
+        if (remaining != 0)
+            throw new IllegalArgumentException("Too many digits for " + step.getPath());
+    }
+
+    private static void putPacked(char[] chars, byte[] bytes, int position, long value, Step step) {
+        long remaining = Math.abs(value);
+        int sign = value < 0 ? 0xD : 0xC;
+        for (int i = step.getLength() - 1; i >= 0; i--) {
+            int low = i == step.getLength() - 1 ? sign : (int) (remaining % 10);
+            if (i != step.getLength() - 1)
+                remaining /= 10;
+            int high = (int) (remaining % 10);
+            remaining /= 10;
+            putByte(chars, bytes, position + i, high << 4 | low);
+        }
+        if (remaining != 0)
+            throw new IllegalArgumentException("Too many digits for " + step.getPath());
+    }
+
+    private static void putBinary(char[] chars, byte[] bytes, int position, long value, Step step) {
+        int bits = 8 * step.getLength();
+        boolean fits;
+        if (step.getValueType() == ValueNode.ValueType.UNSIGNED_BINARY_INT)
+            fits = value >= 0 && (bits >= 64 || value >>> bits == 0);
+        else
+            fits = bits >= 64 || value >> (bits - 1) == 0 || value >> (bits - 1) == -1;
+        if (!fits)
+            throw new IllegalArgumentException(value + " doesn't fit in " + step.getPath());
+        for (int i = step.getLength() - 1; i >= 0; i--) {
+            putByte(chars, bytes, position + i, (int) (value & 0xFF));
+            value >>= 8;
+        }
+    }
+
+    private void putChar(char[] chars, byte[] bytes, int position, char c, Step step) {
+        if (null != chars) {
+            chars[position] = c;
+            return;
+        }
+        int b = textEncoder.encode(c);
+        if (b == TextEncoder.UNMAPPABLE)
+            throw new IllegalArgumentException("The char " + c + " of " + step.getPath() + " can't be encoded with " + textEncoder.getCharset());
+        bytes[position] = (byte) b;
+    }
+
+    private static void putByte(char[] chars, byte[] bytes, int position, int b) {
+        if (null != chars)
+            chars[position] = (char) (b & 0xFF);
+        else
+            bytes[position] = (byte) b;
+    }
+
+    /**
+     * Move back the fields following each OCCURS DEPENDING ON, over its missing occurrences
+     * @return the record length
+     */
+    private int compact(char[] chars, byte[] bytes, long[] counts, int base) {
+        int gap = 0;
+        int segment = 0;
+        for (int array : dependingArrays) {
+            Step step = steps[array];
+            long occurs = counts[step.getCounterSlot()];
+            if (occurs < step.getMinOccurs() || occurs > step.getOccurs())
+                throw new IllegalArgumentException("Counter of " + step.getPath() + " is " + occurs + ", out of OCCURS " + step.getMinOccurs() + " TO " + step.getOccurs());
+            if (counts[counters + step.getCounterSlot()] > occurs)
+                throw new IllegalArgumentException(step.getPath() + " has more occurrences than its counter " + occurs);
+            int start = firstOffset(array);
+            move(chars, bytes, base, segment, start + (int) occurs * step.getStride(), gap);
+            gap += (step.getOccurs() - (int) occurs) * step.getStride();
+            segment = start + step.getOccurs() * step.getStride();
+        }
+        move(chars, bytes, base, segment, recordLength, gap);
+        return recordLength - gap;
+    }
+
+    private static void move(char[] chars, byte[] bytes, int base, int from, int to, int gap) {
+        if (0 == gap || to <= from)
+            return;
+        if (null != chars)
+            System.arraycopy(chars, from, chars, from - gap, to - from);
+        else
+            System.arraycopy(bytes, base + from, bytes, base + from - gap, to - from);
+    }
+
+    private int firstOffset(int array) {
+        for (int i = array + 1; i < steps[array].getEnd(); i++) {
+            if (steps[i].getKind() == Step.Kind.VALUE)
+                return steps[i].getOffset();
+        }
+        throw new IllegalStateException(steps[array].getPath() + " has no field");
+    }
+
+    /**
+     * Write the default value of every field, in every occurrence. The redefined item of a REDEFINES is written last
+     */
+    private void fillDefaults(char[] chars, byte[] bytes, int from, int to, int shift) {
+        for (int i = from; i < to; i++) {
+            Step step = steps[i];
+            switch (step.getKind()) {
+                case ARRAY_START:
+                    for (int occurrence = 0; occurrence < step.getOccurs(); occurrence++) {
+                        fillDefaults(chars, bytes, i + 1, step.getEnd(), shift + occurrence * step.getStride());
+                    }
+                    i = step.getEnd();
+                    break;
+                case REDEFINES:
+                    for (int branch = step.getBranchCount() - 1; branch >= 0; branch--) {
+                        fillDefaults(chars, bytes, step.getBranch(branch), step.getBranchEnd(branch), shift);
+                    }
+                    i = step.getEnd();
+                    break;
+                case VALUE:
+                    int position = step.getOffset() + shift;
+                    switch (step.getValueType()) {
+                        case PACKED_DECIMAL:
+                        case BINARY_INT:
+                        case UNSIGNED_BINARY_INT:
+                            for (int j = 0; j < step.getLength(); j++) {
+                                putByte(chars, bytes, position + j, 0);
+                            }
+                            if (step.getValueType() == ValueNode.ValueType.PACKED_DECIMAL)
+                                putByte(chars, bytes, position + step.getLength() - 1, 0x0C);
+                            break;
+                        default:
+                            char fill = step.getValueType() == ValueNode.ValueType.STRING && step.getCounterSlot() < 0 ? ' ' : '0';
+                            for (int j = 0; j < step.getLength(); j++) {
+                                putChar(chars, bytes, position + j, fill, step);
+                            }
+                            if (step.getValueType().isSeparateSign())
+                                putZoned(chars, bytes, position, 0, step);
+                            break;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return the fields of an object, the items of its REDEFINES included
+     */
+    private Map<String, Integer> fieldsOf(int object, int[] objectEnds) {
+        Map<String, Integer> names = new HashMap<>();
+        for (int i = object + 1; i < objectEnds[object]; i++) {
+            Step step = steps[i];
+            switch (step.getKind()) {
+                case OBJECT_START:
+                    names.put(step.getName(), i);
+                    i = objectEnds[i];
+                    break;
+                case ARRAY_START:
+                    names.put(step.getName(), i);
+                    i = step.getEnd();
+                    break;
+                case VALUE:
+                    names.put(step.getName(), i);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return names;
+    }
+
+    private static int[] objectEnds(Step[] steps) {
+        int[] ends = new int[steps.length];
+        int[] opened = new int[steps.length];
+        int depth = 0;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i].getKind() == Step.Kind.OBJECT_START)
+                opened[depth++] = i;
+            else if (steps[i].getKind() == Step.Kind.OBJECT_END)
+                ends[opened[--depth]] = i;
+        }
+        return ends;
+    }
+
+    private String pathOf(int object) {
+        String path = steps[object].getPath();
+        return null == path ? "the record" : path;
+    }
+
+    private static void expect(JsonToken token, JsonToken expected, Step step) {
+        if (token != expected)
+            throw new IllegalArgumentException("Expected " + expected + " for " + step.getPath() + ", not " + token);
+    }
+}
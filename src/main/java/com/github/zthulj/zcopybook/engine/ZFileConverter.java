@@ -0,0 +1,462 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.zthulj.zcopybook.framing.RecordFramer;
+import com.github.zthulj.zcopybook.framing.RecordReader;
+import com.github.zthulj.zcopybook.plan.ByteBufferRecord;
+import com.github.zthulj.zcopybook.plan.DecodeException;
+import com.github.zthulj.zcopybook.plan.PositionalRecord;
+import com.github.zthulj.zcopybook.plan.ZPlan;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Convert a whole file of fixed length records to NDJSON (one json per line).
+ * The input is memory mapped, window by window, and records are read in place : no line reading, no String per record.
+ * Records may be followed by a line separator, detected from the first record (LF or CRLF) unless one is given.
+ * <p>
+ * When an executor is given, the file is split into chunks of whole records, converted concurrently,
+ * and the chunks are written back in the original order.
+ * <p>
+ * Variable length records, from an OCCURS DEPENDING ON, are sliced one after the other by reading their counters,
+ * so they are always converted by the calling thread.
+ * <p>
+ * Records dropped by the filters of the converter are skipped without being converted.
+ * <p>
+ * With a {@link RecordFramer}, the file is read through a channel and sliced by the framer instead :
+ * records with descriptor words (RECFM=V or VB from z/OS), or lines of any length. They are converted by the calling thread,
+ * straight from the read buffer, without a pass to strip the descriptors first.
+ * <p>
+ * A file mixing record layouts is converted by a {@link ZDispatcher} instead of a single converter, with a framer.
+ * <p>
+ * A record that can't be decoded stops the conversion, unless an {@link ErrorSink} is given : it is then rejected,
+ * with its index in the file, and the conversion goes on. A file that can't be sliced into records always stops it.
+ */
+public class ZFileConverter {
+
+    private static final long DEFAULT_MAPPING_WINDOW = 256L * 1024 * 1024;
+    private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final byte[] NO_SEPARATOR = new byte[0];
+
+    /** The converter of the records, null with a dispatcher */
+    @Getter
+    private final ZConverter converter;
+    @Getter
+    private final ZDispatcher dispatcher;
+    private final RecordConversion conversion;
+    private final byte[] lineSeparator;
+    private final long mappingWindow;
+    private final Executor executor;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private final ErrorSink errorSink;
+    private final RecordFramer framer;
+
+    public ZFileConverter(final ZConverter converter) {
+        this(converter, null, null, 0, null, 0, null, null);
+    }
+
+    /**
+     * @param converter the converter to use for each record
+     * @param dispatcher the converters of a file mixing layouts, instead of a converter. It needs a framer.
+     * @param lineSeparator the bytes following each record, empty for none. Detected from the first record when null.
+     * @param mappingWindow the maximum size mapped at once, 256MB by default
+     * @param executor where chunks are converted, for instance a {@link ForkJoinPool}. Records are converted by the calling thread when null.
+     * @param chunkSize the input size of a chunk, rounded to whole records, 1MB by default
+     * @param errorSink where the records that can't be decoded are sent, none by default : the first one stops the conversion
+     * @param framer how records are delimited, for files that aren't memory mapped. The line separator and the executor are then ignored.
+     */
+    @Builder
+    private ZFileConverter(final ZConverter converter, final ZDispatcher dispatcher, final byte[] lineSeparator, final long mappingWindow, final Executor executor, final int chunkSize,
+                           final ErrorSink errorSink, final RecordFramer framer) {
+        if ((null == converter) == (null == dispatcher))
+            throw new IllegalArgumentException("Either a converter or a dispatcher is needed");
+        if (null != dispatcher && null == framer)
+            throw new IllegalArgumentException("A dispatcher needs a framer to slice the records");
+        if (mappingWindow < 0 || mappingWindow > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("mappingWindow must be between 0 and " + Integer.MAX_VALUE);
+        if (chunkSize < 0)
+            throw new IllegalArgumentException("chunkSize can't be negative");
+        this.converter = converter;
+        this.dispatcher = dispatcher;
+        this.conversion = null == converter ? dispatcher : converter;
+        this.lineSeparator = null == lineSeparator ? null : lineSeparator.clone();
+        this.mappingWindow = 0 == mappingWindow ? DEFAULT_MAPPING_WINDOW : mappingWindow;
+        this.executor = executor;
+        this.chunkSize = 0 == chunkSize ? DEFAULT_CHUNK_SIZE : chunkSize;
+        this.maxPendingChunks = 2 * (executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism() : Runtime.getRuntime().availableProcessors());
+        this.errorSink = errorSink;
+        this.framer = framer;
+    }
+
+    /**
+     * Convert a file of positional records to a NDJSON file, written through a buffered channel
+     *
+     * @param input the file of positional records
+     * @param output the NDJSON file, created or replaced
+     * @return the number of records read, the ones dropped by the filters or rejected included
+     * @throws IOException when a file can't be read or written
+     */
+    public long convert(final Path input, final Path output) throws IOException {
+        if (null == input || null == output)
+            throw new IllegalArgumentException("input and output can't be null");
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), OUTPUT_BUFFER_SIZE)) {
+            return convert(input, out);
+        }
+    }
+
+    /**
+     * Convert a file of positional records to NDJSON. The stream is flushed but not closed.
+     *
+     * @param input the file of positional records
+     * @param output where to write the json lines
+     * @return the number of records read, the ones dropped by the filters or rejected included
+     * @throws IOException when the file can't be read or the stream written
+     */
+    public long convert(final Path input, final OutputStream output) throws IOException {
+        if (null == input || null == output)
+            throw new IllegalArgumentException("input and output can't be null");
+
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            if (null != framer)
+                return convert(channel, output);
+            if (converter.getPlan().isVariableLength()) {
+                long records = convertVariableLength(channel, output);
+                output.flush();
+                return records;
+            }
+            Layout layout = layoutOf(channel);
+            if (null == executor)
+                convertSequentially(channel, layout, output);
+            else
+                convertInParallel(channel, layout, output);
+            output.flush();
+            return layout.records;
+        }
+    }
+
+    /**
+     * Convert a stream of positional records to NDJSON, slicing them with the framer, or by their fixed length when there is none.
+     * Neither the channel nor the stream are closed, the stream is flushed.
+     *
+     * @param input where to read the records
+     * @param output where to write the json lines
+     * @return the number of records read, the ones dropped by the filters or rejected included
+     * @throws IOException when the channel can't be read or the stream written
+     */
+    public long convert(final ReadableByteChannel input, final OutputStream output) throws IOException {
+        if (null == input || null == output)
+            throw new IllegalArgumentException("input and output can't be null");
+        RecordFramer recordFramer = framer;
+        if (null == recordFramer) {
+            // without a framer, there is a converter
+            if (converter.getPlan().isVariableLength())
+                throw new IllegalArgumentException("Variable length records can only be read from a channel with a framer");
+            recordFramer = RecordFramer.fixed(converter.getPlan().getRecordLength());
+        }
+
+        RecordReader reader = recordFramer.open(input);
+        try (JsonLines lines = jsonLines(output)) {
+            ByteBufferRecord record = conversion.newByteBufferRecord();
+            while (reader.next(record)) {
+                lines.write(record, reader.getRecords() - 1);
+            }
+        }
+        output.flush();
+        return reader.getRecords();
+    }
+
+    private void convertSequentially(FileChannel channel, Layout layout, OutputStream output) throws IOException {
+        try (JsonLines lines = jsonLines(output)) {
+            ByteBufferRecord record = converter.newByteBufferRecord();
+
+            long recordsPerWindow = Math.max(1, mappingWindow / layout.stride);
+            for (long first = 0; first < layout.records; first += recordsPerWindow) {
+                int count = (int) Math.min(recordsPerWindow, layout.records - first);
+                MappedByteBuffer window = map(channel, layout, first, count);
+                convertRecords(window, 0, count, first, layout, record, lines);
+            }
+        }
+    }
+
+    private long convertVariableLength(FileChannel channel, OutputStream output) throws IOException {
+        ZPlan plan = converter.getPlan();
+        long size = channel.size();
+        long window = Math.max(mappingWindow, plan.getRecordLength() + 2L);
+        byte[] separator = lineSeparator;
+        long records = 0;
+
+        try (JsonLines lines = jsonLines(output)) {
+            ByteBufferRecord record = converter.newByteBufferRecord();
+
+            long position = 0;
+            while (position < size) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(window, size - position));
+                boolean last = position + mapped.limit() == size;
+                int offset = 0;
+                while (offset < mapped.limit()) {
+                    int available = mapped.limit() - offset;
+                    if (!last && available < plan.getRecordLength() + 2)
+                        break;
+                    int length = plan.lengthOf(record.wrap(mapped, offset, Math.min(available, plan.getRecordLength())));
+                    if (length > available)
+                        throw new IllegalArgumentException("Record " + records + " is truncated : " + length + " bytes waited, " + available + " left");
+                    if (null == separator)
+                        separator = detectSeparator(channel, position + offset + length);
+
+                    lines.write(record.wrap(mapped, offset, length), records);
+                    offset = skipSeparator(mapped, offset + length, separator, records++);
+                }
+                position += offset;
+            }
+        }
+        return records;
+    }
+
+    private static int skipSeparator(ByteBuffer window, int offset, byte[] separator, long recordIndex) {
+        if (offset == window.limit())
+            return offset;
+        for (int i = 0; i < separator.length; i++) {
+            if (offset + i >= window.limit() || window.get(offset + i) != separator[i])
+                throw new IllegalArgumentException("Record " + recordIndex + " isn't followed by the line separator");
+        }
+        return offset + separator.length;
+    }
+
+    private void convertInParallel(FileChannel channel, Layout layout, OutputStream output) throws IOException {
+        long recordsPerChunk = Math.max(1, chunkSize / layout.stride);
+        long recordsPerWindow = Math.max(1, mappingWindow / layout.stride / recordsPerChunk) * recordsPerChunk;
+        Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+        try {
+            for (long first = 0; first < layout.records; first += recordsPerWindow) {
+                int count = (int) Math.min(recordsPerWindow, layout.records - first);
+                MappedByteBuffer window = map(channel, layout, first, count);
+
+                for (int from = 0; from < count; from += recordsPerChunk) {
+                    final int chunkFrom = from;
+                    final int chunkCount = (int) Math.min(recordsPerChunk, count - from);
+                    final long chunkFirst = first + from;
+                    pending.add(CompletableFuture.supplyAsync(() -> convertChunk(window, chunkFrom, chunkCount, chunkFirst, layout), executor));
+                    if (pending.size() >= maxPendingChunks)
+                        output.write(await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                output.write(await(pending.poll()));
+            }
+        } finally {
+            for (CompletableFuture<byte[]> chunk : pending) {
+                chunk.cancel(false);
+            }
+        }
+    }
+
+    private byte[] convertChunk(ByteBuffer window, int from, int count, long firstRecord, Layout layout) {
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, 2L * count * layout.recordLength));
+        try (JsonLines lines = jsonLines(chunk)) {
+            convertRecords(window, from, count, firstRecord, layout, converter.newByteBufferRecord(), lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk.toByteArray();
+    }
+
+    private void convertRecords(ByteBuffer window, int from, int count, long firstRecord, Layout layout, ByteBufferRecord record, JsonLines lines) throws IOException {
+        for (int i = from; i < from + count; i++) {
+            int offset = (int) (i * layout.stride);
+            layout.checkSeparator(window, offset, firstRecord + i - from);
+            lines.write(record.wrap(window, offset, layout.recordLength), firstRecord + i - from);
+        }
+    }
+
+    private JsonLines jsonLines(OutputStream output) throws IOException {
+        return null == errorSink ? new JsonLines(output) : new LenientJsonLines(output);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, Layout layout, long firstRecord, int count) throws IOException {
+        long position = firstRecord * layout.stride;
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(count * layout.stride, layout.size - position));
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> chunk) throws IOException {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private Layout layoutOf(FileChannel channel) throws IOException {
+        int recordLength = converter.getPlan().getRecordLength();
+        if (recordLength < 1)
+            throw new IllegalArgumentException("The copybook has no field, records can't be sliced");
+
+        long size = channel.size();
+        byte[] separator = null == lineSeparator ? detectSeparator(channel, recordLength) : lineSeparator;
+        long stride = recordLength + separator.length;
+
+        long records = size / stride;
+        long remaining = size % stride;
+        if (remaining == recordLength)
+            records++;
+        else if (remaining != 0)
+            throw new IllegalArgumentException("File size " + size + " doesn't match records of " + recordLength + " bytes followed by " + separator.length + " separator bytes");
+
+        return new Layout(size, recordLength, separator, stride, records);
+    }
+
+    private static byte[] detectSeparator(FileChannel channel, long recordLength) throws IOException {
+        ByteBuffer afterFirstRecord = ByteBuffer.allocate(2);
+        channel.read(afterFirstRecord, recordLength);
+        afterFirstRecord.flip();
+
+        if (afterFirstRecord.remaining() > 0 && afterFirstRecord.get(0) == '\n')
+            return new byte[]{'\n'};
+        if (afterFirstRecord.remaining() > 1 && afterFirstRecord.get(0) == '\r' && afterFirstRecord.get(1) == '\n')
+            return new byte[]{'\r', '\n'};
+        return NO_SEPARATOR;
+    }
+
+    /**
+     * Write records as json lines into a stream
+     */
+    private class JsonLines implements Closeable {
+        JsonGenerator generator;
+
+        private JsonLines(OutputStream output) throws IOException {
+            this.generator = newGenerator(output);
+        }
+
+        JsonGenerator newGenerator(OutputStream output) throws IOException {
+            JsonGenerator jsonGenerator = conversion.createGenerator(output);
+            jsonGenerator.setRootValueSeparator(null);
+            return jsonGenerator;
+        }
+
+        void write(PositionalRecord record, long index) throws IOException {
+            if (conversion.writeJson(record, generator))
+                generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    /**
+     * Write the json lines through a buffer, the generator being flushed after each record :
+     * the partial json of a rejected record is cut from the buffer, and a new generator goes on from there.
+     */
+    private final class LenientJsonLines extends JsonLines {
+        private final OutputStream output;
+        private final RecordBuffer buffer;
+
+        private LenientJsonLines(OutputStream output) throws IOException {
+            this(output, new RecordBuffer());
+        }
+
+        private LenientJsonLines(OutputStream output, RecordBuffer buffer) throws IOException {
+            super(buffer);
+            this.output = output;
+            this.buffer = buffer;
+        }
+
+        @Override
+        JsonGenerator newGenerator(OutputStream output) throws IOException {
+            return super.newGenerator(output).disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        }
+
+        @Override
+        void write(PositionalRecord record, long index) throws IOException {
+            int mark = buffer.size();
+            record.setLenient(true);
+            try {
+                super.write(record, index);
+                generator.flush();
+            } catch (DecodeException e) {
+                generator.close();
+                buffer.truncate(mark);
+                generator = newGenerator(buffer);
+                errorSink.reject(index, record, e);
+                return;
+            } finally {
+                record.setLenient(false);
+            }
+            if (buffer.size() >= OUTPUT_BUFFER_SIZE) {
+                buffer.writeTo(output);
+                buffer.reset();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            buffer.writeTo(output);
+        }
+    }
+
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        private RecordBuffer() {
+            super(2 * OUTPUT_BUFFER_SIZE);
+        }
+
+        private void truncate(int size) {
+            count = size;
+        }
+    }
+
+    private static final class Layout {
+        private final long size;
+        private final int recordLength;
+        private final byte[] separator;
+        private final long stride;
+        private final long records;
+
+        private Layout(long size, int recordLength, byte[] separator, long stride, long records) {
+            this.size = size;
+            this.recordLength = recordLength;
+            this.separator = separator;
+            this.stride = stride;
+            this.records = records;
+        }
+
+        private void checkSeparator(ByteBuffer window, int offset, long recordIndex) {
+            int separatorStart = offset + recordLength;
+            if (separatorStart == window.limit())
+                return;
+            for (int i = 0; i < separator.length; i++) {
+                if (window.get(separatorStart + i) != separator[i])
+                    throw new IllegalArgumentException("Record " + recordIndex + " isn't followed by the line separator");
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.github.zthulj.zcopybook.engine;
 
 
+import com.github.zthulj.zcopybook.codec.BinaryInteger;
+import com.github.zthulj.zcopybook.codec.PackedDecimal;
 import com.github.zthulj.zcopybook.factory.NodeFactory;
+import com.github.zthulj.zcopybook.metrics.ZMetrics;
 import com.github.zthulj.zcopybook.model.*;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
@@ -11,29 +14,50 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
 
 public final class ZLoader {
 
     private static Logger logger = LoggerFactory.getLogger(ZLoader.class);
 
-    private static final Pattern parentPattern = Pattern.compile("([^ ]*?)( {1})([^ ]*?)");
-    private static final Pattern levelNbPattern = Pattern.compile("([^ ]*?)( {1})(.*?)");
-    private static final Pattern simpleValuePattern = Pattern.compile("([^ ]*?)( {1})([^ ]*?)( {1})([^ ]*?)( {1})([^ ]*)");
-    private static final Pattern parentArrayPattern = Pattern.compile("([^ ]*?)( {1})([^ ]*?)( {1})(OCCURS)( {1})([^ ]*)");
-    private static final Pattern redefineParentPattern = Pattern.compile("([^ ]*?)( {1})([^ ]*?)( {1})(REDEFINES)( {1})([^ ]*)");
-
-    private static final Pattern picX_n_Pattern = Pattern.compile("(X|9)(\\({1})([^\\)]*?)(\\){1})");
-    private static final Pattern picS9_n_v99_Pattern = Pattern.compile("(S9)(\\({1})([^\\)]*?)(\\){1})(V)(9*)");
-    private static final Pattern picS9_n_Pattern = Pattern.compile("(S9)(\\({1})([^\\)]*?)(\\){1})");
-    private static final Pattern picX_pattern = Pattern.compile("X*");
+    private static final int RECORD_LEVEL = 1;
+    private static final int RENAMES_LEVEL = 66;
+    private static final int CONDITION_LEVEL = 88;
+    private static final String REDEFINES = "REDEFINES";
+    private static final String OCCURS = "OCCURS";
+    private static final String TIMES = "TIMES";
+    private static final String TO = "TO";
+    private static final String DEPENDING = "DEPENDING";
+    /* Keys and indexes of a table don't change its layout : the end of the statement is ignored */
+    private static final Set<String> TABLE_CLAUSES = new HashSet<>(Arrays.asList("ASCENDING", "DESCENDING", "KEY", "INDEXED"));
+    private static final String DISPLAY = "DISPLAY";
+    private static final Set<String> IGNORED_CLAUSES = new HashSet<>(Arrays.asList(
+            "SYNC", "SYNCHRONIZED", "JUST", "JUSTIFIED", "RIGHT", "LEFT", "BLANK", "WHEN", "ZERO", "ZEROS", "ZEROES",
+            "SIGN", "IS", "CHARACTER", "GLOBAL", "EXTERNAL"));
+    private static final String LEADING = "LEADING";
+    private static final String TRAILING = "TRAILING";
+    private static final String SEPARATE = "SEPARATE";
+
+    private static final int MAX_LEVEL = 100;
+
+    private final ZMetrics metrics;
 
     class Cursor{
         int cursorPosition;
         ParentNode lastParent;
+        /* The start and name of the last item declared at each level, for the REDEFINES */
+        int[] starts = new int[MAX_LEVEL];
+        String[] names = new String[MAX_LEVEL];
+        Deque<Redefinition> redefinitions = new ArrayDeque<>();
+        String redefined;
 
         public Cursor(ParentNode lastParent) {
             this.lastParent = lastParent;
@@ -41,6 +65,36 @@ public final class ZLoader {
         }
     }
 
+    /**
+     * An item and its redefinitions, all starting at the same position. The group ends with the longest of them.
+     */
+    class Redefinition {
+        final int level;
+        final String redefined;
+        final int start;
+        int end;
+
+        Redefinition(int level, String redefined, int start, int end) {
+            this.level = level;
+            this.redefined = redefined;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    public ZLoader() {
+        this(ZMetrics.NONE);
+    }
+
+    /**
+     * @param metrics where the load time of each copybook is reported
+     */
+    public ZLoader(final ZMetrics metrics) {
+        if (null == metrics)
+            throw new IllegalArgumentException("metrics can't be null");
+        this.metrics = metrics;
+    }
+
     /**
      * Create a zCopybook from the content of a file
      * @param copybook a file containing the copybook format. Will be read with StandardCharsets.UTF_8 charset
@@ -73,170 +127,326 @@ public final class ZLoader {
      * Create a zCopybook from a String
      * @param copybook a String containing the copybook format
      * @return the root node containing the converted copybook
+     * @throws IllegalArgumentException when a field has no picture, or a usage or clause that isn't supported
      */
     public ZCopyBook load(final String copybook) {
 
         if (null == copybook)
             throw new IllegalArgumentException("copybook can't be null !");
 
-        if(logger.isDebugEnabled())
-            logger.debug(String.format("Started the conversion of the copybook : %n[%n%s%n]", copybook));
+        logger.debug("Started the conversion of a copybook of {} chars", copybook.length());
+        logger.trace("Copybook :\n{}", copybook);
 
-        RootNode root = NodeFactory.createRootNode();
-        Cursor cursor = new Cursor(root);
+        if (!metrics.isEnabled())
+            return parse(CopybookTokenizer.tokenize(copybook));
+        long start = System.nanoTime();
+        ZCopyBook zCopyBook = parse(CopybookTokenizer.tokenize(copybook));
+        metrics.copybookLoaded(copybook.length(), System.nanoTime() - start);
+        return zCopyBook;
+    }
+
+    /**
+     * Create a zCopybook per record of a copybook : each 01 level is a record layout of its own, starting at offset 0,
+     * as the records of a file description. A 01 level redefining another one is a layout of its own too.
+     * @param copybook a String containing the copybook format
+     * @return the zCopybook of each 01 level, by name, in the copybook order
+     */
+    public Map<String, ZCopyBook> loadAll(final String copybook) {
+        if (null == copybook)
+            throw new IllegalArgumentException("copybook can't be null !");
 
-       List<String> cleanedCopybook = this.cleanCopybook(copybook);
+        logger.debug("Started the conversion of the records of a copybook of {} chars", copybook.length());
+        logger.trace("Copybook :\n{}", copybook);
 
-        /* WIP : Temporary flags to ignore the redefines */
-        boolean inANodeToIgnore = false;
-        int levelToIgnore = 0;
-        /* End WIP */
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        List<List<String[]>> records = new ArrayList<>();
+        for (String[] statement : CopybookTokenizer.tokenize(copybook)) {
+            if (records.isEmpty() || RECORD_LEVEL == getLevelNb(statement))
+                records.add(new ArrayList<>());
+            records.get(records.size() - 1).add(statement);
+        }
 
-        for (String line : cleanedCopybook) {
-            int levelNb = this.getLevelNbFromLine(line);
+        Map<String, ZCopyBook> copyBooks = new LinkedHashMap<>();
+        for (List<String[]> statements : records) {
+            String[] first = statements.get(0);
+            if (first.length > 3 && REDEFINES.equals(first[2]))
+                statements.set(0, withoutRedefines(first));
+            String name = first.length > 1 ? first[1] : "";
+            if (copyBooks.containsKey(name))
+                throw new IllegalArgumentException("Two records are named " + name);
+            copyBooks.put(name, parse(statements));
+        }
+        if (metrics.isEnabled())
+            metrics.copybookLoaded(copybook.length(), System.nanoTime() - start);
+        return copyBooks;
+    }
 
-            /* WIP : Temporary ignore the redefines */
-            if (inANodeToIgnore && levelNb <= levelToIgnore)
-                inANodeToIgnore = false;
+    private ZCopyBook parse(final List<String[]> statements) {
+        RootNode root = NodeFactory.createRootNode();
+        Cursor cursor = new Cursor(root);
 
-            Matcher redefineParentMatcher = ZLoader.redefineParentPattern.matcher(line);
+        for (String[] statement : statements) {
+            int levelNb = this.getLevelNb(statement);
 
-            if (redefineParentMatcher.matches()) {
-                inANodeToIgnore = true;
-                levelToIgnore = levelNb;
+            if (levelNb == CONDITION_LEVEL) {
+                if (logger.isDebugEnabled())
+                    logger.debug("Ignoring condition : {}", String.join(" ", statement));
+                continue;
             }
-
-            if (inANodeToIgnore) {
-                logger.debug("Ignoring line : {}.", line);
+            if (levelNb == RENAMES_LEVEL) {
+                if (logger.isDebugEnabled())
+                    logger.debug("Ignoring renaming : {}", String.join(" ", statement));
                 continue;
             }
-            /* End WIP */
 
-            this.updateCursorWithCurrentLevelNb(cursor, levelNb);
+            String redefined = statement.length > 3 && REDEFINES.equals(statement[2]) ? statement[3] : null;
+            this.updateCursorWithCurrentLevelNb(cursor, levelNb, redefined);
 
-            boolean handled = this.handleSimpleParent(line,cursor,levelNb);
+            if (null != redefined) {
+                this.startRedefinition(cursor, levelNb, statement);
+                statement = withoutRedefines(statement);
+            } else if (statement.length > 1) {
+                cursor.starts[levelNb] = cursor.cursorPosition;
+                cursor.names[levelNb] = statement[1];
+            }
+            cursor.redefined = redefined;
+
+            boolean handled = this.handleSimpleParent(statement,cursor,levelNb);
 
             if(!handled){
-                handled = this.handleOccursParent(line,cursor,levelNb);
+                handled = this.handleOccursParent(statement,cursor,levelNb);
             }
             if(!handled){
-                this.handleValue(line,cursor);
+                this.handleValue(statement,cursor);
             }
+            cursor.redefined = null;
         }
 
-        if (cursor.lastParent instanceof ParentArrayNode)
-            ((ParentArrayNode) cursor.lastParent).duplicateOccurs(cursor.cursorPosition);
+        this.updateCursorWithCurrentLevelNb(cursor, 0, null);
 
         return ZCopyBook.from(root);
     }
 
-    private List<String> cleanCopybook(final String copybook) {
-        String cleanedLinedCopybook = this.cleanLines(copybook);
-        List<String> cleanedCopybook = new ArrayList<>();
-        for (String field:cleanedLinedCopybook.split("\\.")) {
-            cleanedCopybook.add(field.trim());
+    private int getLevelNb(final String[] statement) {
+        int levelNb;
+        try {
+            levelNb = Integer.parseInt(statement[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid level number " + statement[0] + " in statement " + String.join(" ", statement), e);
         }
-        return cleanedCopybook;
+        if (levelNb < 1 || levelNb >= MAX_LEVEL)
+            throw new IllegalArgumentException("Invalid level number " + statement[0] + " in statement " + String.join(" ", statement));
+        return levelNb;
     }
 
-    private String cleanLines(final String copybook) {
-        StringBuilder builder = new StringBuilder();
-
-        for (String line : copybook.split("\\n")) {
-            if (lineShouldBeAdded(line)) {
-                builder.append(" ").append(line.trim());
+    /**
+     * Close the groups, OCCURS and REDEFINES, ending before a statement of this level, the deepest first
+     */
+    private void updateCursorWithCurrentLevelNb(Cursor cursor, final int levelNb, final String redefined) {
+        while (true) {
+            Redefinition redefinition = cursor.redefinitions.peek();
+            if (null != redefinition && levelNb <= redefinition.level
+                    && (null == cursor.lastParent || redefinition.level > cursor.lastParent.getLevelNumber())) {
+                redefinition.end = Math.max(redefinition.end, cursor.cursorPosition);
+                if (levelNb == redefinition.level && redefinition.redefined.equals(redefined)) {
+                    cursor.cursorPosition = redefinition.start;
+                    return;
+                }
+                cursor.redefinitions.pop();
+                cursor.cursorPosition = redefinition.end;
+            } else if (cursor.lastParent != null && levelNb <= cursor.lastParent.getLevelNumber()) {
+                if (cursor.lastParent instanceof ParentArrayNode)
+                    cursor.cursorPosition = ((ParentArrayNode) cursor.lastParent).duplicateOccurs(cursor.cursorPosition);
+                cursor.lastParent = cursor.lastParent.getParentNode();
+            } else {
+                return;
             }
         }
-        return builder.toString().replaceAll(" +", " ");
     }
 
-    private boolean lineShouldBeAdded(final String line) {
-        boolean shouldBeIgnored =
-                line.trim().startsWith("*") || line.trim().startsWith("88");
-
-        if (shouldBeIgnored) {
-            logger.debug("Ignoring line : {}", line);
-        }
-
-        return !shouldBeIgnored;
+    private void startRedefinition(Cursor cursor, final int levelNb, final String[] statement) {
+        Redefinition current = cursor.redefinitions.peek();
+        if (null != current && current.level == levelNb && current.redefined.equals(statement[3]))
+            return;
+        if (!statement[3].equals(cursor.names[levelNb]))
+            throw new IllegalArgumentException(statement[1] + " must follow the item it redefines : " + String.join(" ", statement));
+        cursor.redefinitions.push(new Redefinition(levelNb, statement[3], cursor.starts[levelNb], cursor.cursorPosition));
+        cursor.cursorPosition = cursor.starts[levelNb];
     }
 
-    private int getLevelNbFromLine(final String line) {
-        Matcher matcher = levelNbPattern.matcher(line);
-        if (!matcher.matches())
-            return 0;
-        return Integer.parseInt(matcher.group(1));
+    private static String[] withoutRedefines(String[] statement) {
+        String[] remaining = new String[statement.length - 2];
+        remaining[0] = statement[0];
+        remaining[1] = statement[1];
+        System.arraycopy(statement, 4, remaining, 2, statement.length - 4);
+        return remaining;
     }
 
-    private void updateCursorWithCurrentLevelNb(Cursor cursor, final int levelNb) {
-        while (cursor.lastParent != null && levelNb <= cursor.lastParent.getLevelNumber()) {
-            if (cursor.lastParent instanceof ParentArrayNode)
-                cursor.cursorPosition = ((ParentArrayNode) cursor.lastParent).duplicateOccurs(cursor.cursorPosition);
-            cursor.lastParent = cursor.lastParent.getParentNode();
-        }
+    private void addChild(Cursor cursor, Node node, String name) {
+        if (null == cursor.redefined)
+            cursor.lastParent.addChild(node, name);
+        else
+            cursor.lastParent.addRedefiningChild(node, name, cursor.redefined);
     }
 
-    private boolean handleSimpleParent(final String line, Cursor cursor, final int levelNb) {
-        Matcher nodeMatcher = parentPattern.matcher(line);
-        if (nodeMatcher.matches()) {
-            ParentNode newParent = NodeFactory.createParentNode(cursor.lastParent, levelNb);
-            cursor.lastParent.addChild(newParent, nodeMatcher.group(3));
-            cursor.lastParent = newParent;
-            return true;
-        }
-        return false;
+    private boolean handleSimpleParent(final String[] statement, Cursor cursor, final int levelNb) {
+        if (statement.length != 2)
+            return false;
+        ParentNode newParent = NodeFactory.createParentNode(cursor.lastParent, levelNb);
+        this.addChild(cursor, newParent, statement[1]);
+        cursor.lastParent = newParent;
+        return true;
     }
 
-    private boolean handleOccursParent(final String line, Cursor cursor, final int levelNb) {
-        Matcher occursMatcher = ZLoader.parentArrayPattern.matcher(line);
-        if (occursMatcher.matches()) {
-            int occursNb = Integer.parseInt(occursMatcher.group(7));
-            ParentNode newParent = NodeFactory.createParentNodeArray(cursor.lastParent, levelNb, occursNb);
-            cursor.lastParent.addChild(newParent, occursMatcher.group(3));
-            cursor.lastParent = newParent;
-            return true;
+    private boolean handleOccursParent(final String[] statement, Cursor cursor, final int levelNb) {
+        if (statement.length < 4 || !OCCURS.equals(statement[2]) || !isInteger(statement[3]))
+            return false;
+
+        int minOccurs = Integer.parseInt(statement[3]);
+        int maxOccurs = minOccurs;
+        String dependingOn = null;
+        int i = 4;
+        if (i + 1 < statement.length && TO.equals(statement[i]) && isInteger(statement[i + 1])) {
+            maxOccurs = Integer.parseInt(statement[i + 1]);
+            i += 2;
         }
-        return false;
+        if (i < statement.length && TIMES.equals(statement[i]))
+            i++;
+        if (i < statement.length && DEPENDING.equals(statement[i])) {
+            if (i + 1 < statement.length && "ON".equals(statement[i + 1]))
+                i++;
+            if (i + 1 >= statement.length)
+                throw new IllegalArgumentException("DEPENDING ON must be followed by a counter : " + String.join(" ", statement));
+            dependingOn = statement[i + 1];
+            i += 2;
+            while (i + 1 < statement.length && ("OF".equals(statement[i]) || "IN".equals(statement[i])))
+                i += 2;
+        }
+        if (i < statement.length && !TABLE_CLAUSES.contains(statement[i]))
+            return false;
+        if (null == dependingOn && minOccurs != maxOccurs)
+            throw new IllegalArgumentException("OCCURS " + minOccurs + " TO " + maxOccurs + " needs a DEPENDING ON counter : " + String.join(" ", statement));
+
+        ParentNode newParent = NodeFactory.createParentNodeArray(cursor.lastParent, levelNb, minOccurs, maxOccurs, dependingOn);
+        this.addChild(cursor, newParent, statement[1]);
+        cursor.lastParent = newParent;
+        return true;
     }
 
-    private void handleValue(final String line, Cursor cursor) {
-        Matcher valueMatcher = ZLoader.simpleValuePattern.matcher(line);
-
-        if (valueMatcher.matches()) {
-            cursor.cursorPosition = addValueNode(cursor.lastParent, cursor.cursorPosition, valueMatcher);
+    private void handleValue(final String[] statement, Cursor cursor) {
+        if (statement.length < 2)
+            return;
+
+        String picture = null;
+        String usage = DISPLAY;
+        boolean leading = false;
+        boolean separate = false;
+
+        if (statement.length == 4 && !isClauseKeyword(statement[2])) {
+            /* Kept from the first loader : the word before the picture is not checked */
+            picture = statement[3];
+        } else {
+            for (int i = 2; i < statement.length; i++) {
+                String token = statement[i];
+                if ("PIC".equals(token) || "PICTURE".equals(token)) {
+                    i = skipIs(statement, i);
+                    picture = statement[i];
+                } else if ("USAGE".equals(token)) {
+                    i = skipIs(statement, i);
+                    usage = statement[i];
+                } else if (isUsage(token)) {
+                    usage = token;
+                } else if ("VALUE".equals(token) || "VALUES".equals(token)) {
+                    i = skipIs(statement, i);
+                } else if (LEADING.equals(token) || TRAILING.equals(token)) {
+                    leading = LEADING.equals(token);
+                } else if (SEPARATE.equals(token)) {
+                    separate = true;
+                } else if (!IGNORED_CLAUSES.contains(token)) {
+                    throw new IllegalArgumentException("Unsupported clause " + token + " for " + statement[1] + " : " + String.join(" ", statement));
+                }
+            }
         }
+
+        if (null == picture)
+            throw new IllegalArgumentException("Missing picture for " + statement[1] + " : " + String.join(" ", statement));
+        cursor.cursorPosition = addValueNode(cursor, cursor.cursorPosition, statement[1], Picture.parse(picture), usage, leading, separate);
     }
 
-    private int addValueNode(ParentNode lastParent, int nextStart, Matcher valueMatcher) {
+    private int addValueNode(Cursor cursor, int nextStart, String name, Picture picture, String usage, boolean leading, boolean separate) {
+        int fieldSize;
+        ValueNode.ValueType type;
+
+        if ((leading || separate) && !(DISPLAY.equals(usage) && picture.isNumeric() && picture.isSigned()))
+            throw new IllegalArgumentException("The SIGN clause needs a signed numeric DISPLAY picture : " + name);
+        if (leading && !separate)
+            throw new IllegalArgumentException("A leading sign must be SEPARATE, an overpunched one isn't supported : " + name);
+
+        if (separate) {
+            fieldSize = picture.getSize() + 1;
+            type = leading ? ValueNode.ValueType.LEADING_SEPARATE_SIGN : ValueNode.ValueType.TRAILING_SEPARATE_SIGN;
+        } else if (DISPLAY.equals(usage)) {
+            fieldSize = picture.getSize();
+            type = ValueNode.ValueType.STRING;
+            if (picture.isNumeric() && picture.isSigned())
+                type = picture.getScale() > 0 ? ValueNode.ValueType.SIGNED_FLOAT : ValueNode.ValueType.SIGNED_INT;
+        } else if (isPacked(usage) && picture.isNumeric()) {
+            fieldSize = PackedDecimal.byteLength(picture.getDigits());
+            type = ValueNode.ValueType.PACKED_DECIMAL;
+        } else if (isBinary(usage) && picture.isNumeric()) {
+            if (picture.getDigits() > BinaryInteger.MAX_DIGITS)
+                throw new IllegalArgumentException("A binary field can't hold more than " + BinaryInteger.MAX_DIGITS + " digits : " + name);
+            fieldSize = BinaryInteger.byteLength(picture.getDigits());
+            type = picture.isSigned() ? ValueNode.ValueType.BINARY_INT : ValueNode.ValueType.UNSIGNED_BINARY_INT;
+        } else {
+            throw new IllegalArgumentException("Unsupported usage " + usage + (picture.isNumeric() ? "" : " for a non numeric picture") + " : " + name);
+        }
 
-        int fieldSize = 0;
-        ValueNode.ValueType type = ValueNode.ValueType.STRING;
+        Node node = NodeFactory.createValueNode(cursor.lastParent, Coordinates.create(nextStart, nextStart + fieldSize), type, picture.getScale());
+        this.addChild(cursor, node, name);
 
-        String dataType = valueMatcher.group(7);
+        return nextStart + fieldSize;
+    }
 
-        Matcher defaultMatcher = ZLoader.picX_n_Pattern.matcher(dataType);
-        Matcher signedIntMatcher = ZLoader.picS9_n_Pattern.matcher(dataType);
-        Matcher signedFloatMatcher = ZLoader.picS9_n_v99_Pattern.matcher(dataType);
-        Matcher picXMatcher = ZLoader.picX_pattern.matcher(dataType);
+    private static int skipIs(String[] statement, int i) {
+        if (i + 1 < statement.length && ("IS".equals(statement[i + 1]) || "ARE".equals(statement[i + 1])))
+            i++;
+        if (i + 1 >= statement.length)
+            throw new IllegalArgumentException(statement[i] + " must be followed by a value : " + String.join(" ", statement));
+        return i + 1;
+    }
 
-        if (defaultMatcher.matches()) {
-            fieldSize = Integer.parseInt(defaultMatcher.group(3));
-        } else if (signedFloatMatcher.matches()) {
-            fieldSize = Integer.parseInt(signedFloatMatcher.group(3)) + signedFloatMatcher.group(6).length();
-            type = ValueNode.ValueType.SIGNED_FLOAT;
-        } else if (signedIntMatcher.matches()) {
-            fieldSize = Integer.parseInt(signedIntMatcher.group(3));
-            type = ValueNode.ValueType.SIGNED_INT;
-        } else if (picXMatcher.matches()) {
-            fieldSize = dataType.length();
+    private static boolean isInteger(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i)))
+                return false;
         }
+        return !token.isEmpty() && token.length() < 10;
+    }
 
-        Node node = NodeFactory.createValueNode(lastParent, Coordinates.create(nextStart, nextStart + fieldSize), type);
-        lastParent.addChild(node, valueMatcher.group(3));
+    private static boolean isClauseKeyword(String token) {
+        return "PIC".equals(token) || "PICTURE".equals(token) || "USAGE".equals(token) || "VALUE".equals(token)
+                || OCCURS.equals(token) || REDEFINES.equals(token) || isUsage(token);
+    }
 
-        nextStart += fieldSize;
-        return nextStart;
+    private static boolean isUsage(String usage) {
+        return DISPLAY.equals(usage) || isPacked(usage) || isBinary(usage)
+                || usage.startsWith("COMP-") || usage.startsWith("COMPUTATIONAL-");
     }
 
+    private static boolean isPacked(String usage) {
+        return "COMP-3".equals(usage) || "COMPUTATIONAL-3".equals(usage) || "PACKED-DECIMAL".equals(usage);
+    }
 
+    private static boolean isBinary(String usage) {
+        switch (usage) {
+            case "COMP": case "COMPUTATIONAL":
+            case "COMP-4": case "COMPUTATIONAL-4":
+            case "COMP-5": case "COMPUTATIONAL-5":
+            case "BINARY":
+                return true;
+            default:
+                return false;
+        }
+    }
 }
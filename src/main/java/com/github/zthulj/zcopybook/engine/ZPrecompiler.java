@@ -0,0 +1,88 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.github.zthulj.zcopybook.plan.PlanFormat;
+import com.github.zthulj.zcopybook.plan.ZPlan;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compile copybook files into plan files, at build time, so that applications read their layouts with {@link PlanFormat}
+ * instead of parsing them at startup.
+ * <p>
+ * Each copybook gives a plan file named after it, with the {@link PlanFormat#EXTENSION} extension instead of its own :
+ * <pre>
+ * java -cp zCopybook.jar com.github.zthulj.zcopybook.engine.ZPrecompiler &lt;output directory&gt; &lt;copybook file or directory&gt;...
+ * </pre>
+ * From a Maven build, run it with the java goal of the exec-maven-plugin, in the generate-resources phase.
+ * The copybooks are read in UTF-8, unless the zcopybook.charset system property gives another charset.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ZPrecompiler {
+
+    private static Logger logger = LoggerFactory.getLogger(ZPrecompiler.class);
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : ZPrecompiler <output directory> <copybook file or directory>...");
+            System.exit(1);
+        }
+        List<Path> copybooks = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            copybooks.add(Paths.get(args[i]));
+        }
+        Charset charset = Charset.forName(System.getProperty("zcopybook.charset", StandardCharsets.UTF_8.name()));
+        int count = precompile(Paths.get(args[0]), copybooks, charset);
+        logger.info("{} copybooks precompiled into {}", count, args[0]);
+    }
+
+    /**
+     * @param output the directory of the plan files, created when missing
+     * @param copybooks the copybook files, or directories whose files are all copybooks
+     * @param charset the charset of the copybook files
+     * @return the number of plan files written
+     * @throws IOException when a file can't be read or written
+     */
+    public static int precompile(final Path output, final List<Path> copybooks, final Charset charset) throws IOException {
+        if (null == output || null == copybooks || null == charset)
+            throw new IllegalArgumentException("output, copybooks and charset can't be null");
+
+        Files.createDirectories(output);
+        ZLoader loader = new ZLoader();
+        int count = 0;
+        for (Path copybook : copybooks) {
+            if (Files.isDirectory(copybook)) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(copybook, Files::isRegularFile)) {
+                    for (Path file : files) {
+                        precompile(loader, file, output, charset);
+                        count++;
+                    }
+                }
+            } else {
+                precompile(loader, copybook, output, charset);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void precompile(ZLoader loader, Path copybook, Path output, Charset charset) throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(copybook.toFile(), charset));
+        String name = copybook.getFileName().toString();
+        int extension = name.lastIndexOf('.');
+        Path planFile = output.resolve((extension > 0 ? name.substring(0, extension) : name) + PlanFormat.EXTENSION);
+        PlanFormat.write(plan, planFile);
+        logger.debug("Copybook {} precompiled into {}", copybook, planFile);
+    }
+}
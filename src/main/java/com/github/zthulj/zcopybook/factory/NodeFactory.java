@@ -23,10 +23,18 @@ public class NodeFactory {
     }
 
     public static <T extends Serializable>  ValueNode<T> createValueNode(ParentNode<T> parent, Coordinates coords, ValueNode.ValueType type) {
-        return new ValueNode(parent, coords, type);
+        return createValueNode(parent, coords, type, 0);
+    }
+
+    public static <T extends Serializable>  ValueNode<T> createValueNode(ParentNode<T> parent, Coordinates coords, ValueNode.ValueType type, int scale) {
+        return new ValueNode(parent, coords, type, scale);
     }
 
     public static <T extends Serializable> ParentArrayNode<T> createParentNodeArray(ParentNode<T> parent, int lvlNumber, int occursNumber) {
         return new ParentArrayNode(parent, lvlNumber, occursNumber);
     }
+
+    public static <T extends Serializable> ParentArrayNode<T> createParentNodeArray(ParentNode<T> parent, int lvlNumber, int minOccurs, int maxOccurs, String dependingOn) {
+        return new ParentArrayNode(parent, lvlNumber, minOccurs, maxOccurs, dependingOn);
+    }
 }
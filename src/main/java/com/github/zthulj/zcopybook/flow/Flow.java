@@ -0,0 +1,54 @@
+package com.github.zthulj.zcopybook.flow;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * The reactive streams interfaces of java.util.concurrent.Flow, for Java 8.
+ * Same names, same methods, same rules : moving to Java 9 or later only means changing the imports.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Flow {
+
+    /** The buffer size used when none is given */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /**
+     * A producer of items, received by subscribers as they request them
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. The methods of a subscriber are called one at a time, never concurrently
+     */
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * The link between a publisher and one of its subscribers
+     */
+    public interface Subscription {
+        /**
+         * @param n the number of items more the subscriber can receive, positive
+         */
+        void request(long n);
+
+        void cancel();
+    }
+
+    /**
+     * A subscriber publishing what it receives, once transformed
+     */
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+}
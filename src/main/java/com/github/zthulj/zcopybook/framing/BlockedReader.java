@@ -0,0 +1,59 @@
+package com.github.zthulj.zcopybook.framing;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+final class BlockedReader extends RecordReader {
+
+    /** The bytes of the current block not read yet */
+    private long blockRemaining;
+
+    BlockedReader(ReadableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+
+    @Override
+    boolean frame() throws IOException {
+        while (0 == blockRemaining) {
+            if (!fill(4)) {
+                if (buffer.hasRemaining())
+                    throw truncated(4);
+                return false;
+            }
+            blockRemaining = blockDescriptor() - 4L;
+        }
+        if (blockRemaining < 4 || !fill(4))
+            throw new IllegalArgumentException("Record " + getRecords() + " has no complete descriptor in its block");
+        int length = buffer.getShort(buffer.position()) & 0xFFFF;
+        if (length > blockRemaining)
+            throw new IllegalArgumentException("Record " + getRecords() + " of " + length + " bytes overflows its block, " + blockRemaining + " bytes left");
+        if (!fill(length))
+            throw truncated(length);
+        int recordLength = recordDescriptor();
+        int start = buffer.position();
+        found(start, recordLength);
+        buffer.position(start + recordLength);
+        blockRemaining -= length;
+        return true;
+    }
+
+    /**
+     * Read the Block Descriptor Word at the buffer position, and move the position after it
+     * @return the block length, its descriptor included
+     */
+    private long blockDescriptor() {
+        int position = buffer.position();
+        long length;
+        if ((buffer.get(position) & 0x80) != 0) {
+            length = buffer.getInt(position) & 0x7FFFFFFFL;
+        } else {
+            length = buffer.getShort(position) & 0xFFFF;
+            if (buffer.getShort(position + 2) != 0)
+                throw new IllegalArgumentException("Block of record " + getRecords() + " has an invalid descriptor");
+        }
+        if (length < 4)
+            throw new IllegalArgumentException("Block of record " + getRecords() + " has an invalid descriptor : length " + length);
+        buffer.position(position + 4);
+        return length;
+    }
+}
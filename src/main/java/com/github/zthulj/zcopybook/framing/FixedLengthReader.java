@@ -0,0 +1,27 @@
+package com.github.zthulj.zcopybook.framing;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+final class FixedLengthReader extends RecordReader {
+
+    private final int recordLength;
+
+    FixedLengthReader(ReadableByteChannel channel, int bufferSize, int recordLength) {
+        super(channel, Math.max(bufferSize, recordLength));
+        this.recordLength = recordLength;
+    }
+
+    @Override
+    boolean frame() throws IOException {
+        if (!fill(recordLength)) {
+            if (buffer.hasRemaining())
+                throw truncated(recordLength);
+            return false;
+        }
+        int start = buffer.position();
+        found(start, recordLength);
+        buffer.position(start + recordLength);
+        return true;
+    }
+}
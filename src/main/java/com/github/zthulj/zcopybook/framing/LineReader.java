@@ -0,0 +1,40 @@
+package com.github.zthulj.zcopybook.framing;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+final class LineReader extends RecordReader {
+
+    LineReader(ReadableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+
+    @Override
+    boolean frame() throws IOException {
+        int scanned = 0;
+        while (true) {
+            int start = buffer.position();
+            for (int i = start + scanned; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    foundLine(start, i);
+                    buffer.position(i + 1);
+                    return true;
+                }
+            }
+            scanned = buffer.remaining();
+            if (!fill(scanned + 1)) {
+                if (!buffer.hasRemaining())
+                    return false;
+                foundLine(buffer.position(), buffer.limit());
+                buffer.position(buffer.limit());
+                return true;
+            }
+        }
+    }
+
+    private void foundLine(int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r')
+            end--;
+        found(start, end - start);
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.zthulj.zcopybook.framing;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+final class RdwReader extends RecordReader {
+
+    RdwReader(ReadableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+
+    @Override
+    boolean frame() throws IOException {
+        if (!fill(4)) {
+            if (buffer.hasRemaining())
+                throw truncated(4);
+            return false;
+        }
+        int length = buffer.getShort(buffer.position()) & 0xFFFF;
+        if (!fill(length))
+            throw truncated(length);
+        int recordLength = recordDescriptor();
+        int start = buffer.position();
+        found(start, recordLength);
+        buffer.position(start + recordLength);
+        return true;
+    }
+}
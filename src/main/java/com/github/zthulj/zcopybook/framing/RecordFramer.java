@@ -0,0 +1,60 @@
+package com.github.zthulj.zcopybook.framing;
+
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * How the records of a file are delimited : by their fixed length, by line separators, or by the descriptor words
+ * of the variable formats of z/OS (RECFM=V and VB), transferred in binary.
+ */
+@FunctionalInterface
+public interface RecordFramer {
+
+    /**
+     * @param channel where to read the records
+     * @param bufferSize the initial size of the reusable buffer
+     * @return a reader of the records of the channel
+     */
+    RecordReader open(ReadableByteChannel channel, int bufferSize);
+
+    /**
+     * @param channel where to read the records
+     * @return a reader of the records of the channel, with a buffer of {@link RecordReader#DEFAULT_BUFFER_SIZE}
+     */
+    default RecordReader open(final ReadableByteChannel channel) {
+        return open(channel, RecordReader.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Records following each other without any separator, as in fixed (RECFM=F) and fixed-blocked (RECFM=FB) files
+     * @param recordLength the length of every record
+     */
+    static RecordFramer fixed(final int recordLength) {
+        if (recordLength < 1)
+            throw new IllegalArgumentException("recordLength must be positive");
+        return (channel, bufferSize) -> new FixedLengthReader(channel, bufferSize, recordLength);
+    }
+
+    /**
+     * Records followed by a line feed, or a carriage return and a line feed. The last one may have none.
+     */
+    static RecordFramer lines() {
+        return LineReader::new;
+    }
+
+    /**
+     * Records each preceded by a 4 bytes Record Descriptor Word, as in variable files (RECFM=V) :
+     * the record length, its descriptor included, on 2 big-endian bytes, then 2 zero bytes.
+     */
+    static RecordFramer rdw() {
+        return RdwReader::new;
+    }
+
+    /**
+     * Blocks of records each preceded by a 4 bytes Block Descriptor Word, as in variable-blocked files (RECFM=VB) :
+     * the block length, its descriptor included, on 2 big-endian bytes then 2 zero bytes, or on 31 bits when the first one is set (large blocks).
+     * Within a block, each record is preceded by its Record Descriptor Word, see {@link #rdw()}.
+     */
+    static RecordFramer blocked() {
+        return BlockedReader::new;
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.zthulj.zcopybook.framing;
+
+import com.github.zthulj.zcopybook.plan.ByteBufferRecord;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Read the records of a channel, one after the other, as slices of a single reusable buffer :
+ * no copy, no array per record. The channel is read by large blocks, and the buffer grows when a record doesn't fit in it.
+ * <p>
+ * A record is only valid until the next one is read. A reader is not thread safe, and closing it closes its channel.
+ */
+public abstract class RecordReader implements Closeable {
+
+    /** The buffer size used when none is given */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    /** The bytes read and not yet framed, from its position to its limit */
+    ByteBuffer buffer;
+    private boolean eof;
+    /** The number of records read */
+    @Getter
+    private long records;
+    private int recordStart;
+    private int recordLength;
+
+    RecordReader(final ReadableByteChannel channel, final int bufferSize) {
+        if (null == channel)
+            throw new IllegalArgumentException("channel can't be null");
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("bufferSize must be positive");
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Read the next record
+     *
+     * @param record the record to wrap on it, from {@link com.github.zthulj.zcopybook.engine.ZConverter#newByteBufferRecord()}
+     * @return false when there is no more record
+     * @throws IOException when the channel can't be read
+     */
+    public final boolean next(final ByteBufferRecord record) throws IOException {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        if (!frame())
+            return false;
+        record.wrap(buffer, recordStart, recordLength);
+        records++;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Find the next record, from the buffer position, and move the position after it
+     * @return false at the end of the channel
+     */
+    abstract boolean frame() throws IOException;
+
+    void found(int start, int length) {
+        recordStart = start;
+        recordLength = length;
+    }
+
+    /**
+     * Make bytes available from the buffer position, reading the channel when needed.
+     * The bytes may be moved to the start of the buffer, or to a bigger one.
+     *
+     * @param size the number of bytes needed
+     * @return false when the channel ends before
+     */
+    boolean fill(int size) throws IOException {
+        if (buffer.remaining() >= size)
+            return true;
+        if (size > buffer.capacity()) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(size, 2 * buffer.capacity()));
+            bigger.put(buffer);
+            buffer = bigger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < size && !eof) {
+            eof = channel.read(buffer) < 0;
+        }
+        buffer.flip();
+        return buffer.remaining() >= size;
+    }
+
+    /**
+     * Read the Record Descriptor Word at the buffer position, and move the position after it
+     * @return the length of the record following it
+     */
+    int recordDescriptor() {
+        int position = buffer.position();
+        int length = buffer.getShort(position) & 0xFFFF;
+        if (buffer.getShort(position + 2) != 0)
+            throw new IllegalArgumentException("Record " + records + " is a segment of a spanned record, which isn't supported");
+        if (length < 4)
+            throw new IllegalArgumentException("Record " + records + " has an invalid descriptor : length " + length);
+        buffer.position(position + 4);
+        return length - 4;
+    }
+
+    IllegalArgumentException truncated(int waited) {
+        return new IllegalArgumentException("Record " + records + " is truncated : " + waited + " bytes waited, " + buffer.remaining() + " left");
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.zthulj.zcopybook.metrics;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keep the measures in memory, by layout, with lock-free counters : enough to find the layouts burning CPU without any metrics library.
+ * Latencies go into a histogram of power of two buckets : bucket i counts the conversions of less than 2^i nanoseconds.
+ * Rates are left to the reader : sample the counters twice and divide by the elapsed time.
+ */
+public class CountingMetrics implements ZMetrics {
+
+    /** The key of the decode errors that aren't on a single field */
+    public static final String WHOLE_RECORD = "<record>";
+
+    private final LongAdder copybooks = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final Map<String, LayoutMetrics> layouts = new ConcurrentHashMap<>();
+
+    @Override
+    public void copybookLoaded(final int chars, final long nanos) {
+        copybooks.increment();
+        loadNanos.add(nanos);
+    }
+
+    @Override
+    public void planCompiled(final String layout, final long nanos) {
+        layout(layout).compileNanos.add(nanos);
+    }
+
+    @Override
+    public void recordConverted(final String layout, final int length, final long nanos) {
+        LayoutMetrics metrics = layout(layout);
+        metrics.records.increment();
+        metrics.bytes.add(length);
+        metrics.nanos.add(nanos);
+        metrics.latencies.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+
+    @Override
+    public void recordFiltered(final String layout, final int length) {
+        LayoutMetrics metrics = layout(layout);
+        metrics.filtered.increment();
+        metrics.bytes.add(length);
+    }
+
+    /**
+     * Count a decode error on a field, or under {@link #WHOLE_RECORD} when it isn't on a single field
+     */
+    @Override
+    public void decodeError(final String layout, final String field) {
+        layout(layout).decodeErrors.computeIfAbsent(null == field ? WHOLE_RECORD : field, f -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void occursExpanded(final String layout, final String array, final int occurrences) {
+        LayoutMetrics metrics = layout(layout);
+        metrics.occurrences.computeIfAbsent(array, a -> new LongAdder()).add(occurrences);
+    }
+
+    public long getCopybooks() {
+        return copybooks.sum();
+    }
+
+    public long getLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    /**
+     * @return the measures of each layout, by name
+     */
+    public Map<String, LayoutMetrics> getLayouts() {
+        return Collections.unmodifiableMap(layouts);
+    }
+
+    /**
+     * @param layout the layout name
+     * @return its measures, empty when nothing was measured yet
+     */
+    public LayoutMetrics getLayout(final String layout) {
+        return layout(layout);
+    }
+
+    private LayoutMetrics layout(String layout) {
+        LayoutMetrics metrics = layouts.get(layout);
+        return null != metrics ? metrics : layouts.computeIfAbsent(layout, l -> new LayoutMetrics());
+    }
+
+    /**
+     * The measures of a single layout
+     */
+    public static final class LayoutMetrics {
+        private final LongAdder records = new LongAdder();
+        private final LongAdder filtered = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder compileNanos = new LongAdder();
+        private final AtomicLongArray latencies = new AtomicLongArray(65);
+        @Getter
+        private final Map<String, LongAdder> decodeErrors = new ConcurrentHashMap<>();
+        /** The total number of occurrences of each OCCURS DEPENDING ON */
+        @Getter
+        private final Map<String, LongAdder> occurrences = new ConcurrentHashMap<>();
+
+        private LayoutMetrics() {
+        }
+
+        /**
+         * @return the number of converted records
+         */
+        public long getRecords() {
+            return records.sum();
+        }
+
+        public long getFiltered() {
+            return filtered.sum();
+        }
+
+        /**
+         * @return the size of the converted and filtered records
+         */
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        /**
+         * @return the total time spent converting records
+         */
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        public long getCompileNanos() {
+            return compileNanos.sum();
+        }
+
+        /**
+         * @param bucket from 0 to 64
+         * @return the number of conversions that took less than 2^bucket nanoseconds, and at least 2^(bucket-1)
+         */
+        public long getLatencies(final int bucket) {
+            return latencies.get(bucket);
+        }
+
+        /**
+         * @param field the json path of a field, or {@link #WHOLE_RECORD}
+         * @return the number of records that failed on it
+         */
+        public long getDecodeErrors(final String field) {
+            LongAdder errors = decodeErrors.get(field);
+            return null == errors ? 0 : errors.sum();
+        }
+    }
+}
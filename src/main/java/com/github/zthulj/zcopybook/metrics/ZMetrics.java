@@ -0,0 +1,74 @@
+package com.github.zthulj.zcopybook.metrics;
+
+/**
+ * Receive the measures of the library : implement the methods of interest, to forward them to Micrometer, Dropwizard...
+ * Layouts are named by the converter, the name of their 01 level by default.
+ * <p>
+ * Methods are called by the converting threads, concurrently : implementations must be thread safe and fast.
+ * Nothing is measured, not even the time, with {@link #NONE}, the default everywhere.
+ */
+public interface ZMetrics {
+
+    /** The field of the decode errors of records whose length isn't the one of their layout */
+    String RECORD_LENGTH = "<length>";
+
+    /** Measures nothing */
+    ZMetrics NONE = new ZMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @return false to skip the measures altogether
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @param chars the size of the copybook
+     * @param nanos the time spent parsing it
+     */
+    default void copybookLoaded(int chars, long nanos) {
+    }
+
+    /**
+     * @param layout the layout name
+     * @param nanos the time spent configuring the plan of a converter, and generating its class when compiled
+     */
+    default void planCompiled(String layout, long nanos) {
+    }
+
+    /**
+     * @param layout the layout name
+     * @param length the record size, in chars or bytes
+     * @param nanos the time spent converting it
+     */
+    default void recordConverted(String layout, int length, long nanos) {
+    }
+
+    /**
+     * @param layout the layout name
+     * @param length the size of the record dropped by the filters
+     */
+    default void recordFiltered(String layout, int length) {
+    }
+
+    /**
+     * @param layout the layout name
+     * @param field the json path of the field that can't be decoded, {@link #RECORD_LENGTH} for a record of the wrong length,
+     *              null when the failure isn't on a single field
+     */
+    default void decodeError(String layout, String field) {
+    }
+
+    /**
+     * @param layout the layout name
+     * @param array the json path of an OCCURS DEPENDING ON
+     * @param occurrences its number of occurrences in a converted record
+     */
+    default void occursExpanded(String layout, String array, int occurrences) {
+    }
+}
@@ -18,4 +18,9 @@ public abstract class Node<T extends Serializable> implements Serializable {
     public abstract int copyInto(ParentNode<T> destination, int cursorPosition, String name);
     public abstract List<ValueNode<T>> getAllValueNodes();
 
+    /**
+     * @return the number of positions covered by this node, without building the OCCURS
+     */
+    public abstract int size();
+
 }
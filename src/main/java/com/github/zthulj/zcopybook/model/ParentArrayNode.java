@@ -3,6 +3,7 @@ package com.github.zthulj.zcopybook.model;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.github.zthulj.zcopybook.factory.NodeFactory;
 import com.github.zthulj.zcopybook.serializer.ParentArrayNodeSerializer;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
@@ -10,71 +11,139 @@ import lombok.ToString;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
-@EqualsAndHashCode(callSuper=true)
+/**
+ * An OCCURS group, kept as a single template (the first occurrence) repeated occursNumber times with a stride.
+ * The other occurrences only exist as nodes when {@link #getChildArray()} is called, for the tree serialization.
+ * <p>
+ * An OCCURS DEPENDING ON holds between minOccurs and occursNumber occurrences, the actual number being read,
+ * record by record, from the dependingOn counter. Its size is the one of the maximum number of occurrences.
+ */
+@EqualsAndHashCode(callSuper=true, exclude="elements")
 @Getter
 @JsonSerialize(using = ParentArrayNodeSerializer.class)
-@ToString
+@ToString(exclude="elements")
 public class ParentArrayNode<T extends Serializable> extends ParentNode<T> {
 
-	private static final long serialVersionUID = 943387055163029210L;
+	private static final long serialVersionUID = -2186429815502367340L;
 
-	private final ParentNode<T>[] childArray;
+    private final ParentNode<T> template;
+    private final int occursNumber;
+    private final int minOccurs;
+    private final String dependingOn;
+    @Getter(AccessLevel.NONE)
+    private int stride = -1;
+    @Getter(AccessLevel.NONE)
+    private int templateStart;
+    @Getter(AccessLevel.NONE)
+    private transient volatile ParentNode<T>[] elements;
 
     public ParentArrayNode(ParentNode<T> parent, int levelNumber, int occursNumber) {
+        this(parent, levelNumber, occursNumber, occursNumber, null);
+    }
+
+    /**
+     * @param minOccurs the minimum number of occurrences, ignored without counter
+     * @param occursNumber the maximum number of occurrences
+     * @param dependingOn the name of the field holding the actual number of occurrences, null for a fixed OCCURS
+     */
+    public ParentArrayNode(ParentNode<T> parent, int levelNumber, int minOccurs, int occursNumber, String dependingOn) {
         super(parent, null, levelNumber);
         if (occursNumber < 1)
             throw new IllegalArgumentException("OccursNumber can't be less than 1");
-        childArray = new ParentNode[occursNumber];
-        for (int i = 0; i < occursNumber; i++) {
-            childArray[i] = NodeFactory.createParentNode(parent, levelNumber);
-        }
+        if (minOccurs < 0 || minOccurs > occursNumber)
+            throw new IllegalArgumentException("minOccurs must be between 0 and " + occursNumber);
+        this.occursNumber = occursNumber;
+        this.minOccurs = null == dependingOn ? occursNumber : minOccurs;
+        this.dependingOn = dependingOn;
+        this.template = NodeFactory.createParentNode(parent, levelNumber);
     }
 
     /**
-     * Will populate all the data in registered in the first occurs (0) in the following.
+     * Close the template : the following occurrences are not copied, only their position is computed.
      *
-     * @param nextStart the current cursor position when creating the substrings
+     * @param nextStart the current cursor position, at the end of the template
      * @return the modified nextStart after all the occurs traitment
      */
     public int duplicateOccurs(int nextStart) {
-        ParentNode<T> model = this.childArray[0];
-        for (int i = 1; i < this.childArray.length ; i++) {
-            for(Map.Entry<String,Node<T>> entry : model.getChilds().entrySet()){
-                nextStart = entry.getValue().copyInto(this.childArray[i], nextStart, entry.getKey());
+        this.stride = template.size();
+        this.templateStart = nextStart - stride;
+        this.elements = null;
+        return nextStart + (occursNumber - 1) * stride;
+    }
+
+    /**
+     * @return true when the number of occurrences is read from a counter
+     */
+    public boolean isDependingOn() {
+        return null != dependingOn;
+    }
+
+    /**
+     * @return the size of one occurrence
+     */
+    public int getStride() {
+        return stride >= 0 ? stride : template.size();
+    }
+
+    /**
+     * @return every occurrence, the first one being the template. The others are built on the first call.
+     */
+    public ParentNode<T>[] getChildArray() {
+        ParentNode<T>[] current = elements;
+        if (null == current) {
+            synchronized (this) {
+                current = elements;
+                if (null == current) {
+                    current = buildOccurrences();
+                    elements = current;
+                }
             }
         }
-        return nextStart;
+        return current;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ParentNode<T>[] buildOccurrences() {
+        ParentNode<T>[] occurrences = new ParentNode[occursNumber];
+        occurrences[0] = template;
+        for (int i = 1; i < occursNumber; i++) {
+            occurrences[i] = NodeFactory.createParentNode(getParentNode(), getLevelNumber());
+            if (stride >= 0)
+                template.copyChildsInto(occurrences[i], templateStart + i * stride);
+        }
+        return occurrences;
     }
 
     @Override
     public int copyInto(ParentNode<T> destination, int cursorPosition, String name) {
-        ParentArrayNode<T> newParentArray = NodeFactory.createParentNodeArray(destination,this.getLevelNumber(),this.childArray.length);
+        ParentArrayNode<T> newParentArray = NodeFactory.createParentNodeArray(destination,this.getLevelNumber(),this.minOccurs,this.occursNumber,this.dependingOn);
         destination.addChild(newParentArray,name);
-        for(int i = 0; i < getChildArray().length; i++){
-            cursorPosition = copyChild(cursorPosition, getChildArray()[i], newParentArray.getChildArray()[i]);
-        }
-        return cursorPosition;
+        return newParentArray.duplicateOccurs(template.copyChildsInto(newParentArray.template, cursorPosition));
     }
 
-    private int copyChild(int cursorPosition, ParentNode<T> source, ParentNode<T> destination) {
-        for (Map.Entry<String, Node<T>> childEntry : source.getChilds().entrySet()) {
-            cursorPosition = childEntry.getValue().copyInto(destination,cursorPosition,childEntry.getKey());
-        }
-        return cursorPosition;
+    @Override
+    public void addChild(Node<T> node, String nodeName) {
+        this.template.addChild(node,nodeName);
+        this.elements = null;
     }
 
     @Override
-    public void addChild(Node<T> node, String nodeName) {
-        this.childArray[0].addChild(node,nodeName);
+    public void addRedefiningChild(Node<T> node, String nodeName, String redefined) {
+        this.template.addRedefiningChild(node, nodeName, redefined);
+        this.elements = null;
+    }
+
+    @Override
+    public int size() {
+        return occursNumber * getStride();
     }
 
     @Override
     public List<ValueNode<T>> getAllValueNodes() {
         List<ValueNode<T>> allValueNodes = new ArrayList<>();
-        for (int i = 0; i < childArray.length; i++) {
-            allValueNodes.addAll(childArray[i].getAllValueNodes());
+        for (ParentNode<T> occurrence : getChildArray()) {
+            allValueNodes.addAll(occurrence.getAllValueNodes());
         }
         return allValueNodes;
     }
@@ -9,18 +9,27 @@ import lombok.ToString;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * A group. A child redefining another one is kept as an alternative view over the same positions :
+ * it doesn't add to the size, and it is neither serialized nor listed in the value nodes.
+ */
 @EqualsAndHashCode(callSuper=true)
 @Getter
 @JsonSerialize(using = ParentNodeSerializer.class)
 @ToString
 public class ParentNode<T extends Serializable> extends Node<T> {
 
-	private static final long serialVersionUID = -7011113266458098086L;
+	private static final long serialVersionUID = 4826106795520471193L;
 	private final Map<String,Node<T>> childs;
     private final int levelNumber;
+    /** The redefined child of each redefining child */
+    private Map<String,String> redefines = Collections.emptyMap();
 
 
     public ParentNode(ParentNode<T> parent, Map<String,Node<T>> childs, int levelNumber) {
@@ -33,14 +42,55 @@ public class ParentNode<T extends Serializable> extends Node<T> {
         this.getChilds().put(getFinalName(name),child);
     }
 
+    /**
+     * Add a child redefining a previous one
+     * @param child the alternative view
+     * @param name the child name
+     * @param redefined the name of the redefined child
+     */
+    public void addRedefiningChild(Node<T> child, String name, String redefined) {
+        if (!getChilds().containsKey(redefined) || isRedefining(redefined))
+            throw new IllegalArgumentException(name + " can't redefine " + redefined + ", not a previous child at the same level");
+        String finalName = getFinalName(name);
+        this.getChilds().put(finalName, child);
+        if (redefines.isEmpty())
+            redefines = new HashMap<>();
+        redefines.put(finalName, redefined);
+    }
+
+    /**
+     * @param name a child name
+     * @return true when the child redefines a previous one
+     */
+    public boolean isRedefining(String name) {
+        return redefines.containsKey(name);
+    }
+
     @Override
     public int copyInto(ParentNode<T> destination, int cursorPosition, String name) {
         ParentNode<T> current = NodeFactory.createParentNode(destination,this.levelNumber);
         destination.addChild(current,name);
+        return copyChildsInto(current, cursorPosition);
+    }
+
+    /**
+     * Copy the children, the redefining ones starting where their redefined child starts
+     * @return the position after the last child
+     */
+    protected int copyChildsInto(ParentNode<T> destination, int cursorPosition) {
+        Map<String, Integer> starts = new HashMap<>();
+        int end = cursorPosition;
         for (Map.Entry<String, Node<T>> childEntry : getChilds().entrySet()) {
-            cursorPosition = childEntry.getValue().copyInto(current,cursorPosition,childEntry.getKey());
+            String redefined = redefines.get(childEntry.getKey());
+            int start = null == redefined ? end : starts.get(redefined);
+            if (null == redefined)
+                starts.put(childEntry.getKey(), start);
+            int childEnd = childEntry.getValue().copyInto(destination, start, childEntry.getKey());
+            end = null == redefined ? childEnd : Math.max(end, childEnd);
         }
-        return cursorPosition;
+        if (!redefines.isEmpty())
+            destination.redefines = new HashMap<>(redefines);
+        return end;
     }
 
     private String getFinalName(String nodeName) {
@@ -51,10 +101,35 @@ public class ParentNode<T extends Serializable> extends Node<T> {
         return name;
     }
 
+    @Override
+    public int size() {
+        if (redefines.isEmpty()) {
+            int size = 0;
+            for (Node<T> child : childs.values()) {
+                size += child.size();
+            }
+            return size;
+        }
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        childs.forEach((k,v) -> sizes.merge(redefines.getOrDefault(k, k), v.size(), Math::max));
+        return sizes.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return the children, without the redefining ones
+     */
+    public Map<String,Node<T>> getDefaultChilds() {
+        if (redefines.isEmpty())
+            return childs;
+        Map<String,Node<T>> defaultChilds = new LinkedHashMap<>(childs);
+        defaultChilds.keySet().removeAll(redefines.keySet());
+        return defaultChilds;
+    }
+
     @Override
     public List<ValueNode<T>> getAllValueNodes() {
         List<ValueNode<T>> allValueNodes = new ArrayList<>();
-        childs.forEach((k,v)->allValueNodes.addAll(v.getAllValueNodes()));
+        getDefaultChilds().forEach((k,v)->allValueNodes.addAll(v.getAllValueNodes()));
         return allValueNodes;
     }
  }
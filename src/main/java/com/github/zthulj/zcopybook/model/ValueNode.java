@@ -24,21 +24,37 @@ public final class ValueNode<T extends Serializable> extends Node<T> {
 	private T value;
     private final Coordinates coordinates;
     private final ValueType valueType;
+    /** Number of digits after the implied decimal point (V), 0 for integers and strings */
+    private final int scale;
 
     public enum ValueType{
-        STRING, SIGNED_INT, SIGNED_FLOAT
+        STRING, SIGNED_INT, SIGNED_FLOAT, PACKED_DECIMAL, BINARY_INT, UNSIGNED_BINARY_INT,
+        /** Zoned decimals with SIGN LEADING SEPARATE or SIGN TRAILING SEPARATE : the + or - takes one more char */
+        LEADING_SEPARATE_SIGN, TRAILING_SEPARATE_SIGN;
+
+        /**
+         * @return true for a zoned decimal with a separate sign char
+         */
+        public boolean isSeparateSign() {
+            return this == LEADING_SEPARATE_SIGN || this == TRAILING_SEPARATE_SIGN;
+        }
     }
 
     public ValueNode(ParentNode<T> parent,Coordinates coordinates, ValueType valueType){
+        this(parent, coordinates, valueType, 0);
+    }
+
+    public ValueNode(ParentNode<T> parent,Coordinates coordinates, ValueType valueType, int scale){
         super(parent, false);
         this.coordinates = coordinates;
         this.valueType = valueType;
+        this.scale = scale;
     }
 
     @Override
     public int copyInto(ParentNode<T> destination, int cursorPosition, String name) {
         Coordinates nextCoords = calculateCoordinates(this, cursorPosition);
-        ValueNode<T> valueNode = NodeFactory.createValueNode(destination,nextCoords,this.valueType);
+        ValueNode<T> valueNode = NodeFactory.createValueNode(destination,nextCoords,this.valueType,this.scale);
         destination.addChild(valueNode,name);
         cursorPosition += nextCoords.getSize();
         return cursorPosition;
@@ -48,6 +64,11 @@ public final class ValueNode<T extends Serializable> extends Node<T> {
         return Coordinates.create(nextStart, nextStart + value.getCoordinates().getSize());
     }
 
+    @Override
+    public int size() {
+        return coordinates.getSize();
+    }
+
     @Override
     public List<ValueNode<T>> getAllValueNodes() {
         return Collections.singletonList(this);
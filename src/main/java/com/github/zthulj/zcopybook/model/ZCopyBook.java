@@ -19,11 +19,20 @@ public final class ZCopyBook<T extends Serializable> {
     private int waitedLength;
 
     public static <T extends Serializable> ZCopyBook<T> from(RootNode<T> rootNodeCopybook){
-        List<ValueNode<T>> allValueNodes = new ArrayList<>();
-        rootNodeCopybook.getChilds().forEach(
-                (k,v) -> allValueNodes.addAll(v.getAllValueNodes())
-        );
-        final int waited = allValueNodes.stream().mapToInt(e->e.getCoordinates().getSize()).sum();
-        return new ZCopyBook<>(rootNodeCopybook,allValueNodes, waited);
+        return new ZCopyBook<>(rootNodeCopybook, null, rootNodeCopybook.size());
+    }
+
+    /**
+     * @return every value node, each occurrence of the OCCURS included. They are built on the first call.
+     */
+    public synchronized List<ValueNode<T>> getValueNodes() {
+        if (null == valueNodes) {
+            List<ValueNode<T>> allValueNodes = new ArrayList<>();
+            rootNode.getChilds().forEach(
+                    (k,v) -> allValueNodes.addAll(v.getAllValueNodes())
+            );
+            valueNodes = allValueNodes;
+        }
+        return valueNodes;
     }
 }
@@ -0,0 +1,78 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.github.zthulj.zcopybook.codec.TextDecoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+
+/**
+ * A record read from the remaining bytes of a buffer (heap, direct or mapped).
+ * The buffer position and limit are never modified.
+ */
+public final class ByteBufferRecord extends PositionalRecord {
+
+    private final TextDecoder textDecoder;
+    private final CharsetDecoder charsetDecoder;
+    private ByteBuffer buffer;
+    private int start;
+    private int length;
+    private ByteBuffer view;
+
+    public ByteBufferRecord(final TextDecoder textDecoder) {
+        this.textDecoder = textDecoder;
+        this.charsetDecoder = textDecoder.isSingleByte() ? null : textDecoder.newCharsetDecoder();
+    }
+
+    public ByteBufferRecord wrap(final ByteBuffer buffer) {
+        return wrap(buffer, buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * @param buffer the buffer holding the record
+     * @param offset absolute index of the first byte of the record
+     * @param length the record size
+     * @return this record
+     */
+    public ByteBufferRecord wrap(final ByteBuffer buffer, final int offset, final int length) {
+        if (this.buffer != buffer)
+            this.view = null;
+        this.buffer = buffer;
+        this.start = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int decode(int offset, int length, char[] destination) {
+        if (null == charsetDecoder)
+            return textDecoder.decode(buffer, start + offset, length, destination);
+
+        if (null == view)
+            view = buffer.duplicate();
+        view.clear();
+        view.limit(start + offset + length).position(start + offset);
+        return textDecoder.decode(view, destination, charsetDecoder);
+    }
+
+    @Override
+    int compareText(int offset, int length, char[] value, int count, char[] buffer) {
+        if (null != charsetDecoder)
+            return super.compareText(offset, length, value, count, buffer);
+        for (int i = 0; i < count; i++) {
+            char c = textDecoder.decode(this.buffer.get(start + offset + i) & 0xFF);
+            if (c != value[i])
+                return c - value[i];
+        }
+        return 0;
+    }
+
+    @Override
+    public int byteAt(int offset) {
+        return buffer.get(start + offset) & 0xFF;
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.github.zthulj.zcopybook.codec.TextDecoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+
+/**
+ * A record read from a byte array. Only the bytes of the requested fields are decoded.
+ */
+public final class BytesRecord extends PositionalRecord {
+
+    private final TextDecoder textDecoder;
+    private final CharsetDecoder charsetDecoder;
+    private byte[] bytes;
+    private int start;
+    private int length;
+    private ByteBuffer view;
+
+    public BytesRecord(final TextDecoder textDecoder) {
+        this.textDecoder = textDecoder;
+        this.charsetDecoder = textDecoder.isSingleByte() ? null : textDecoder.newCharsetDecoder();
+    }
+
+    public BytesRecord wrap(final byte[] bytes, final int offset, final int length) {
+        if (this.bytes != bytes)
+            this.view = null;
+        this.bytes = bytes;
+        this.start = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int decode(int offset, int length, char[] destination) {
+        if (null == charsetDecoder)
+            return textDecoder.decode(bytes, start + offset, length, destination);
+
+        if (null == view)
+            view = ByteBuffer.wrap(bytes);
+        view.clear();
+        view.limit(start + offset + length).position(start + offset);
+        return textDecoder.decode(view, destination, charsetDecoder);
+    }
+
+    @Override
+    int compareText(int offset, int length, char[] value, int count, char[] buffer) {
+        if (null != charsetDecoder)
+            return super.compareText(offset, length, value, count, buffer);
+        for (int i = 0; i < count; i++) {
+            char c = textDecoder.decode(bytes[start + offset + i] & 0xFF);
+            if (c != value[i])
+                return c - value[i];
+        }
+        return 0;
+    }
+
+    @Override
+    public int byteAt(int offset) {
+        return bytes[start + offset] & 0xFF;
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.github.zthulj.zcopybook.codec.PackedDecimal;
+import com.github.zthulj.zcopybook.codec.ZonedDecimal;
+import com.github.zthulj.zcopybook.model.ValueNode;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * The values of one field in a {@link ColumnBatch}, one row per record, in primitive arrays.
+ * Numeric fields of up to 18 digits are kept as unscaled longs : the value is the long divided by 10 power scale.
+ * Other fields are text, each row being a slice of a single char pool.
+ * A row is null when its field is not in the record : a missing occurrence, or a branch of a REDEFINES not chosen.
+ * <p>
+ * Unlike the json conversion, which writes a zoned decimal that is not a number as a string, a numeric column has no room
+ * for such a value : {@link ColumnBatch#add(PositionalRecord)} throws a {@link DecodeException} INVALID_NUMBER for it.
+ */
+@Getter
+public final class Column {
+
+    private final String name;
+    private final ValueNode.ValueType valueType;
+    private final int scale;
+    private final boolean text;
+    @Getter(AccessLevel.NONE)
+    private final Step step;
+    /** The unscaled values, null for a text column */
+    private final long[] longs;
+    /** The text pool, null for a numeric column */
+    private final char[] chars;
+    @Getter(AccessLevel.NONE)
+    private final int width;
+    @Getter(AccessLevel.NONE)
+    private final int[] lengths;
+    @Getter(AccessLevel.NONE)
+    private final boolean[] present;
+
+    Column(String name, Step step, int capacity) {
+        this.name = name;
+        this.valueType = step.getValueType();
+        this.scale = step.getScale();
+        this.step = step;
+        this.text = textOf(step);
+        this.width = text ? step.maxChars() : 0;
+        this.longs = text ? null : new long[capacity];
+        this.chars = text ? new char[capacity * width] : null;
+        this.lengths = text ? new int[capacity] : null;
+        this.present = new boolean[capacity];
+    }
+
+    private static boolean textOf(Step step) {
+        switch (step.getValueType()) {
+            case SIGNED_INT:
+            case SIGNED_FLOAT:
+            case LEADING_SEPARATE_SIGN:
+            case TRAILING_SEPARATE_SIGN:
+                return ZPlan.zonedDigits(step) > ZonedDecimal.MAX_DIGITS;
+            case PACKED_DECIMAL:
+                return 2 * step.getLength() - 1 > ZonedDecimal.MAX_DIGITS;
+            case BINARY_INT:
+            case UNSIGNED_BINARY_INT:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    public boolean isNull(final int row) {
+        return !present[row];
+    }
+
+    /**
+     * @return the unscaled value of a numeric row. An unsigned binary field of 8 bytes may not fit and must then be read with {@link Long#toUnsignedString(long)}
+     */
+    public long getLong(final int row) {
+        if (text)
+            throw new IllegalStateException(name + " is a text column");
+        return longs[row];
+    }
+
+    /**
+     * @return the value of a numeric row, scaled
+     */
+    public double getDouble(final int row) {
+        double value = getLong(row);
+        return 0 == scale ? value : value / Math.pow(10, scale);
+    }
+
+    /**
+     * @return where the chars of a text row start in {@link #getChars()}
+     */
+    public int getTextOffset(final int row) {
+        return row * width;
+    }
+
+    /**
+     * @return the number of chars of a text row
+     */
+    public int getTextLength(final int row) {
+        if (!text)
+            throw new IllegalStateException(name + " is a numeric column");
+        return lengths[row];
+    }
+
+    /**
+     * @return the text of a row, null when the row is null. Allocates a String : prefer {@link #getChars()} to read many rows
+     */
+    public String getText(final int row) {
+        if (!present[row])
+            return null;
+        return new String(chars, getTextOffset(row), getTextLength(row));
+    }
+
+    void clear(int row) {
+        present[row] = false;
+    }
+
+    void read(PositionalRecord record, char[] buffer, int offset, int row) {
+        try {
+            readRow(record, buffer, offset, row);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw DecodeException.of(record, step.getPath(), offset, step.getLength(), e);
+        }
+        present[row] = true;
+    }
+
+    private void readRow(PositionalRecord record, char[] buffer, int offset, int row) {
+        if (!text) {
+            long value = ZPlan.readLong(record, buffer, step, offset);
+            boolean binary = valueType == ValueNode.ValueType.BINARY_INT || valueType == ValueNode.ValueType.UNSIGNED_BINARY_INT;
+            if (value == ZonedDecimal.INVALID && !binary)
+                throw DecodeException.of(record, DecodeException.Reason.INVALID_NUMBER, step.getPath(), offset, ZPlan.invalidText(record, buffer, step, offset));
+            longs[row] = value;
+        } else {
+            int length;
+            if (valueType == ValueNode.ValueType.PACKED_DECIMAL) {
+                length = PackedDecimal.toChars(record, offset, step.getLength(), scale, buffer);
+                if (length < 0)
+                    throw DecodeException.of(record, DecodeException.Reason.INVALID_PACKED_DECIMAL, step.getPath(), offset, null);
+            } else {
+                length = record.decode(offset, step.getLength(), buffer);
+            }
+            System.arraycopy(buffer, 0, chars, row * width, length);
+            lengths[row] = length;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.github.zthulj.zcopybook.plan;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of records decoded by a {@link ZPlan} into {@link Column columns}, to feed computations without any json.
+ * There is one column per leaf field and per occurrence : the third PRODUCT of ORDER-LINES is the column ORDER.ORDER-LINES[2].PRODUCT.
+ * Hidden fields of a projected plan have no column.
+ * <p>
+ * All the arrays are allocated once, for the capacity of the batch : add records until it is full, read the columns, then clear it.
+ * As every occurrence has its own columns, a plan can't have more than {@link #MAX_COLUMNS} of them : project the large OCCURS
+ * away with {@link ZPlan#withProjection(java.util.Collection)}, or read them through json.
+ * A batch is not thread safe.
+ */
+public final class ColumnBatch {
+
+    /** The maximum number of columns of a batch, every occurrence of a field counting as one */
+    public static final int MAX_COLUMNS = 10_000;
+
+    private final ZPlan plan;
+    private final Step[] steps;
+    @Getter
+    private final int capacity;
+    /** The column of each value step, or the first column of each array, relative to the first column of their OCCURS element */
+    private final int[] localColumns;
+    /** The number of columns of one element, by array step */
+    private final int[] elementColumns;
+    private final Column[] columns;
+    private final Map<String, Column> columnsByName = new HashMap<>();
+    @Getter
+    private int size;
+
+    private ColumnBatch(ZPlan plan, int capacity) {
+        this.plan = plan;
+        this.steps = plan.getSteps().toArray(new Step[0]);
+        this.capacity = capacity;
+        this.localColumns = new int[steps.length];
+        this.elementColumns = new int[steps.length];
+        this.columns = new Column[(int) layout(0, steps.length)];
+        createColumns(0, steps.length, 0, null, null);
+        for (Column column : columns) {
+            columnsByName.put(column.getName(), column);
+        }
+    }
+
+    /**
+     * @param plan the plan decoding the records
+     * @param capacity the maximum number of records
+     * @return an empty batch
+     * @throws IllegalArgumentException when the plan has more than {@link #MAX_COLUMNS} columns
+     */
+    public static ColumnBatch of(final ZPlan plan, final int capacity) {
+        if (null == plan)
+            throw new IllegalArgumentException("plan can't be null");
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        return new ColumnBatch(plan, capacity);
+    }
+
+    public List<Column> getColumns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    /**
+     * @param name the json path of the field, with the index of each occurrence
+     * @return its column
+     */
+    public Column getColumn(final String name) {
+        Column column = columnsByName.get(name);
+        if (null == column)
+            throw new IllegalArgumentException("Unknown column " + name);
+        return column;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Empty the batch, to fill it again
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Decode a positional line into the next row.
+     * The record length is not checked, it is up to the caller to do it.
+     *
+     * @param record the positional line
+     * @return true when the record was added, false when it is dropped by the filter of the plan
+     */
+    public boolean add(final String record) {
+        return add(new StringRecord().wrap(record));
+    }
+
+    /**
+     * Decode a record into the next row.
+     * The record length is not checked, it is up to the caller to do it.
+     *
+     * @param record the positional record
+     * @return true when the record was added, false when it is dropped by the filter of the plan
+     * @throws DecodeException when a numeric column field is not a number, even if the json conversion would write it as a string
+     */
+    public boolean add(final PositionalRecord record) {
+        if (null == record)
+            throw new IllegalArgumentException("record can't be null");
+        if (isFull())
+            throw new IllegalStateException("The batch is full : " + capacity + " records");
+        if (!plan.accepts(record))
+            return false;
+
+        for (Column column : columns) {
+            column.clear(size);
+        }
+        fill(record, record.buffer(plan.getMaxFieldLength()), record.counters(plan.getCounters()), 0, steps.length, 0, 0);
+        size++;
+        return true;
+    }
+
+    /**
+     * Walk the steps like {@link ZPlan#write(PositionalRecord, com.fasterxml.jackson.core.JsonGenerator)}, reading the values into the columns
+     * @param base the first column of the current OCCURS element
+     * @return the shift after the last step
+     */
+    private int fill(PositionalRecord record, char[] buffer, long[] counters, int from, int to, int shift, int base) {
+        for (int i = from; i < to; i++) {
+            Step step = steps[i];
+            switch (step.getKind()) {
+                case ARRAY_START:
+                    if (step.isHidden()) {
+                        shift = plan.measureArray(record, buffer, counters, i, shift);
+                        i = step.getEnd();
+                        break;
+                    }
+                    int occurs = ZPlan.occursOf(record, step, counters);
+                    for (int occurrence = 0; occurrence < occurs; occurrence++) {
+                        int element = base + localColumns[i] + occurrence * elementColumns[i];
+                        shift = fill(record, buffer, counters, i + 1, step.getEnd(), shift, element) + step.getStride();
+                    }
+                    shift -= step.getOccurs() * step.getStride();
+                    i = step.getEnd();
+                    break;
+                case VALUE:
+                    if (!step.isHidden())
+                        columns[base + localColumns[i]].read(record, buffer, step.getOffset() + shift, size);
+                    if (step.getCounterSlot() >= 0)
+                        counters[step.getCounterSlot()] = ZPlan.readCounter(record, buffer, step, step.getOffset() + shift);
+                    break;
+                case REDEFINES:
+                    int branch = plan.branchOf(record, buffer, i, shift);
+                    fill(record, buffer, counters, step.getBranch(branch), step.getBranchEnd(branch), shift, base);
+                    i = step.getEnd();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return shift;
+    }
+
+    /**
+     * Number the columns of a range of steps, one element of each OCCURS at a time
+     * @return the number of columns of the range, never more than {@link #MAX_COLUMNS}
+     */
+    private long layout(int from, int to) {
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            Step step = steps[i];
+            if (step.getKind() == Step.Kind.ARRAY_START) {
+                localColumns[i] = (int) count;
+                elementColumns[i] = (int) layout(i + 1, step.getEnd());
+                if (!step.isHidden())
+                    count += (long) elementColumns[i] * step.getOccurs();
+                i = step.getEnd();
+            } else if (step.getKind() == Step.Kind.VALUE && !step.isHidden()) {
+                localColumns[i] = (int) count++;
+            }
+            if (count > MAX_COLUMNS)
+                throw new IllegalArgumentException("The plan has more than " + MAX_COLUMNS + " columns, up to " + step.getPath()
+                        + " : project its large OCCURS away to decode it into a batch");
+        }
+        return count;
+    }
+
+    /**
+     * @param arrayPath the path of the enclosing array, null outside of any array
+     * @param elementPath the path of the current element of the enclosing array, with its index
+     */
+    private void createColumns(int from, int to, int base, String arrayPath, String elementPath) {
+        for (int i = from; i < to; i++) {
+            Step step = steps[i];
+            if (step.getKind() == Step.Kind.ARRAY_START) {
+                if (!step.isHidden()) {
+                    String path = columnName(step.getPath(), arrayPath, elementPath);
+                    for (int occurrence = 0; occurrence < step.getOccurs(); occurrence++) {
+                        createColumns(i + 1, step.getEnd(), base + localColumns[i] + occurrence * elementColumns[i],
+                                step.getPath(), path + "[" + occurrence + "]");
+                    }
+                }
+                i = step.getEnd();
+            } else if (step.getKind() == Step.Kind.VALUE && !step.isHidden()) {
+                columns[base + localColumns[i]] = new Column(columnName(step.getPath(), arrayPath, elementPath), step, capacity);
+            }
+        }
+    }
+
+    private static String columnName(String path, String arrayPath, String elementPath) {
+        return null == arrayPath ? path : elementPath + path.substring(arrayPath.length());
+    }
+}
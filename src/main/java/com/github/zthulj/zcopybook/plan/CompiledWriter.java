@@ -0,0 +1,58 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Base class of the writers generated for a {@link ZPlan#compiled() compiled} plan.
+ * The generated code is straight-line : field names, offsets and lengths are constants, only the values go through these helpers.
+ * Public to be extended by the generated classes, which live in their own class loader : not meant to be extended otherwise.
+ */
+public abstract class CompiledWriter {
+
+    private final Step[] steps;
+    private final boolean typedNumbers;
+
+    protected CompiledWriter(final Step[] steps, final boolean typedNumbers) {
+        this.steps = steps;
+        this.typedNumbers = typedNumbers;
+    }
+
+    /**
+     * Write a whole record
+     * @param record the positional record
+     * @param generator where to write the json
+     * @param buffer a scratch buffer, big enough for the longest field
+     * @throws IOException when the generator can't write
+     */
+    public abstract void write(PositionalRecord record, JsonGenerator generator, char[] buffer) throws IOException;
+
+    /**
+     * @param index the step index
+     * @return the step, to read its encoded name once
+     */
+    protected final Step step(final int index) {
+        return steps[index];
+    }
+
+    /**
+     * Write a text value, the step index being only read to report a field that can't be decoded
+     */
+    protected final void writeText(final PositionalRecord record, final JsonGenerator generator, final char[] buffer, final int index, final int offset, final int length) throws IOException {
+        int decoded;
+        try {
+            decoded = record.decode(offset, length, buffer);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw DecodeException.of(record, steps[index].getPath(), offset, length, e);
+        }
+        generator.writeString(buffer, 0, decoded);
+    }
+
+    /**
+     * Write a numeric value, exactly like the interpreted plan
+     */
+    protected final void writeValue(final PositionalRecord record, final JsonGenerator generator, final char[] buffer, final int index, final int offset) throws IOException {
+        ZPlan.writeValue(record, generator, buffer, steps[index], offset, typedNumbers);
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.github.zthulj.zcopybook.codec.ZonedDecimal;
+import com.github.zthulj.zcopybook.model.ValueNode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link Filter} compiled against the steps of a {@link ZPlan}.
+ * Text values are padded to the field size, numbers are unscaled to the field scale, once.
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+final class Condition {
+
+    private static final char[][] NO_TEXT = new char[0][];
+    private static final long[] NO_NUMBER = new long[0];
+
+    final Filter.Kind kind;
+    /** The step index of the field compared, -1 for AND, OR, NOT */
+    final int field;
+    final boolean numeric;
+    final char[][] texts;
+    final long[] numbers;
+    final Condition[] conditions;
+
+    static Condition compile(Filter filter, Step[] steps, int field) {
+        switch (filter.getKind()) {
+            case AND:
+            case OR:
+            case NOT:
+                throw new IllegalStateException("Combined filters are compiled by the plan");
+            default:
+                break;
+        }
+        Step step = steps[field];
+        if (step.getValueType() == ValueNode.ValueType.STRING)
+            return compileText(filter, step, field);
+        if (filter.getKind() == Filter.Kind.PREFIX)
+            throw new IllegalArgumentException("The numeric field " + step.getPath() + " can't be filtered by prefix");
+        if (step.getValueType() != ValueNode.ValueType.PACKED_DECIMAL && ZPlan.zonedDigits(step) > ZonedDecimal.MAX_DIGITS)
+            throw new IllegalArgumentException("The field " + step.getPath() + " is too long to be filtered as a number");
+        return compileNumber(filter, step, field);
+    }
+
+    static Condition combine(Filter.Kind kind, Condition... conditions) {
+        return new Condition(kind, -1, false, NO_TEXT, NO_NUMBER, conditions);
+    }
+
+    /**
+     * @param moved the new index of each step, -1 for a removed one
+     * @return this condition, with the fields moved
+     */
+    Condition move(int[] moved) {
+        Condition[] movedConditions = new Condition[conditions.length];
+        for (int i = 0; i < conditions.length; i++) {
+            movedConditions[i] = conditions[i].move(moved);
+        }
+        return new Condition(kind, field < 0 ? field : moved[field], numeric, texts, numbers, movedConditions);
+    }
+
+    /**
+     * @param needed set to true for the step of each field compared
+     */
+    void markFields(boolean[] needed) {
+        if (field >= 0)
+            needed[field] = true;
+        for (Condition condition : conditions) {
+            condition.markFields(needed);
+        }
+    }
+
+    private static Condition compileText(Filter filter, Step step, int field) {
+        List<String> values = filter.getValues();
+        char[][] texts = new char[values.size()][];
+        for (int i = 0; i < texts.length; i++) {
+            String value = values.get(i);
+            if (value.length() > step.getLength())
+                throw new IllegalArgumentException("The value " + value + " is longer than the field " + step.getPath());
+            if (filter.getKind() == Filter.Kind.PREFIX) {
+                texts[i] = value.toCharArray();
+            } else {
+                texts[i] = Arrays.copyOf(value.toCharArray(), step.getLength());
+                Arrays.fill(texts[i], value.length(), step.getLength(), ' ');
+            }
+        }
+        return new Condition(filter.getKind(), field, false, texts, NO_NUMBER, new Condition[0]);
+    }
+
+    private static Condition compileNumber(Filter filter, Step step, int field) {
+        List<String> values = filter.getValues();
+        long[] numbers = new long[values.size()];
+        int count = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            BigDecimal value = parse(values.get(i), step);
+            if (filter.getKind() == Filter.Kind.BETWEEN) {
+                numbers[count++] = unscaled(value.setScale(step.getScale(), 0 == i ? RoundingMode.CEILING : RoundingMode.FLOOR));
+            } else if (value.stripTrailingZeros().scale() <= step.getScale()) {
+                // A value with more decimals than the field can't be equal to it
+                numbers[count++] = unscaled(value.setScale(step.getScale(), RoundingMode.UNNECESSARY));
+            }
+        }
+        return new Condition(filter.getKind(), field, true, NO_TEXT, Arrays.copyOf(numbers, count), new Condition[0]);
+    }
+
+    private static BigDecimal parse(String value, Step step) {
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The value " + value + " of " + step.getPath() + " is not a number", e);
+        }
+    }
+
+    private static long unscaled(BigDecimal value) {
+        BigDecimal unscaled = new BigDecimal(value.unscaledValue());
+        if (unscaled.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0)
+            return Long.MAX_VALUE;
+        if (unscaled.compareTo(BigDecimal.valueOf(Long.MIN_VALUE + 1)) < 0)
+            return Long.MIN_VALUE + 1;
+        return unscaled.longValue();
+    }
+}
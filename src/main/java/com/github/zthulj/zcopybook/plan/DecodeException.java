@@ -0,0 +1,116 @@
+package com.github.zthulj.zcopybook.plan;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * A record that can't be decoded : an invalid number, a counter out of its OCCURS range, an unknown branch...
+ * <p>
+ * The reason, the field and its offset tell what is wrong in the record, and the message is only built when asked.
+ * The records sent to an error sink are {@link PositionalRecord#isLenient() lenient} : their exceptions have no stack trace,
+ * so rejecting a bad record costs about as much as converting it. The others keep their stack trace, to debug the failure.
+ */
+@Getter
+public class DecodeException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Why a record can't be decoded
+     */
+    public enum Reason {
+        /** The record length isn't the one of its layout */
+        WRONG_LENGTH("Wrong record length"),
+        /** The record ends before a field it should hold */
+        TRUNCATED("The record is too short to hold"),
+        /** A zoned decimal, or a counter, with a character that isn't a digit */
+        INVALID_NUMBER("Invalid number"),
+        /** A packed decimal with an invalid digit or sign nibble */
+        INVALID_PACKED_DECIMAL("Invalid packed decimal"),
+        /** A counter of OCCURS DEPENDING ON out of its range */
+        COUNTER_OUT_OF_RANGE("Counter out of its OCCURS range"),
+        /** A discriminator chose a branch the REDEFINES doesn't have */
+        UNKNOWN_BRANCH("Unknown branch"),
+        /** The type code of a record matches none of the layouts of its file */
+        UNKNOWN_RECORD_TYPE("Unknown record type"),
+        /** A text field the charset can't decode */
+        INVALID_TEXT("Text can't be decoded"),
+        /** The discriminator of a REDEFINES threw on the value of its field */
+        DISCRIMINATOR_FAILED("The discriminator failed");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+    }
+
+    private final Reason reason;
+    /** The json path of the field, null when the whole record is wrong */
+    private final String field;
+    /** Where the field starts in the record, -1 when unknown */
+    private final int offset;
+    /** What was read, null when it isn't text */
+    private final String value;
+    /** False while the super constructor runs, so that the stack trace is only filled when wanted */
+    @Getter(AccessLevel.NONE)
+    private final boolean writableStackTrace;
+
+    public DecodeException(final Reason reason, final String field, final int offset, final String value) {
+        this(reason, field, offset, value, true);
+    }
+
+    /**
+     * @param writableStackTrace false to skip the stack trace, when the exception is sent to an error sink
+     */
+    public DecodeException(final Reason reason, final String field, final int offset, final String value, final boolean writableStackTrace) {
+        super();
+        this.reason = reason;
+        this.field = field;
+        this.offset = offset;
+        this.value = value;
+        this.writableStackTrace = writableStackTrace;
+        if (writableStackTrace)
+            super.fillInStackTrace();
+    }
+
+    /**
+     * @param record the record that can't be decoded, lenient or not
+     * @return the exception, with a stack trace unless the record is lenient
+     */
+    static DecodeException of(final PositionalRecord record, final Reason reason, final String field, final int offset, final String value) {
+        return new DecodeException(reason, field, offset, value, !record.isLenient());
+    }
+
+    /**
+     * @param record the record that can't be decoded, lenient or not
+     * @param length the size of the field
+     * @param cause the failure of the codec reading the field
+     * @return the exception, caused by the failure : the field is truncated when it ends past the record, not decodable otherwise
+     */
+    static DecodeException of(final PositionalRecord record, final String field, final int offset, final int length, final RuntimeException cause) {
+        if (cause instanceof DecodeException)
+            return (DecodeException) cause;
+        boolean truncated = cause instanceof IndexOutOfBoundsException || offset + length > record.length();
+        DecodeException error = of(record, truncated ? Reason.TRUNCATED : Reason.INVALID_TEXT, field, offset, null);
+        error.initCause(cause);
+        return error;
+    }
+
+    @Override
+    public String getMessage() {
+        StringBuilder message = new StringBuilder(reason.description);
+        if (null != field)
+            message.append(" for ").append(field);
+        if (offset >= 0)
+            message.append(" at offset ").append(offset);
+        if (null != value)
+            message.append(" : ").append(value);
+        return message.toString();
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return writableStackTrace ? super.fillInStackTrace() : this;
+    }
+}
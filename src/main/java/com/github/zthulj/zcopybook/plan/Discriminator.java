@@ -0,0 +1,33 @@
+package com.github.zthulj.zcopybook.plan;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.function.Function;
+
+/**
+ * Choose, record by record, which branch of a REDEFINES is decoded, from the value of a field placed before it.
+ * The other branches are skipped, never decoded.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Discriminator {
+
+    private final String field;
+    private final Function<String, String> branch;
+
+    /**
+     * @param field the json path of the field read, for instance RECORD.RECORD-TYPE
+     * @param branch gives the name of the branch to decode from the field value, as read.
+     *               null selects the redefined item.
+     * @return the discriminator
+     */
+    public static Discriminator on(final String field, final Function<String, String> branch) {
+        if (null == field || null == branch)
+            throw new IllegalArgumentException("field and branch can't be null");
+        return new Discriminator(field, branch);
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.zthulj.zcopybook.plan;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A condition on the fields of a record, checked on the raw record before it is converted.
+ * <p>
+ * Values are given as read : text for alphanumeric fields, compared like COBOL does, after padding the value with spaces
+ * to the field size ; decimal numbers for numeric fields (zoned, packed, binary), compared by value.
+ * A numeric field holding an invalid number matches no comparison.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Filter {
+
+    public enum Kind {
+        IN, BETWEEN, PREFIX, AND, OR, NOT
+    }
+
+    private final Kind kind;
+    /** The json path of the field compared, null for AND, OR, NOT */
+    private final String field;
+    private final List<String> values;
+    private final List<Filter> filters;
+
+    /**
+     * @param field the json path of the field, for instance ORDER.STATUS
+     * @param value the value of the field
+     * @return a filter keeping the records whose field is equal to the value
+     */
+    public static Filter equalTo(final String field, final String value) {
+        return in(field, value);
+    }
+
+    /**
+     * @param field the json path of the field
+     * @param values the accepted values
+     * @return a filter keeping the records whose field is equal to one of the values
+     */
+    public static Filter in(final String field, final String... values) {
+        checkValues(field, values);
+        return new Filter(Kind.IN, field, Collections.unmodifiableList(Arrays.asList(values.clone())), Collections.emptyList());
+    }
+
+    /**
+     * @param field the json path of the field
+     * @param low the lowest value, included
+     * @param high the highest value, included
+     * @return a filter keeping the records whose field is between the two values
+     */
+    public static Filter between(final String field, final String low, final String high) {
+        checkValues(field, low, high);
+        return new Filter(Kind.BETWEEN, field, Collections.unmodifiableList(Arrays.asList(low, high)), Collections.emptyList());
+    }
+
+    /**
+     * @param field the json path of an alphanumeric field
+     * @param prefix the first chars of the field
+     * @return a filter keeping the records whose field starts with the prefix
+     */
+    public static Filter startsWith(final String field, final String prefix) {
+        checkValues(field, prefix);
+        return new Filter(Kind.PREFIX, field, Collections.singletonList(prefix), Collections.emptyList());
+    }
+
+    /**
+     * @param other the other filter, checked only when this one matches
+     * @return a filter keeping the records matching both filters
+     */
+    public Filter and(final Filter other) {
+        if (null == other)
+            throw new IllegalArgumentException("other can't be null");
+        return new Filter(Kind.AND, null, Collections.emptyList(), Collections.unmodifiableList(Arrays.asList(this, other)));
+    }
+
+    /**
+     * @param other the other filter, checked only when this one does not match
+     * @return a filter keeping the records matching one of the filters
+     */
+    public Filter or(final Filter other) {
+        if (null == other)
+            throw new IllegalArgumentException("other can't be null");
+        return new Filter(Kind.OR, null, Collections.emptyList(), Collections.unmodifiableList(Arrays.asList(this, other)));
+    }
+
+    /**
+     * @return a filter keeping the records this one drops
+     */
+    public Filter negate() {
+        return new Filter(Kind.NOT, null, Collections.emptyList(), Collections.singletonList(this));
+    }
+
+    private static void checkValues(String field, String... values) {
+        if (null == field)
+            throw new IllegalArgumentException("field can't be null");
+        if (null == values || 0 == values.length)
+            throw new IllegalArgumentException("values can't be null or empty");
+        for (String value : values) {
+            if (null == value)
+                throw new IllegalArgumentException("values can't be null");
+        }
+    }
+}
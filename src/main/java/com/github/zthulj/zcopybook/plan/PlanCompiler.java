@@ -0,0 +1,223 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.zthulj.zcopybook.model.ValueNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generate the java source of a {@link CompiledWriter} from the steps of a plan, and compile it in memory with the JDK compiler.
+ * Each OCCURS is a loop calling the method of its element, long runs of fields are split into methods
+ * small enough to be compiled by the JIT.
+ */
+final class PlanCompiler {
+
+    private static Logger logger = LoggerFactory.getLogger(PlanCompiler.class);
+
+    private static final String PACKAGE = "com.github.zthulj.zcopybook.plan.generated";
+    private static final int VALUES_PER_METHOD = 64;
+    private static final AtomicInteger classes = new AtomicInteger();
+
+    private final Step[] steps;
+    private final List<StringBuilder> methods = new ArrayList<>();
+    private final StringBuilder fields = new StringBuilder();
+    private final StringBuilder constructor = new StringBuilder();
+    private final Set<Integer> names = new HashSet<>();
+
+    private PlanCompiler(Step[] steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * @return the generated writer, null when the JDK compiler is missing or the source can't be compiled
+     */
+    static CompiledWriter compile(Step[] steps, boolean typedNumbers) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (null == compiler) {
+            logger.warn("No java compiler available, running a JRE ? The plan is interpreted");
+            return null;
+        }
+        String className = "Writer" + classes.incrementAndGet();
+        String source = new PlanCompiler(steps).source(className);
+        try {
+            Class<?> writer = compile(compiler, PACKAGE + "." + className, source);
+            return (CompiledWriter) writer.getConstructor(Step[].class, boolean.class).newInstance(steps, typedNumbers);
+        } catch (ReflectiveOperationException | IOException | IllegalStateException e) {
+            logger.warn("The plan can't be compiled, it is interpreted", e);
+            return null;
+        }
+    }
+
+    private String source(String className) {
+        StringBuilder write = newMethod("write");
+        emit(write, 0, steps.length);
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(PACKAGE).append(";\n\n")
+                .append("import com.fasterxml.jackson.core.JsonGenerator;\n")
+                .append("import com.fasterxml.jackson.core.SerializableString;\n")
+                .append("import com.github.zthulj.zcopybook.plan.*;\n\n")
+                .append("public final class ").append(className).append(" extends CompiledWriter {\n")
+                .append(fields)
+                .append("    public ").append(className).append("(Step[] steps, boolean typedNumbers) {\n")
+                .append("        super(steps, typedNumbers);\n")
+                .append(constructor)
+                .append("    }\n")
+                .append("    @Override\n")
+                .append("    public void write(PositionalRecord r, JsonGenerator g, char[] b) throws java.io.IOException {\n")
+                .append("        write(r, g, b, 0);\n")
+                .append("    }\n");
+        for (StringBuilder method : methods) {
+            source.append(method).append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private StringBuilder newMethod(String name) {
+        StringBuilder method = new StringBuilder("    private void ").append(name)
+                .append("(PositionalRecord r, JsonGenerator g, char[] b, int s) throws java.io.IOException {\n");
+        methods.add(method);
+        return method;
+    }
+
+    /**
+     * Emit the steps of a range into a method, the offset of the current OCCURS element being the variable s
+     * @return the method where the following steps go
+     */
+    private StringBuilder emit(StringBuilder method, int from, int to) {
+        int values = 0;
+        for (int i = from; i < to; i++) {
+            Step step = steps[i];
+            if (step.isHidden()) {
+                // Only counters and discriminators are hidden, useless without OCCURS DEPENDING ON nor discriminator
+                if (step.getKind() == Step.Kind.ARRAY_START || step.getKind() == Step.Kind.REDEFINES)
+                    i = step.getEnd();
+                continue;
+            }
+            switch (step.getKind()) {
+                case OBJECT_START:
+                    if (null != step.getName())
+                        method.append("        g.writeFieldName(").append(name(i)).append(");\n");
+                    method.append("        g.writeStartObject();\n");
+                    break;
+                case OBJECT_END:
+                    method.append("        g.writeEndObject();\n");
+                    break;
+                case ARRAY_START:
+                    String element = "a" + i;
+                    method.append("        g.writeFieldName(").append(name(i)).append(");\n")
+                            .append("        g.writeStartArray();\n")
+                            .append("        for (int i = 0; i < ").append(step.getOccurs()).append("; i++) {\n")
+                            .append("            ").append(element).append("(r, g, b, s + i * ").append(step.getStride()).append(");\n")
+                            .append("        }\n")
+                            .append("        g.writeEndArray();\n");
+                    emit(newMethod(element), i + 1, step.getEnd());
+                    i = step.getEnd();
+                    break;
+                case REDEFINES:
+                    method = emit(method, step.getBranch(0), step.getBranchEnd(0));
+                    i = step.getEnd();
+                    break;
+                case VALUE:
+                    if (++values > VALUES_PER_METHOD) {
+                        String next = "v" + i;
+                        method.append("        ").append(next).append("(r, g, b, s);\n");
+                        method = newMethod(next);
+                        values = 1;
+                    }
+                    method.append("        g.writeFieldName(").append(name(i)).append(");\n");
+                    if (step.getValueType() == ValueNode.ValueType.STRING)
+                        method.append("        writeText(r, g, b, ").append(i).append(", s + ").append(step.getOffset()).append(", ").append(step.getLength()).append(");\n");
+                    else
+                        method.append("        writeValue(r, g, b, ").append(i).append(", s + ").append(step.getOffset()).append(");\n");
+                    break;
+                default:
+                    break;
+            }
+        }
+        return method;
+    }
+
+    private String name(int index) {
+        String field = "n" + index;
+        if (names.add(index)) {
+            fields.append("    private final SerializableString ").append(field).append(";\n");
+            constructor.append("        ").append(field).append(" = step(").append(index).append(").getEncodedName();\n");
+        }
+        return field;
+    }
+
+    private static Class<?> compile(JavaCompiler compiler, String className, String source) throws IOException, ClassNotFoundException {
+        Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+        StringWriter errors = new StringWriter();
+        try (JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(compiler.getStandardFileManager(null, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(uri(name, kind), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        classes.put(name, bytes);
+                        return bytes;
+                    }
+                };
+            }
+        }) {
+            JavaFileObject file = new SimpleJavaFileObject(uri(className, JavaFileObject.Kind.SOURCE), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+            List<String> options = Arrays.asList("-classpath", classPath(), "-g:none", "-nowarn");
+            if (!compiler.getTask(errors, fileManager, null, options, null, Collections.singletonList(file)).call())
+                throw new IllegalStateException("Compilation of " + className + " failed : " + errors);
+        }
+
+        ClassLoader loader = new ClassLoader(PlanCompiler.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                ByteArrayOutputStream bytes = classes.get(name);
+                if (null == bytes)
+                    throw new ClassNotFoundException(name);
+                return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+            }
+        };
+        return loader.loadClass(className);
+    }
+
+    /**
+     * The locations of this library and of jackson, which may not be on the class path of an application server
+     */
+    private static String classPath() {
+        Set<String> paths = new LinkedHashSet<>();
+        for (Class<?> type : Arrays.asList(PlanCompiler.class, JsonGenerator.class)) {
+            CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+            if (null == codeSource || null == codeSource.getLocation())
+                continue;
+            try {
+                paths.add(new File(codeSource.getLocation().toURI()).getPath());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                logger.debug("No file for the location of {}", type);
+            }
+        }
+        paths.add(System.getProperty("java.class.path"));
+        return String.join(File.pathSeparator, paths);
+    }
+
+    private static URI uri(String className, JavaFileObject.Kind kind) {
+        return URI.create("string:///" + className.replace('.', '/') + kind.extension);
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.github.zthulj.zcopybook.model.ValueNode;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary format of {@link ZPlan}, to load precompiled layouts at startup : reading a plan is decoding its flat steps,
+ * without parsing the copybook nor building its tree.
+ * <p>
+ * The format starts with the magic number ZPLN and a version, then holds the record lengths, a table of the field names and paths,
+ * and the steps, each one as its kind, name and path indexes, offset, length, type, OCCURS and branches.
+ * <p>
+ * Discriminators and filters hold code : a plan is written without them, and they are added back after reading it.
+ * A compiled plan is written interpreted, call {@link ZPlan#compiled()} after reading it.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PlanFormat {
+
+    /** The extension of the plan files */
+    public static final String EXTENSION = ".zplan";
+
+    private static final int MAGIC = 0x5A504C4E;
+    private static final short VERSION = 1;
+
+    private static final Step.Kind[] KINDS = Step.Kind.values();
+    private static final ValueNode.ValueType[] VALUE_TYPES = ValueNode.ValueType.values();
+
+    /**
+     * Write a plan into a stream. The stream is neither flushed nor closed.
+     *
+     * @param plan the plan, without discriminators nor filters
+     * @param out where to write it
+     * @throws IOException when the stream can't be written
+     */
+    public static void write(final ZPlan plan, final OutputStream out) throws IOException {
+        if (null == plan || null == out)
+            throw new IllegalArgumentException("plan and out can't be null");
+        if (plan.isConfigured())
+            throw new IllegalArgumentException("A plan with discriminators or filters can't be written, add them after reading it");
+
+        List<Step> steps = plan.getSteps();
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Step step : steps) {
+            index(step.getName(), indexes, strings);
+            index(step.getPath(), indexes, strings);
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(plan.getRecordLength());
+        data.writeInt(plan.getMinRecordLength());
+        data.writeInt(plan.getMaxFieldLength());
+        data.writeInt(plan.getCounters());
+        data.writeBoolean(plan.isTypedNumbers());
+        data.writeBoolean(plan.isVariableLength());
+
+        data.writeInt(strings.size());
+        for (String string : strings) {
+            data.writeUTF(string);
+        }
+
+        data.writeInt(steps.size());
+        for (Step step : steps) {
+            data.writeByte(step.getKind().ordinal());
+            data.writeInt(null == step.getName() ? -1 : indexes.get(step.getName()));
+            data.writeInt(null == step.getPath() ? -1 : indexes.get(step.getPath()));
+            data.writeInt(step.getOffset());
+            data.writeInt(step.getLength());
+            data.writeByte(null == step.getValueType() ? -1 : step.getValueType().ordinal());
+            data.writeInt(step.getScale());
+            data.writeInt(step.getOccurs());
+            data.writeInt(step.getStride());
+            data.writeInt(step.getEnd());
+            data.writeInt(step.getMinOccurs());
+            data.writeInt(step.getCounterSlot());
+            data.writeBoolean(step.isDynamic());
+            data.writeBoolean(step.isHidden());
+            data.writeInt(step.getKind() == Step.Kind.REDEFINES ? step.getBranchCount() : -1);
+            for (int branch = 0; branch < step.getBranchCount(); branch++) {
+                data.writeInt(step.getBranch(branch));
+            }
+        }
+    }
+
+    /**
+     * Write a plan into a file
+     *
+     * @param plan the plan, without discriminators nor filters
+     * @param file the file, created or replaced
+     * @throws IOException when the file can't be written
+     */
+    public static void write(final ZPlan plan, final Path file) throws IOException {
+        if (null == file)
+            throw new IllegalArgumentException("file can't be null");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(plan, out);
+        }
+    }
+
+    /**
+     * Read a plan from a stream, up to its last byte. The stream is not closed.
+     *
+     * @param in where to read the plan, buffered
+     * @return the plan, interpreted
+     * @throws IOException when the stream can't be read or doesn't hold a plan of a known version
+     */
+    public static ZPlan read(final InputStream in) throws IOException {
+        if (null == in)
+            throw new IllegalArgumentException("in can't be null");
+
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+            throw new IOException("Not a plan : wrong magic number");
+        short version = data.readShort();
+        if (version != VERSION)
+            throw new IOException("Unknown plan version " + version + ", " + VERSION + " is supported");
+        int recordLength = data.readInt();
+        int minRecordLength = data.readInt();
+        int maxFieldLength = data.readInt();
+        int counters = data.readInt();
+        boolean typedNumbers = data.readBoolean();
+        boolean variableLength = data.readBoolean();
+
+        String[] strings = new String[checkCount(data.readInt())];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = data.readUTF();
+        }
+
+        Step[] steps = new Step[checkCount(data.readInt())];
+        for (int i = 0; i < steps.length; i++) {
+            Step.Kind kind = KINDS[checkIndex(data.readUnsignedByte(), KINDS.length)];
+            String name = string(data.readInt(), strings);
+            String path = string(data.readInt(), strings);
+            int offset = data.readInt();
+            int length = data.readInt();
+            byte valueType = data.readByte();
+            int scale = data.readInt();
+            int occurs = data.readInt();
+            int stride = data.readInt();
+            int end = checkIndex(data.readInt(), steps.length);
+            int minOccurs = data.readInt();
+            int counterSlot = data.readInt();
+            boolean dynamic = data.readBoolean();
+            boolean hidden = data.readBoolean();
+            int branchCount = data.readInt();
+            int[] branches = branchCount < 0 ? null : new int[checkCount(branchCount)];
+            for (int branch = 0; branch < branchCount; branch++) {
+                branches[branch] = checkIndex(data.readInt(), steps.length);
+            }
+            steps[i] = Step.of(kind, name, path, offset, length, valueType < 0 ? null : VALUE_TYPES[checkIndex(valueType, VALUE_TYPES.length)],
+                    scale, occurs, stride, end, minOccurs, counterSlot, dynamic, branches, hidden);
+        }
+        return new ZPlan(steps, recordLength, minRecordLength, maxFieldLength, typedNumbers, variableLength, counters, null, null, null);
+    }
+
+    /**
+     * Read a plan from a file
+     *
+     * @param file the file written by {@link #write(ZPlan, Path)}
+     * @return the plan, interpreted
+     * @throws IOException when the file can't be read or doesn't hold a plan of a known version
+     */
+    public static ZPlan read(final Path file) throws IOException {
+        if (null == file)
+            throw new IllegalArgumentException("file can't be null");
+        return read(new ByteArrayInputStream(Files.readAllBytes(file)));
+    }
+
+    private static void index(String string, Map<String, Integer> indexes, List<String> strings) {
+        if (null != string && !indexes.containsKey(string)) {
+            indexes.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static String string(int index, String[] strings) throws IOException {
+        return index < 0 ? null : strings[checkIndex(index, strings.length)];
+    }
+
+    private static int checkIndex(int index, int size) throws IOException {
+        if (index < 0 || index >= size)
+            throw new IOException("Corrupted plan : index " + index + " out of 0 to " + (size - 1));
+        return index;
+    }
+
+    private static int checkCount(int count) throws IOException {
+        if (count < 0)
+            throw new IOException("Corrupted plan : negative count " + count);
+        return count;
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.github.zthulj.zcopybook.codec.ByteSource;
+
+/**
+ * A positional record read by a {@link ZPlan}.
+ * Implementations are mutable views, meant to be reused record after record by a single thread.
+ */
+public abstract class PositionalRecord implements ByteSource {
+
+    private static final long[] NO_COUNTER = new long[0];
+
+    private char[] buffer = new char[0];
+    private long[] counters = NO_COUNTER;
+    private boolean lenient;
+
+    /**
+     * @return the record size, in chars for a text record or in bytes for a binary one
+     */
+    public abstract int length();
+
+    /**
+     * Decode a text field
+     * @param offset where the field starts
+     * @param length the field size
+     * @param destination where to put the chars, big enough for the field
+     * @return the number of decoded chars
+     */
+    public abstract int decode(int offset, int length, char[] destination);
+
+    @Override
+    public abstract int byteAt(int offset);
+
+    /**
+     * Compare the first chars of a text field with some chars, stopping at the first difference.
+     * This implementation decodes the whole field, padded with spaces.
+     *
+     * @param offset where the field starts
+     * @param length the field size
+     * @param value the chars to compare with
+     * @param count the number of chars compared, at most the field size
+     * @param buffer a scratch buffer, big enough for the field
+     * @return a negative number, zero or a positive number when the field is lower, equal or greater than the value
+     */
+    int compareText(int offset, int length, char[] value, int count, char[] buffer) {
+        int decoded = decode(offset, length, buffer);
+        for (int i = 0; i < count; i++) {
+            char c = i < decoded ? buffer[i] : ' ';
+            if (c != value[i])
+                return c - value[i];
+        }
+        return 0;
+    }
+
+    /**
+     * @return true when the decode errors of this record are sent to an error sink, and thrown without stack trace
+     */
+    public boolean isLenient() {
+        return lenient;
+    }
+
+    public void setLenient(final boolean lenient) {
+        this.lenient = lenient;
+    }
+
+    /**
+     * @param size the minimal size
+     * @return a scratch buffer owned by this record
+     */
+    char[] buffer(int size) {
+        if (buffer.length < size)
+            buffer = new char[size];
+        return buffer;
+    }
+
+    /**
+     * @param size the number of counters
+     * @return the counters of the OCCURS DEPENDING ON, owned by this record
+     */
+    long[] counters(int size) {
+        if (counters.length < size)
+            counters = new long[size];
+        return counters;
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.zthulj.zcopybook.plan;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The lookup table of a file mixing record layouts : the layout of each record, from a type code at a fixed position.
+ * The table is computed once : codes of a single char below 256 index a direct table, longer ones, up to
+ * {@link #MAX_CODE_LENGTH} chars, are packed into a long and found by a binary search. Nothing is allocated per record.
+ * <p>
+ * Codes shorter than the field are padded with spaces, as COBOL pads a PIC X : "H" matches a record holding "H ".
+ * The decoded code is padded the same way, so that a multi-byte charset decoding fewer chars than bytes still matches.
+ */
+public final class RecordTypes {
+
+    public static final int MAX_CODE_LENGTH = 4;
+    /** The index of a code matching no layout */
+    public static final int UNKNOWN = -1;
+
+    private static final int DIRECT_CODES = 256;
+
+    /** Where the type code starts in the records */
+    @Getter
+    private final int offset;
+    /** The size of the type code in the records */
+    @Getter
+    private final int length;
+    /** The index of each single char code, null for longer codes */
+    private final int[] direct;
+    /** The packed codes, sorted */
+    private final long[] keys;
+    /** The index of each packed code */
+    private final int[] indexes;
+
+    private RecordTypes(int offset, int length, List<String> codes) {
+        this.offset = offset;
+        this.length = length;
+        this.keys = new long[codes.size()];
+        this.indexes = new int[codes.size()];
+
+        long[] packed = new long[codes.size()];
+        char[] chars = new char[length];
+        for (int i = 0; i < codes.size(); i++) {
+            codes.get(i).getChars(0, codes.get(i).length(), chars, 0);
+            packed[i] = pack(chars, codes.get(i).length(), length);
+        }
+        Integer[] order = new Integer[codes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(packed[a], packed[b]));
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = packed[order[i]];
+            indexes[i] = order[i];
+            if (i > 0 && keys[i] == keys[i - 1])
+                throw new IllegalArgumentException("The type code " + codes.get(order[i]) + " is given twice");
+        }
+
+        if (1 == length) {
+            direct = new int[DIRECT_CODES];
+            Arrays.fill(direct, UNKNOWN);
+            for (int i = 0; i < codes.size(); i++) {
+                char code = codes.get(i).charAt(0);
+                if (code < DIRECT_CODES)
+                    direct[code] = i;
+            }
+        } else {
+            direct = null;
+        }
+    }
+
+    /**
+     * @param offset where the type code starts in the records
+     * @param length the size of the type code in the records, in chars for text records or in bytes for binary ones
+     * @param codes the type code of each layout, as decoded, padded with spaces up to length chars
+     * @return the lookup table, giving the index of the code of each record
+     */
+    public static RecordTypes of(final int offset, final int length, final List<String> codes) {
+        if (offset < 0)
+            throw new IllegalArgumentException("offset can't be negative");
+        if (length < 1 || length > MAX_CODE_LENGTH)
+            throw new IllegalArgumentException("length must be between 1 and " + MAX_CODE_LENGTH);
+        if (null == codes || codes.isEmpty())
+            throw new IllegalArgumentException("codes can't be null or empty");
+        for (String code : codes) {
+            if (null == code || code.isEmpty() || code.length() > length)
+                throw new IllegalArgumentException("The type code " + code + " must have between 1 and " + length + " chars");
+        }
+        return new RecordTypes(offset, length, codes);
+    }
+
+    /**
+     * @param record the record
+     * @return the index of its type code, {@link #UNKNOWN} when it matches no code
+     * @throws DecodeException when the record is too short to hold a type code, or it can't be decoded
+     */
+    public int indexOf(final PositionalRecord record) {
+        if (record.length() < offset + length)
+            throw DecodeException.of(record, DecodeException.Reason.WRONG_LENGTH, null, -1, record.length() + " bytes, no type code at offset " + offset);
+        char[] buffer = record.buffer(length);
+        int decoded;
+        try {
+            decoded = record.decode(offset, length, buffer);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw DecodeException.of(record, null, offset, length, e);
+        }
+        if (decoded < 1)
+            return UNKNOWN;
+        if (null != direct && buffer[0] < DIRECT_CODES)
+            return direct[buffer[0]];
+        int found = Arrays.binarySearch(keys, pack(buffer, decoded, length));
+        return found < 0 ? UNKNOWN : indexes[found];
+    }
+
+    /**
+     * @param record the record
+     * @return its type code, to report it
+     */
+    public String codeOf(final PositionalRecord record) {
+        char[] buffer = record.buffer(length);
+        return new String(buffer, 0, record.decode(offset, Math.min(length, Math.max(0, record.length() - offset)), buffer));
+    }
+
+    /**
+     * @return the count chars of a code, padded with spaces up to width chars, packed into a long
+     */
+    private static long pack(char[] code, int count, int width) {
+        long key = 0;
+        for (int i = 0; i < width; i++) {
+            key = key << Character.SIZE | (i < count ? code[i] : ' ');
+        }
+        return key;
+    }
+}
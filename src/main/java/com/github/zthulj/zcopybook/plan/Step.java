@@ -0,0 +1,165 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.github.zthulj.zcopybook.codec.Decimals;
+import com.github.zthulj.zcopybook.codec.PackedDecimal;
+import com.github.zthulj.zcopybook.model.Coordinates;
+import com.github.zthulj.zcopybook.model.ValueNode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * One immutable instruction of a {@link ZPlan}.
+ * Containers (objects, arrays) are opened and closed by dedicated steps, values carry their own offset and length.
+ * Field names are json-encoded once, when the step is created.
+ * <p>
+ * An OCCURS DEPENDING ON reads its number of occurrences from a counter slot, filled by the VALUE step of the counter.
+ * <p>
+ * A REDEFINES step is followed by its branches, one after the other : the redefined item, then each redefining one.
+ * A single branch is written per record.
+ * <p>
+ * A hidden step, kept by a projection, is read but not written : a counter, or a container of counters.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Step {
+
+    public enum Kind {
+        OBJECT_START, OBJECT_END, ARRAY_START, ARRAY_END, VALUE, REDEFINES
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final SerializableString encodedName;
+    private final String path;
+    private final int offset;
+    private final int length;
+    private final ValueNode.ValueType valueType;
+    private final int scale;
+    private final int occurs;
+    private final int stride;
+    private final int end;
+    /** The minimum number of occurrences of an array */
+    private final int minOccurs;
+    /** The counter slot written by a value, or read by an array. -1 for none */
+    private final int counterSlot;
+    /** True for an array whose occurrences, or something inside, depend on a counter */
+    private final boolean dynamic;
+    @Getter(AccessLevel.NONE)
+    private final int[] branches;
+    private final boolean hidden;
+
+    static Step objectStart(String name, String path) {
+        return new Step(Kind.OBJECT_START, name, encode(name), path, 0, 0, null, 0, 0, 0, 0, 0, -1, false, null, false);
+    }
+
+    static Step objectEnd() {
+        return new Step(Kind.OBJECT_END, null, null, null, 0, 0, null, 0, 0, 0, 0, 0, -1, false, null, false);
+    }
+
+    static Step arrayStart(String name, String path, int occurs, int stride, int end) {
+        return arrayStart(name, path, occurs, occurs, -1, false, stride, end);
+    }
+
+    static Step arrayStart(String name, String path, int minOccurs, int occurs, int counterSlot, boolean dynamic, int stride, int end) {
+        return new Step(Kind.ARRAY_START, name, encode(name), path, 0, 0, null, 0, occurs, stride, end, minOccurs, counterSlot, dynamic, null, false);
+    }
+
+    static Step arrayEnd() {
+        return new Step(Kind.ARRAY_END, null, null, null, 0, 0, null, 0, 0, 0, 0, 0, -1, false, null, false);
+    }
+
+    static Step value(String name, String path, Coordinates coordinates, ValueNode.ValueType valueType, int scale) {
+        return new Step(Kind.VALUE, name, encode(name), path, coordinates.getStart(), coordinates.getSize(), valueType, scale, 0, 0, 0, 0, -1, false, null, false);
+    }
+
+    static Step redefines(String name, String path, int[] branches, int end) {
+        return new Step(Kind.REDEFINES, name, encode(name), path, 0, 0, null, 0, 0, 0, end, 0, -1, false, branches.clone(), false);
+    }
+
+    /**
+     * @return a step read back by {@link PlanFormat}
+     */
+    static Step of(Kind kind, String name, String path, int offset, int length, ValueNode.ValueType valueType, int scale, int occurs, int stride,
+                   int end, int minOccurs, int counterSlot, boolean dynamic, int[] branches, boolean hidden) {
+        return new Step(kind, name, encode(name), path, offset, length, valueType, scale, occurs, stride, end, minOccurs, counterSlot, dynamic, branches, hidden);
+    }
+
+    /**
+     * @return the number of branches of a REDEFINES, the redefined item included
+     */
+    public int getBranchCount() {
+        return null == branches ? 0 : branches.length;
+    }
+
+    /**
+     * @param index the branch index, 0 for the redefined item
+     * @return the index of the first step of the branch
+     */
+    public int getBranch(int index) {
+        return branches[index];
+    }
+
+    /**
+     * @param index the branch index
+     * @return the index after the last step of the branch
+     */
+    public int getBranchEnd(int index) {
+        return index + 1 < branches.length ? branches[index + 1] : end + 1;
+    }
+
+    /**
+     * @param slot where the value is kept for the arrays depending on it
+     * @return a copy of this value step, read as a counter
+     */
+    Step asCounter(int slot) {
+        return new Step(kind, name, encodedName, path, offset, length, valueType, scale, occurs, stride, end, minOccurs, slot, dynamic, branches, hidden);
+    }
+
+    /**
+     * @param newEnd the index of the end step in the projected plan
+     * @param newBranches the branch starts in the projected plan
+     * @param hide true when the step is only read
+     * @return a copy of this step, moved into a projected plan
+     */
+    Step project(int newEnd, int[] newBranches, boolean hide) {
+        return new Step(kind, name, encodedName, path, offset, length, valueType, scale, occurs, stride, newEnd, minOccurs, counterSlot, dynamic, newBranches, hide);
+    }
+
+    /**
+     * @return true for an array depending on a counter
+     */
+    public boolean isDependingOn() {
+        return kind == Kind.ARRAY_START && counterSlot >= 0;
+    }
+
+    /**
+     * @return the maximum number of chars of the decoded value
+     */
+    int maxChars() {
+        if (kind != Kind.VALUE)
+            return 0;
+        switch (valueType) {
+            case PACKED_DECIMAL:
+                return Math.max(PackedDecimal.maxChars(length), scale + 3);
+            case BINARY_INT:
+            case UNSIGNED_BINARY_INT:
+                return Math.max(Decimals.MAX_CHARS, scale + 3);
+            default:
+                return length;
+        }
+    }
+
+    private static SerializableString encode(String name) {
+        if (null == name)
+            return null;
+        SerializedString encoded = new SerializedString(name);
+        encoded.asQuotedChars();
+        encoded.asQuotedUTF8();
+        return encoded;
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.zthulj.zcopybook.plan;
+
+/**
+ * A record already decoded as chars. Raw bytes are the low 8 bits of each char, as read with ISO-8859-1.
+ */
+public final class StringRecord extends PositionalRecord {
+
+    private String value;
+
+    public StringRecord wrap(final String value) {
+        this.value = value;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return value.length();
+    }
+
+    @Override
+    public int decode(int offset, int length, char[] destination) {
+        value.getChars(offset, offset + length, destination, 0);
+        return length;
+    }
+
+    @Override
+    int compareText(int offset, int length, char[] value, int count, char[] buffer) {
+        for (int i = 0; i < count; i++) {
+            char c = this.value.charAt(offset + i);
+            if (c != value[i])
+                return c - value[i];
+        }
+        return 0;
+    }
+
+    @Override
+    public int byteAt(int offset) {
+        return value.charAt(offset) & 0xFF;
+    }
+}
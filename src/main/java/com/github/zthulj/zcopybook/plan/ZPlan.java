@@ -0,0 +1,893 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.zthulj.zcopybook.codec.BinaryInteger;
+import com.github.zthulj.zcopybook.codec.Decimals;
+import com.github.zthulj.zcopybook.codec.PackedDecimal;
+import com.github.zthulj.zcopybook.codec.ZonedDecimal;
+import com.github.zthulj.zcopybook.model.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, flat conversion plan compiled from a {@link ZCopyBook}.
+ * A plan holds no per-record state : a single instance can be used by many threads at the same time.
+ * OCCURS are kept as a single element template repeated with a stride.
+ * <p>
+ * An OCCURS DEPENDING ON makes the record length variable : its counter is decoded first, then only the present
+ * occurrences are written and the following fields are shifted accordingly, record by record.
+ * <p>
+ * A REDEFINES writes a single branch per record : the redefined item, unless a {@link Discriminator} chooses another one.
+ * <p>
+ * A {@link #withProjection(Collection) projected} plan only holds the steps of the requested fields,
+ * plus the counters needed to find them.
+ * <p>
+ * A {@link #withFilter(Filter) filter} is checked on the raw fields of a record, before anything is written.
+ * <p>
+ * A {@link #compiled() compiled} plan writes its records with a class generated for it, rather than by walking its steps.
+ * <p>
+ * Zoned decimal fields (SIGNED_INT, SIGNED_FLOAT) are written as json strings, unless the plan is {@link #withTypedNumbers() typed}.
+ * <p>
+ * A plan can be saved with {@link PlanFormat}, to be read back at startup without parsing its copybook.
+ */
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ZPlan {
+
+    private final Step[] steps;
+    /** The record length, the longest one when the length is variable */
+    @Getter
+    private final int recordLength;
+    @Getter
+    private final int minRecordLength;
+    @Getter
+    private final int maxFieldLength;
+    @Getter
+    private final boolean typedNumbers;
+    @Getter
+    private final boolean variableLength;
+    @Getter(AccessLevel.PACKAGE)
+    private final int counters;
+    /** The discriminator of each REDEFINES step, by step index. null when there is none */
+    private final Selection[] selections;
+    /** Checked on the raw record before writing it. null when every record is written */
+    private final Condition filter;
+    /** The generated writer of a compiled plan, null when the plan is interpreted */
+    private final CompiledWriter compiledWriter;
+
+    /**
+     * Compile a copybook into a plan
+     * @param copyBook the copybook to compile
+     * @return the compiled plan
+     */
+    public static <T extends Serializable> ZPlan from(final ZCopyBook<T> copyBook) {
+        if (null == copyBook)
+            throw new IllegalArgumentException("copyBook can't be null");
+
+        List<Step> steps = new ArrayList<>();
+        int minRecordLength = compileParent(copyBook.getRootNode(), null, null, steps);
+        markDynamicArrays(steps);
+
+        int maxFieldLength = 0;
+        int counters = 0;
+        boolean variableLength = false;
+        for (Step step : steps) {
+            maxFieldLength = Math.max(maxFieldLength, step.maxChars());
+            if (step.getKind() == Step.Kind.VALUE && step.getCounterSlot() >= 0)
+                counters++;
+            variableLength |= step.isDependingOn();
+        }
+        return new ZPlan(steps.toArray(new Step[0]), copyBook.getWaitedLength(), minRecordLength, maxFieldLength, false, variableLength, counters, null, null, null);
+    }
+
+    /**
+     * @return a plan writing zoned decimal fields of up to 18 digits as json numbers, with their implied decimal point
+     */
+    public ZPlan withTypedNumbers() {
+        if (typedNumbers)
+            return this;
+        return new ZPlan(steps, recordLength, minRecordLength, Math.max(maxFieldLength, ZonedDecimal.MAX_DIGITS + 3), true, variableLength, counters, selections, filter, null);
+    }
+
+    /**
+     * @param redefined the json path of the redefined item, for instance RECORD.DETAIL
+     * @param discriminator chooses the branch to decode, record by record
+     * @return a plan decoding the REDEFINES of this item with the discriminator
+     */
+    public ZPlan withDiscriminator(final String redefined, final Discriminator discriminator) {
+        if (null == redefined || null == discriminator)
+            throw new IllegalArgumentException("redefined and discriminator can't be null");
+
+        int group = -1;
+        int field = -1;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i].getKind() == Step.Kind.REDEFINES && redefined.equals(steps[i].getPath()))
+                group = i;
+            else if (steps[i].getKind() == Step.Kind.VALUE && discriminator.getField().equals(steps[i].getPath()))
+                field = i;
+        }
+        if (group < 0)
+            throw new IllegalArgumentException(redefined + " is not redefined");
+        if (field < 0 || field > group)
+            throw new IllegalArgumentException("The field " + discriminator.getField() + " must be declared before " + redefined);
+        checkReadableFrom(field, group);
+
+        Map<String, Integer> branches = new HashMap<>();
+        for (int b = 0; b < steps[group].getBranchCount(); b++) {
+            branches.put(steps[steps[group].getBranch(b)].getName(), b);
+        }
+        Selection[] newSelections = null == selections ? new Selection[steps.length] : selections.clone();
+        newSelections[group] = new Selection(field, discriminator, branches);
+        return new ZPlan(steps, recordLength, minRecordLength, maxFieldLength, typedNumbers, variableLength, counters, newSelections, filter, null);
+    }
+
+    /**
+     * Keep only some fields. Paths are the json paths of the fields, for instance CLIENT.ADDRESS.CITY, or glob patterns :
+     * * matches any part of a name, ** any part of a path. Selecting a group selects all its fields.
+     * Discriminators and filters must be set before the projection.
+     *
+     * @param fields the paths or patterns of the fields to keep
+     * @return a plan writing the selected fields and their groups only
+     */
+    public ZPlan withProjection(final Collection<String> fields) {
+        if (null == fields || fields.isEmpty())
+            throw new IllegalArgumentException("fields can't be null or empty");
+
+        List<Pattern> patterns = new ArrayList<>();
+        for (String field : fields) {
+            patterns.add(glob(field));
+        }
+        boolean[] needed = new boolean[steps.length];
+        if (null != selections) {
+            for (Selection selection : selections) {
+                if (null != selection)
+                    needed[selection.field] = true;
+            }
+        }
+        if (null != filter)
+            filter.markFields(needed);
+        int[] moved = new int[steps.length];
+        Arrays.fill(moved, -1);
+        List<Step> projected = new ArrayList<>();
+        if (project(0, steps.length, false, patterns, containerEnds(), needed, projected, moved) != VISIBLE)
+            throw new IllegalArgumentException("No field matches " + fields);
+
+        Selection[] newSelections = null;
+        if (null != selections) {
+            newSelections = new Selection[projected.size()];
+            for (int i = 0; i < selections.length; i++) {
+                if (null == selections[i] || moved[i] < 0)
+                    continue;
+                if (moved[selections[i].field] < 0)
+                    throw new IllegalArgumentException("The field " + steps[selections[i].field].getPath() + " can't be projected out, it discriminates " + steps[i].getPath());
+                newSelections[moved[i]] = new Selection(moved[selections[i].field], selections[i].discriminator, selections[i].branches);
+            }
+        }
+        return new ZPlan(projected.toArray(new Step[0]), recordLength, minRecordLength, maxFieldLength, typedNumbers, variableLength, counters, newSelections, null == filter ? null : filter.move(moved), null);
+    }
+
+    /**
+     * Keep only the records matching a filter. Filters set one after the other must all match.
+     * Fields of an OCCURS can't be filtered on.
+     *
+     * @param filter the condition on the raw fields
+     * @return a plan with the filter
+     */
+    public ZPlan withFilter(final Filter filter) {
+        if (null == filter)
+            throw new IllegalArgumentException("filter can't be null");
+        Condition condition = compile(filter);
+        if (null != this.filter)
+            condition = Condition.combine(Filter.Kind.AND, this.filter, condition);
+        return new ZPlan(steps, recordLength, minRecordLength, maxFieldLength, typedNumbers, variableLength, counters, selections, condition, null);
+    }
+
+    private Condition compile(Filter filter) {
+        if (filter.getKind() == Filter.Kind.AND || filter.getKind() == Filter.Kind.OR || filter.getKind() == Filter.Kind.NOT) {
+            Condition[] conditions = new Condition[filter.getFilters().size()];
+            for (int i = 0; i < conditions.length; i++) {
+                conditions[i] = compile(filter.getFilters().get(i));
+            }
+            return Condition.combine(filter.getKind(), conditions);
+        }
+
+        int field = -1;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i].getKind() == Step.Kind.VALUE && filter.getField().equals(steps[i].getPath()))
+                field = i;
+        }
+        if (field < 0)
+            throw new IllegalArgumentException("Unknown field " + filter.getField());
+        for (int i = 0; i < field; i++) {
+            if (steps[i].getKind() == Step.Kind.ARRAY_START && field < steps[i].getEnd())
+                throw new IllegalArgumentException("The field " + filter.getField() + " of the OCCURS " + steps[i].getPath() + " can't be filtered on");
+        }
+        return Condition.compile(filter, steps, field);
+    }
+
+    private static final int NOTHING = 0;
+    private static final int HIDDEN = 1;
+    private static final int VISIBLE = 2;
+
+    /**
+     * Copy the kept steps of a range into the projected plan
+     * @return VISIBLE when a field to write was kept, HIDDEN when only fields to read were, NOTHING otherwise
+     */
+    private int project(int from, int to, boolean selected, List<Pattern> patterns, int[] ends, boolean[] needed, List<Step> projected, int[] moved) {
+        int state = NOTHING;
+        for (int i = from; i < to; i++) {
+            int index = i;
+            Step step = steps[i];
+            boolean matched = selected || (null != step.getPath() && matches(patterns, step.getPath()));
+            int start = projected.size();
+            int kept;
+            switch (step.getKind()) {
+                case VALUE:
+                    kept = matched ? VISIBLE : step.getCounterSlot() >= 0 || needed[i] ? HIDDEN : NOTHING;
+                    if (kept != NOTHING)
+                        projected.add(step.project(step.getEnd(), null, kept != VISIBLE));
+                    break;
+                case OBJECT_START:
+                case ARRAY_START:
+                    projected.add(null);
+                    kept = Math.max(matched ? VISIBLE : NOTHING, project(i + 1, ends[i], matched, patterns, ends, needed, projected, moved));
+                    if (kept == NOTHING && step.isDynamic())
+                        kept = HIDDEN;
+                    if (kept != NOTHING) {
+                        projected.set(start, step.project(projected.size(), null, kept != VISIBLE));
+                        projected.add(steps[ends[i]].project(steps[ends[i]].getEnd(), null, kept != VISIBLE));
+                    }
+                    i = ends[i];
+                    break;
+                case REDEFINES:
+                    projected.add(null);
+                    int[] branches = new int[step.getBranchCount()];
+                    kept = NOTHING;
+                    for (int b = 0; b < branches.length; b++) {
+                        branches[b] = projected.size();
+                        kept = Math.max(kept, project(step.getBranch(b), step.getBranchEnd(b), selected, patterns, ends, needed, projected, moved));
+                    }
+                    if (kept != NOTHING)
+                        projected.set(start, step.project(projected.size() - 1, branches, kept != VISIBLE));
+                    i = step.getEnd();
+                    break;
+                default:
+                    kept = NOTHING;
+                    break;
+            }
+            if (kept == NOTHING) {
+                projected.subList(start, projected.size()).clear();
+                Arrays.fill(moved, index, i + 1, -1);
+            } else {
+                moved[index] = start;
+                state = Math.max(state, kept);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @return for each OBJECT_START and ARRAY_START, the index of its end step
+     */
+    private int[] containerEnds() {
+        int[] ends = new int[steps.length];
+        Deque<Integer> opened = new ArrayDeque<>();
+        for (int i = 0; i < steps.length; i++) {
+            switch (steps[i].getKind()) {
+                case OBJECT_START:
+                case ARRAY_START:
+                    opened.push(i);
+                    break;
+                case OBJECT_END:
+                case ARRAY_END:
+                    ends[opened.pop()] = i;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return ends;
+    }
+
+    private static Pattern glob(String field) {
+        if (null == field || field.isEmpty())
+            throw new IllegalArgumentException("field can't be null or empty");
+        StringBuilder regex = new StringBuilder();
+        int literal = 0;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '*' && c != '?')
+                continue;
+            if (literal < i)
+                regex.append(Pattern.quote(field.substring(literal, i)));
+            if (c == '?') {
+                regex.append("[^.]");
+            } else if (i + 1 < field.length() && field.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else {
+                regex.append("[^.]*");
+            }
+            literal = i + 1;
+        }
+        if (literal < field.length())
+            regex.append(Pattern.quote(field.substring(literal)));
+        return Pattern.compile(regex.toString());
+    }
+
+    private static boolean matches(List<Pattern> patterns, String path) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(path).matches())
+                return true;
+        }
+        return false;
+    }
+
+    private void checkReadableFrom(int field, int group) {
+        for (int i = 0; i < steps.length; i++) {
+            Step step = steps[i];
+            if (step.getKind() != Step.Kind.ARRAY_START)
+                continue;
+            boolean holdsField = i < field && field < step.getEnd();
+            boolean holdsGroup = i < group && group < step.getEnd();
+            if (holdsField != holdsGroup || (step.isDependingOn() && field < i && i < group))
+                throw new IllegalArgumentException("The field " + steps[field].getPath() + " can't discriminate " + steps[group].getPath() + " across the OCCURS " + step.getPath());
+        }
+    }
+
+    /**
+     * Generate and compile a class writing the records of this plan with straight-line code : constant offsets, lengths and field names.
+     * The json is the same as the interpreted one. Plans with OCCURS DEPENDING ON or discriminators stay interpreted,
+     * as do all plans when no java compiler is available (JRE only) : check {@link #isCompiled()}.
+     * Other settings must be applied before.
+     *
+     * @return the compiled plan, or this plan when it can't be compiled
+     */
+    public ZPlan compiled() {
+        if (isCompiled() || variableLength || hasSelections())
+            return this;
+        CompiledWriter writer = PlanCompiler.compile(steps, typedNumbers);
+        if (null == writer)
+            return this;
+        return new ZPlan(steps, recordLength, minRecordLength, maxFieldLength, typedNumbers, variableLength, counters, selections, filter, writer);
+    }
+
+    /**
+     * @return true when the records are written by a generated class
+     */
+    public boolean isCompiled() {
+        return null != compiledWriter;
+    }
+
+    /**
+     * @return true when discriminators or a filter were added to the plan
+     */
+    boolean isConfigured() {
+        return hasSelections() || null != filter;
+    }
+
+    private boolean hasSelections() {
+        if (null != selections) {
+            for (Selection selection : selections) {
+                if (null != selection)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(Arrays.asList(steps));
+    }
+
+    /**
+     * @return the minimum size of the parent
+     */
+    private static <T extends Serializable> int compileParent(ParentNode<T> parent, String name, String path, List<Step> steps) {
+        int minSize = 0;
+        steps.add(Step.objectStart(name, path));
+        List<Map.Entry<String, Node<T>>> childs = new ArrayList<>(parent.getChilds().entrySet());
+        for (int i = 0; i < childs.size(); i++) {
+            int last = i;
+            while (last + 1 < childs.size() && parent.isRedefining(childs.get(last + 1).getKey()))
+                last++;
+            if (last == i)
+                minSize += compileNode(childs.get(i).getValue(), childs.get(i).getKey(), childPath(path, childs.get(i).getKey()), steps);
+            else
+                minSize += compileRedefines(childs.subList(i, last + 1), path, steps);
+            i = last;
+        }
+        steps.add(Step.objectEnd());
+        return minSize;
+    }
+
+    /**
+     * @param branches the redefined child, then the children redefining it
+     * @return the size of the longest branch
+     */
+    private static <T extends Serializable> int compileRedefines(List<Map.Entry<String, Node<T>>> branches, String path, List<Step> steps) {
+        String redefined = branches.get(0).getKey();
+        int start = steps.size();
+        steps.add(null);
+        int[] branchStarts = new int[branches.size()];
+        int size = 0;
+        for (int b = 0; b < branches.size(); b++) {
+            branchStarts[b] = steps.size();
+            size = Math.max(size, compileNode(branches.get(b).getValue(), branches.get(b).getKey(), childPath(path, branches.get(b).getKey()), steps));
+        }
+        for (int i = start + 1; i < steps.size(); i++) {
+            if (steps.get(i).isDependingOn())
+                throw new IllegalArgumentException("An OCCURS DEPENDING ON can't be redefined : " + childPath(path, redefined));
+        }
+        steps.set(start, Step.redefines(redefined, childPath(path, redefined), branchStarts, steps.size() - 1));
+        return size;
+    }
+
+    private static <T extends Serializable> int compileNode(Node<T> node, String name, String path, List<Step> steps) {
+        if (node instanceof ParentArrayNode) {
+            ParentArrayNode<T> array = (ParentArrayNode<T>) node;
+            int start = steps.size();
+            int counterSlot = array.isDependingOn() ? counterSlot(array.getDependingOn(), path, start, steps) : -1;
+            steps.add(null);
+            int minSize = compileParent(array.getTemplate(), null, path, steps);
+            steps.add(Step.arrayEnd());
+            steps.set(start, Step.arrayStart(name, path, array.getMinOccurs(), array.getOccursNumber(), counterSlot, false, array.getStride(), steps.size() - 1));
+            return array.getMinOccurs() * minSize;
+        } else if (node instanceof ParentNode) {
+            return compileParent((ParentNode<T>) node, name, path, steps);
+        } else {
+            ValueNode<T> value = (ValueNode<T>) node;
+            steps.add(Step.value(name, path, value.getCoordinates(), value.getValueType(), value.getScale()));
+            return value.size();
+        }
+    }
+
+    /**
+     * Find the last counter declared before an OCCURS DEPENDING ON, and give it a slot.
+     * The enclosing arrays are not compiled yet : their steps are still null.
+     * A counter in a REDEFINES is refused : when its branch isn't chosen, the counter would keep the value of the previous record.
+     */
+    private static int counterSlot(String counter, String arrayPath, int before, List<Step> steps) {
+        int slots = 0;
+        for (Step step : steps) {
+            if (null != step && step.getKind() == Step.Kind.VALUE && step.getCounterSlot() >= 0)
+                slots++;
+        }
+        for (int i = before - 1; i >= 0; i--) {
+            Step step = steps.get(i);
+            if (null == step || step.getKind() != Step.Kind.VALUE || !counter.equals(step.getName()))
+                continue;
+            if (step.getScale() > 0)
+                throw new IllegalArgumentException("The counter " + step.getPath() + " of " + arrayPath + " must be an integer");
+            for (int j = 0; j < i; j++) {
+                Step redefines = steps.get(j);
+                if (null != redefines && redefines.getKind() == Step.Kind.REDEFINES && i <= redefines.getEnd())
+                    throw new IllegalArgumentException("The counter " + step.getPath() + " of " + arrayPath + " can't be redefined : " + redefines.getPath());
+            }
+            if (step.getCounterSlot() >= 0)
+                return step.getCounterSlot();
+            steps.set(i, step.asCounter(slots));
+            return slots;
+        }
+        throw new IllegalArgumentException("The counter " + counter + " of " + arrayPath + " must be declared before it");
+    }
+
+    /**
+     * Flag the arrays that can't be skipped when measuring a record : depending on a counter, or holding one
+     */
+    private static void markDynamicArrays(List<Step> steps) {
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            Step array = steps.get(i);
+            if (array.getKind() != Step.Kind.ARRAY_START)
+                continue;
+            boolean dynamic = array.isDependingOn();
+            for (int j = i + 1; j < array.getEnd() && !dynamic; j++) {
+                Step step = steps.get(j);
+                dynamic = step.getCounterSlot() >= 0 || step.isDynamic();
+            }
+            if (dynamic)
+                steps.set(i, Step.arrayStart(array.getName(), array.getPath(), array.getMinOccurs(), array.getOccurs(), array.getCounterSlot(), true, array.getStride(), array.getEnd()));
+        }
+    }
+
+    private static String childPath(String path, String name) {
+        return null == path ? name : path + "." + name;
+    }
+
+    /**
+     * Compute the length of a record from its counters, without writing it
+     * @param record the positional record, at least as long as its counters
+     * @return the expected record length, always {@link #getRecordLength()} when the length is not variable
+     */
+    public int lengthOf(final PositionalRecord record) {
+        if (!variableLength)
+            return recordLength;
+        return recordLength + measureSteps(record, record.buffer(maxFieldLength), record.counters(counters), 0, steps.length, 0);
+    }
+
+    /**
+     * @param record a record just written or measured by this plan
+     * @param array the index of an OCCURS step
+     * @return its number of occurrences in the record, the last one read when it is nested in another OCCURS
+     */
+    public int occursIn(final PositionalRecord record, final int array) {
+        Step step = steps[array];
+        if (!step.isDependingOn())
+            return step.getOccurs();
+        return (int) record.counters(counters)[step.getCounterSlot()];
+    }
+
+    /**
+     * Check the filter of the plan on a record, comparing its raw fields : nothing is converted.
+     * The record length is not checked, it is up to the caller to do it.
+     *
+     * @param record the positional record
+     * @return true when the record must be written, always true without filter
+     */
+    public boolean accepts(final PositionalRecord record) {
+        if (null == filter)
+            return true;
+        return test(filter, record, record.buffer(maxFieldLength), record.counters(counters));
+    }
+
+    /**
+     * Write a positional record as json into the generator.
+     * The record length is not checked, it is up to the caller to do it.
+     *
+     * @param record the positional record
+     * @param generator where to write the json
+     * @throws IOException when the generator can't write
+     */
+    public void write(final String record, final JsonGenerator generator) throws IOException {
+        write(new StringRecord().wrap(record), generator);
+    }
+
+    /**
+     * Write a positional record as json into the generator.
+     * The record length is not checked, it is up to the caller to do it.
+     *
+     * @param record the positional record
+     * @param generator where to write the json
+     * @throws IOException when the generator can't write
+     */
+    public void write(final PositionalRecord record, final JsonGenerator generator) throws IOException {
+        if (null != compiledWriter) {
+            compiledWriter.write(record, generator, record.buffer(maxFieldLength));
+            return;
+        }
+        writeSteps(record, generator, record.buffer(maxFieldLength), record.counters(counters), 0, steps.length, 0);
+    }
+
+    /**
+     * @param shift the gap between the actual positions and the offsets of the steps, which assume full OCCURS
+     * @return the shift after the last step
+     */
+    private int writeSteps(PositionalRecord record, JsonGenerator generator, char[] buffer, long[] counters, int from, int to, int shift) throws IOException {
+        for (int i = from; i < to; i++) {
+            Step step = steps[i];
+            switch (step.getKind()) {
+                case OBJECT_START:
+                    if (step.isHidden())
+                        break;
+                    if (null != step.getName())
+                        generator.writeFieldName(step.getEncodedName());
+                    generator.writeStartObject();
+                    break;
+                case OBJECT_END:
+                    if (!step.isHidden())
+                        generator.writeEndObject();
+                    break;
+                case ARRAY_START:
+                    if (step.isHidden()) {
+                        shift = measureArray(record, buffer, counters, i, shift);
+                        i = step.getEnd();
+                        break;
+                    }
+                    generator.writeFieldName(step.getEncodedName());
+                    generator.writeStartArray();
+                    int occurs = occursOf(record, step, counters);
+                    for (int occurrence = 0; occurrence < occurs; occurrence++) {
+                        shift = writeSteps(record, generator, buffer, counters, i + 1, step.getEnd(), shift) + step.getStride();
+                    }
+                    shift -= step.getOccurs() * step.getStride();
+                    generator.writeEndArray();
+                    i = step.getEnd();
+                    break;
+                case VALUE:
+                    if (!step.isHidden()) {
+                        generator.writeFieldName(step.getEncodedName());
+                        writeValue(record, generator, buffer, step, step.getOffset() + shift, typedNumbers);
+                    }
+                    if (step.getCounterSlot() >= 0)
+                        counters[step.getCounterSlot()] = readCounter(record, buffer, step, step.getOffset() + shift);
+                    break;
+                case REDEFINES:
+                    int branch = branchOf(record, buffer, i, shift);
+                    writeSteps(record, generator, buffer, counters, step.getBranch(branch), step.getBranchEnd(branch), shift);
+                    i = step.getEnd();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return shift;
+    }
+
+    private int measureSteps(PositionalRecord record, char[] buffer, long[] counters, int from, int to, int shift) {
+        for (int i = from; i < to; i++) {
+            Step step = steps[i];
+            if (step.getKind() == Step.Kind.ARRAY_START) {
+                shift = measureArray(record, buffer, counters, i, shift);
+                i = step.getEnd();
+            } else if (step.getKind() == Step.Kind.REDEFINES) {
+                i = step.getEnd();
+            } else if (step.getKind() == Step.Kind.VALUE && step.getCounterSlot() >= 0) {
+                counters[step.getCounterSlot()] = readCounter(record, buffer, step, step.getOffset() + shift);
+            }
+        }
+        return shift;
+    }
+
+    int measureArray(PositionalRecord record, char[] buffer, long[] counters, int array, int shift) {
+        Step step = steps[array];
+        if (!step.isDynamic())
+            return shift;
+        int occurs = occursOf(record, step, counters);
+        for (int occurrence = 0; occurrence < occurs; occurrence++) {
+            shift = measureSteps(record, buffer, counters, array + 1, step.getEnd(), shift) + step.getStride();
+        }
+        return shift - step.getOccurs() * step.getStride();
+    }
+
+    private boolean test(Condition condition, PositionalRecord record, char[] buffer, long[] counters) {
+        switch (condition.kind) {
+            case AND:
+                for (Condition inner : condition.conditions) {
+                    if (!test(inner, record, buffer, counters))
+                        return false;
+                }
+                return true;
+            case OR:
+                for (Condition inner : condition.conditions) {
+                    if (test(inner, record, buffer, counters))
+                        return true;
+                }
+                return false;
+            case NOT:
+                return !test(condition.conditions[0], record, buffer, counters);
+            default:
+                break;
+        }
+
+        Step step = steps[condition.field];
+        int offset = step.getOffset() + (variableLength ? measureSteps(record, buffer, counters, 0, condition.field, 0) : 0);
+        try {
+            return matches(condition, record, buffer, step, offset);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw DecodeException.of(record, step.getPath(), offset, step.getLength(), e);
+        }
+    }
+
+    private static boolean matches(Condition condition, PositionalRecord record, char[] buffer, Step step, int offset) {
+        if (condition.numeric) {
+            long value = readLong(record, buffer, step, offset);
+            if (value == ZonedDecimal.INVALID)
+                return false;
+            if (condition.kind == Filter.Kind.BETWEEN)
+                return condition.numbers[0] <= value && value <= condition.numbers[1];
+            for (long number : condition.numbers) {
+                if (number == value)
+                    return true;
+            }
+            return false;
+        }
+        switch (condition.kind) {
+            case BETWEEN:
+                return record.compareText(offset, step.getLength(), condition.texts[0], condition.texts[0].length, buffer) >= 0
+                        && record.compareText(offset, step.getLength(), condition.texts[1], condition.texts[1].length, buffer) <= 0;
+            default:
+                for (char[] text : condition.texts) {
+                    if (0 == record.compareText(offset, step.getLength(), text, text.length, buffer))
+                        return true;
+                }
+                return false;
+        }
+    }
+
+    int branchOf(PositionalRecord record, char[] buffer, int group, int shift) {
+        Selection selection = null == selections ? null : selections[group];
+        if (null == selection)
+            return 0;
+
+        Step field = steps[selection.field];
+        int offset = field.getOffset() + shift;
+        String text;
+        try {
+            text = readText(record, buffer, field, offset);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw DecodeException.of(record, field.getPath(), offset, field.getLength(), e);
+        }
+        String name;
+        try {
+            name = selection.discriminator.getBranch().apply(text);
+        } catch (RuntimeException e) {
+            DecodeException error = DecodeException.of(record, DecodeException.Reason.DISCRIMINATOR_FAILED, field.getPath(), offset, text);
+            error.initCause(e);
+            throw error;
+        }
+        if (null == name)
+            return 0;
+        Integer branch = selection.branches.get(name);
+        if (null == branch)
+            throw DecodeException.of(record, DecodeException.Reason.UNKNOWN_BRANCH, field.getPath(), offset, name);
+        return branch;
+    }
+
+    private static String readText(PositionalRecord record, char[] buffer, Step step, int offset) {
+        switch (step.getValueType()) {
+            case PACKED_DECIMAL:
+                int length = PackedDecimal.toChars(record, offset, step.getLength(), step.getScale(), buffer);
+                if (length < 0)
+                    throw DecodeException.of(record, DecodeException.Reason.INVALID_PACKED_DECIMAL, step.getPath(), offset, null);
+                return new String(buffer, 0, length);
+            case BINARY_INT:
+            case UNSIGNED_BINARY_INT:
+                long value = BinaryInteger.toLong(record, offset, step.getLength(), step.getValueType() == ValueNode.ValueType.BINARY_INT);
+                return new String(buffer, 0, Decimals.toChars(value, step.getScale(), buffer));
+            default:
+                return new String(buffer, 0, record.decode(offset, step.getLength(), buffer));
+        }
+    }
+
+    static int occursOf(PositionalRecord record, Step array, long[] counters) {
+        if (array.getCounterSlot() < 0)
+            return array.getOccurs();
+        long occurs = counters[array.getCounterSlot()];
+        if (occurs < array.getMinOccurs() || occurs > array.getOccurs())
+            throw DecodeException.of(record, DecodeException.Reason.COUNTER_OUT_OF_RANGE, array.getPath(), -1, Long.toString(occurs));
+        return (int) occurs;
+    }
+
+    static long readCounter(PositionalRecord record, char[] buffer, Step step, int offset) {
+        if (offset + step.getLength() > record.length())
+            throw DecodeException.of(record, DecodeException.Reason.TRUNCATED, step.getPath(), offset, null);
+        long value;
+        try {
+            value = readLong(record, buffer, step, offset);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw DecodeException.of(record, step.getPath(), offset, step.getLength(), e);
+        }
+        if (value == ZonedDecimal.INVALID)
+            throw DecodeException.of(record, DecodeException.Reason.INVALID_NUMBER, step.getPath(), offset, invalidText(record, buffer, step, offset));
+        return value;
+    }
+
+    /**
+     * @return the text of an invalid zoned decimal, to report it, null for the other types
+     */
+    static String invalidText(PositionalRecord record, char[] buffer, Step step, int offset) {
+        if (step.getValueType() == ValueNode.ValueType.PACKED_DECIMAL || step.getValueType() == ValueNode.ValueType.BINARY_INT
+                || step.getValueType() == ValueNode.ValueType.UNSIGNED_BINARY_INT)
+            return null;
+        return new String(buffer, 0, record.decode(offset, step.getLength(), buffer));
+    }
+
+    /**
+     * @return the unscaled value of a numeric field, or {@link ZonedDecimal#INVALID}
+     */
+    static long readLong(PositionalRecord record, char[] buffer, Step step, int offset) {
+        long value;
+        switch (step.getValueType()) {
+            case PACKED_DECIMAL:
+                value = PackedDecimal.toLong(record, offset, step.getLength());
+                break;
+            case BINARY_INT:
+            case UNSIGNED_BINARY_INT:
+                value = BinaryInteger.toLong(record, offset, step.getLength(), step.getValueType() == ValueNode.ValueType.BINARY_INT);
+                break;
+            default:
+                value = zoned(step, buffer, record.decode(offset, step.getLength(), buffer));
+                break;
+        }
+        return value;
+    }
+
+    /**
+     * @return the unscaled value of a decoded zoned decimal, or {@link ZonedDecimal#INVALID}
+     */
+    private static long zoned(Step step, char[] buffer, int length) {
+        switch (step.getValueType()) {
+            case LEADING_SEPARATE_SIGN:
+                return ZonedDecimal.toLong(buffer, 0, length, true);
+            case TRAILING_SEPARATE_SIGN:
+                return ZonedDecimal.toLong(buffer, 0, length, false);
+            default:
+                return ZonedDecimal.toLong(buffer, 0, length);
+        }
+    }
+
+    /**
+     * @return the number of digits of a zoned decimal, its separate sign excluded
+     */
+    static int zonedDigits(Step step) {
+        return step.getValueType().isSeparateSign() ? step.getLength() - 1 : step.getLength();
+    }
+
+    static void writeValue(PositionalRecord record, JsonGenerator generator, char[] buffer, Step step, int offset, boolean typedNumbers) throws IOException {
+        try {
+            writeField(record, generator, buffer, step, offset, typedNumbers);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw DecodeException.of(record, step.getPath(), offset, step.getLength(), e);
+        }
+    }
+
+    private static void writeField(PositionalRecord record, JsonGenerator generator, char[] buffer, Step step, int offset, boolean typedNumbers) throws IOException {
+        int length;
+        switch (step.getValueType()) {
+            case PACKED_DECIMAL:
+                length = PackedDecimal.toChars(record, offset, step.getLength(), step.getScale(), buffer);
+                if (length < 0)
+                    throw DecodeException.of(record, DecodeException.Reason.INVALID_PACKED_DECIMAL, step.getPath(), offset, null);
+                generator.writeRawValue(buffer, 0, length);
+                break;
+            case BINARY_INT:
+            case UNSIGNED_BINARY_INT:
+                boolean signed = step.getValueType() == ValueNode.ValueType.BINARY_INT;
+                long value = BinaryInteger.toLong(record, offset, step.getLength(), signed);
+                if (!signed && value < 0)
+                    generator.writeNumber(new BigDecimal(new BigInteger(Long.toUnsignedString(value)), step.getScale()));
+                else if (0 == step.getScale())
+                    generator.writeNumber(value);
+                else
+                    generator.writeRawValue(buffer, 0, Decimals.toChars(value, step.getScale(), buffer));
+                break;
+            case SIGNED_INT:
+            case SIGNED_FLOAT:
+            case LEADING_SEPARATE_SIGN:
+            case TRAILING_SEPARATE_SIGN:
+                length = record.decode(offset, step.getLength(), buffer);
+                if (typedNumbers && zonedDigits(step) <= ZonedDecimal.MAX_DIGITS)
+                    writeZoned(record, buffer, length, step, offset, generator);
+                else
+                    generator.writeString(buffer, 0, length);
+                break;
+            default:
+                length = record.decode(offset, step.getLength(), buffer);
+                generator.writeString(buffer, 0, length);
+                break;
+        }
+    }
+
+    private static void writeZoned(PositionalRecord record, char[] buffer, int length, Step step, int offset, JsonGenerator generator) throws IOException {
+        long value = zoned(step, buffer, length);
+        if (value == ZonedDecimal.INVALID)
+            throw DecodeException.of(record, DecodeException.Reason.INVALID_NUMBER, step.getPath(), offset, new String(buffer, 0, length));
+        if (0 == step.getScale())
+            generator.writeNumber(value);
+        else
+            generator.writeRawValue(buffer, 0, Decimals.toChars(value, step.getScale(), buffer));
+    }
+
+    @AllArgsConstructor
+    private static final class Selection {
+        private final int field;
+        private final Discriminator discriminator;
+        /** The index of each branch, by name : a projection may leave a branch empty */
+        private final Map<String, Integer> branches;
+    }
+}
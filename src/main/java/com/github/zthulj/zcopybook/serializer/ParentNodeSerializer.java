@@ -11,6 +11,6 @@ import java.io.Serializable;
 public class ParentNodeSerializer<T extends Serializable> extends JsonSerializer<ParentNode<T>> {
     @Override
     public void serialize(ParentNode<T> parentNode, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
-        jsonGenerator.writeObject(parentNode.getChilds());
+        jsonGenerator.writeObject(parentNode.getDefaultChilds());
     }
 }
@@ -0,0 +1,40 @@
+package com.github.zthulj.zcopybook.codec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinaryIntegerTest {
+
+    @Test
+    public void byteLength_digits_shouldUseHalfWordFullWordOrDoubleWord() {
+        Assert.assertEquals(2, BinaryInteger.byteLength(4));
+        Assert.assertEquals(4, BinaryInteger.byteLength(5));
+        Assert.assertEquals(4, BinaryInteger.byteLength(9));
+        Assert.assertEquals(8, BinaryInteger.byteLength(10));
+        Assert.assertEquals(8, BinaryInteger.byteLength(18));
+    }
+
+    @Test
+    public void toLong_signedNegativeHalfWord_shouldExtendTheSign() {
+        Assert.assertEquals(-2L, BinaryInteger.toLong(source(0xFF, 0xFE), 0, 2, true));
+    }
+
+    @Test
+    public void toLong_unsignedHalfWord_shouldBePositive() {
+        Assert.assertEquals(65534L, BinaryInteger.toLong(source(0xFF, 0xFE), 0, 2, false));
+    }
+
+    @Test
+    public void toLong_fullWordAtAnOffset_shouldBeBigEndian() {
+        Assert.assertEquals(0x01020304L, BinaryInteger.toLong(source(0xAA, 0x01, 0x02, 0x03, 0x04), 1, 4, true));
+    }
+
+    @Test
+    public void toLong_signedDoubleWord_shouldReturnTheLong() {
+        Assert.assertEquals(Long.MIN_VALUE, BinaryInteger.toLong(source(0x80, 0, 0, 0, 0, 0, 0, 0), 0, 8, true));
+    }
+
+    private static ByteSource source(int... bytes) {
+        return i -> bytes[i];
+    }
+}
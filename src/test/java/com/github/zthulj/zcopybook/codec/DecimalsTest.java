@@ -0,0 +1,31 @@
+package com.github.zthulj.zcopybook.codec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DecimalsTest {
+
+    @Test
+    public void toChars_noScale_shouldWriteTheInteger() {
+        Assert.assertEquals("-1234", toString(-1234, 0));
+        Assert.assertEquals("0", toString(0, 0));
+    }
+
+    @Test
+    public void toChars_scale_shouldInsertTheDecimalPoint() {
+        Assert.assertEquals("12.34", toString(1234, 2));
+        Assert.assertEquals("-0.05", toString(-5, 2));
+        Assert.assertEquals("0.000", toString(0, 3));
+    }
+
+    @Test
+    public void toChars_longBounds_shouldKeepAllDigits() {
+        Assert.assertEquals("-922337203.6854775808", toString(Long.MIN_VALUE, 10));
+        Assert.assertEquals("0.000000000000000001", toString(1, 18));
+    }
+
+    private static String toString(long unscaled, int scale) {
+        char[] destination = new char[Decimals.MAX_CHARS];
+        return new String(destination, 0, Decimals.toChars(unscaled, scale, destination));
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.zthulj.zcopybook.codec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class PackedDecimalTest {
+
+    @Test
+    public void byteLength_oddAndEvenDigits_shouldHoldTheSignNibble() {
+        Assert.assertEquals(5, PackedDecimal.byteLength(9));
+        Assert.assertEquals(3, PackedDecimal.byteLength(4));
+        Assert.assertEquals(1, PackedDecimal.byteLength(1));
+    }
+
+    @Test
+    public void toLong_positiveField_shouldReturnTheUnscaledValue() {
+        Assert.assertEquals(1234567L, PackedDecimal.toLong(source(0x12, 0x34, 0x56, 0x7C), 0, 4));
+    }
+
+    @Test
+    public void toLong_negativeFieldAtAnOffset_shouldReturnANegativeValue() {
+        Assert.assertEquals(-125L, PackedDecimal.toLong(source(0xFF, 0x12, 0x5D), 1, 2));
+    }
+
+    @Test
+    public void toLong_unsignedField_shouldBePositive() {
+        Assert.assertEquals(42L, PackedDecimal.toLong(source(0x04, 0x2F), 0, 2));
+    }
+
+    @Test
+    public void toLong_invalidDigitOrSign_shouldReturnInvalid() {
+        Assert.assertEquals(PackedDecimal.INVALID, PackedDecimal.toLong(source(0x1A, 0x2C), 0, 2));
+        Assert.assertEquals(PackedDecimal.INVALID, PackedDecimal.toLong(source(0x12, 0x34), 0, 2));
+    }
+
+    @Test
+    public void toLong_tooManyDigits_shouldReturnInvalid() {
+        byte[] bytes = new byte[10];
+        Arrays.fill(bytes, (byte) 0x99);
+        bytes[9] = (byte) 0x9C;
+        Assert.assertEquals(PackedDecimal.INVALID, PackedDecimal.toLong(i -> bytes[i] & 0xFF, 0, 10));
+    }
+
+    @Test
+    public void toChars_scaledField_shouldInsertTheDecimalPoint() {
+        char[] destination = new char[PackedDecimal.maxChars(5)];
+        int length = PackedDecimal.toChars(source(0x00, 0x01, 0x23, 0x45, 0x6D), 0, 5, 2, destination);
+        Assert.assertEquals("-1234.56", new String(destination, 0, length));
+    }
+
+    @Test
+    public void toChars_onlyDecimals_shouldWriteALeadingZero() {
+        char[] destination = new char[PackedDecimal.maxChars(3)];
+        int length = PackedDecimal.toChars(source(0x00, 0x50, 0x0C), 0, 3, 4, destination);
+        Assert.assertEquals("0.0500", new String(destination, 0, length));
+    }
+
+    @Test
+    public void toChars_negativeZero_shouldNotWriteTheSign() {
+        char[] destination = new char[PackedDecimal.maxChars(2)];
+        int length = PackedDecimal.toChars(source(0x00, 0x0D), 0, 2, 0, destination);
+        Assert.assertEquals("0", new String(destination, 0, length));
+    }
+
+    @Test
+    public void toChars_moreDigitsThanALong_shouldKeepAllDigits() {
+        byte[] bytes = new byte[12];
+        Arrays.fill(bytes, (byte) 0x99);
+        bytes[11] = (byte) 0x9C;
+        char[] destination = new char[PackedDecimal.maxChars(12)];
+        int length = PackedDecimal.toChars(i -> bytes[i] & 0xFF, 0, 12, 3, destination);
+        Assert.assertEquals("99999999999999999999.999", new String(destination, 0, length));
+    }
+
+    @Test
+    public void toChars_invalidNibble_shouldReturnMinusOne() {
+        Assert.assertEquals(-1, PackedDecimal.toChars(source(0x1F, 0x2C), 0, 2, 0, new char[6]));
+    }
+
+    private static ByteSource source(int... bytes) {
+        return i -> bytes[i];
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.zthulj.zcopybook.codec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+public class TextDecoderTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_nullCharset_shouldThrowIllegalArgExc() {
+        TextDecoder.of(null);
+    }
+
+    @Test
+    public void of_ebcdicCharsets_shouldBeSingleByte() {
+        Assert.assertTrue(TextDecoder.of(Charset.forName("Cp037")).isSingleByte());
+        Assert.assertTrue(TextDecoder.of(Charset.forName("Cp1047")).isSingleByte());
+        Assert.assertTrue(TextDecoder.of(StandardCharsets.ISO_8859_1).isSingleByte());
+    }
+
+    @Test
+    public void of_utf8_shouldNotBeSingleByte() {
+        Assert.assertFalse(TextDecoder.of(StandardCharsets.UTF_8).isSingleByte());
+    }
+
+    @Test
+    public void decode_cp037Field_shouldDecodeOnlyTheFieldBytes() {
+        Charset cp037 = Charset.forName("Cp037");
+        byte[] record = "HELLO WORLD 42".getBytes(cp037);
+        char[] destination = new char[5];
+
+        int length = TextDecoder.of(cp037).decode(record, 6, 5, destination);
+
+        Assert.assertEquals(5, length);
+        Assert.assertEquals("WORLD", new String(destination, 0, length));
+    }
+
+    @Test
+    public void decode_cp037Buffer_shouldNotMoveThePosition() {
+        Charset cp037 = Charset.forName("Cp037");
+        ByteBuffer record = ByteBuffer.allocateDirect(14);
+        record.put("HELLO WORLD 42".getBytes(cp037)).flip();
+        char[] destination = new char[2];
+
+        int length = TextDecoder.of(cp037).decode(record, 12, 2, destination);
+
+        Assert.assertEquals("42", new String(destination, 0, length));
+        Assert.assertEquals(0, record.position());
+    }
+
+    @Test
+    public void decode_utf8Field_shouldUseTheCharsetDecoder() {
+        TextDecoder decoder = TextDecoder.of(StandardCharsets.UTF_8);
+        ByteBuffer field = ByteBuffer.wrap("é°".getBytes(StandardCharsets.UTF_8));
+        char[] destination = new char[4];
+
+        int length = decoder.decode(field, destination, decoder.newCharsetDecoder());
+
+        Assert.assertEquals("é°", new String(destination, 0, length));
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.zthulj.zcopybook.codec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+public class TextEncoderTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_nullCharset_shouldThrowIllegalArgExc() {
+        TextEncoder.of(null);
+    }
+
+    @Test
+    public void encode_cp037Chars_shouldMatchTheCharset() {
+        Charset cp037 = Charset.forName("Cp037");
+        TextEncoder encoder = TextEncoder.of(cp037);
+        String text = "HELLO world 42 {}";
+        byte[] expected = text.getBytes(cp037);
+
+        for (int i = 0; i < text.length(); i++) {
+            Assert.assertEquals(expected[i] & 0xFF, encoder.encode(text.charAt(i)));
+        }
+    }
+
+    @Test
+    public void encode_utf8_shouldOnlyMapAscii() {
+        TextEncoder encoder = TextEncoder.of(StandardCharsets.UTF_8);
+
+        Assert.assertEquals('A', encoder.encode('A'));
+        Assert.assertEquals(TextEncoder.UNMAPPABLE, encoder.encode('é'));
+    }
+}
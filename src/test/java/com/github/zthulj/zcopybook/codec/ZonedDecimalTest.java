@@ -0,0 +1,66 @@
+package com.github.zthulj.zcopybook.codec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ZonedDecimalTest {
+
+    @Test
+    public void toLong_plainDigits_shouldBePositive() {
+        Assert.assertEquals(12345L, toLong("0012345"));
+    }
+
+    @Test
+    public void toLong_positiveOverpunch_shouldReadTheLastDigit() {
+        Assert.assertEquals(1230L, toLong("123{"));
+        Assert.assertEquals(1231L, toLong("123A"));
+        Assert.assertEquals(1239L, toLong("123I"));
+    }
+
+    @Test
+    public void toLong_negativeOverpunch_shouldBeNegative() {
+        Assert.assertEquals(-1230L, toLong("123}"));
+        Assert.assertEquals(-1231L, toLong("123J"));
+        Assert.assertEquals(-1239L, toLong("123R"));
+    }
+
+    @Test
+    public void toLong_separateSign_shouldBeRead() {
+        Assert.assertEquals(-42L, toLong("-0042"));
+        Assert.assertEquals(42L, toLong("0042+"));
+        Assert.assertEquals(-42L, toLong("0042-"));
+    }
+
+    @Test
+    public void toLong_signAtItsKnownPlace_shouldBeRead() {
+        Assert.assertEquals(-42L, ZonedDecimal.toLong("-0042".toCharArray(), 0, 5, true));
+        Assert.assertEquals(42L, ZonedDecimal.toLong("0042+".toCharArray(), 0, 5, false));
+        Assert.assertEquals(ZonedDecimal.INVALID, ZonedDecimal.toLong("0042-".toCharArray(), 0, 5, true));
+        Assert.assertEquals(ZonedDecimal.INVALID, ZonedDecimal.toLong("00042".toCharArray(), 0, 5, false));
+        Assert.assertEquals(ZonedDecimal.INVALID, ZonedDecimal.toLong("+004B".toCharArray(), 0, 5, true));
+    }
+
+    @Test
+    public void toLong_eighteenDigits_shouldFitInALong() {
+        Assert.assertEquals(-999999999999999999L, toLong("99999999999999999R"));
+    }
+
+    @Test
+    public void toLong_invalidFields_shouldReturnInvalid() {
+        Assert.assertEquals(ZonedDecimal.INVALID, toLong("12 4"));
+        Assert.assertEquals(ZonedDecimal.INVALID, toLong("ABCD"));
+        Assert.assertEquals(ZonedDecimal.INVALID, toLong("-12J"));
+        Assert.assertEquals(ZonedDecimal.INVALID, toLong(""));
+        Assert.assertEquals(ZonedDecimal.INVALID, toLong("1234567890123456789"));
+    }
+
+    @Test
+    public void toLong_fieldAtAnOffset_shouldOnlyReadTheField() {
+        char[] chars = "XX12KYY".toCharArray();
+        Assert.assertEquals(-122L, ZonedDecimal.toLong(chars, 2, 3));
+    }
+
+    private static long toLong(String field) {
+        return ZonedDecimal.toLong(field.toCharArray(), 0, field.length());
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.zthulj.zcopybook.engine;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CopybookTokenizerTest {
+
+    @Test
+    public void tokenize_statementsOnManyLines_shouldSplitOnPeriods() {
+        List<String[]> statements = CopybookTokenizer.tokenize("01 CLIENT.\n  03 NAME\n     PIC X(18).\n");
+
+        Assert.assertEquals(2, statements.size());
+        Assert.assertArrayEquals(new String[]{"01", "CLIENT"}, statements.get(0));
+        Assert.assertArrayEquals(new String[]{"03", "NAME", "PIC", "X(18)"}, statements.get(1));
+    }
+
+    @Test
+    public void tokenize_commentLines_shouldBeSkipped() {
+        List<String[]> statements = CopybookTokenizer.tokenize("*****\n* 01 IGNORED.\n01 CLIENT. *> trailing comment.\n");
+
+        Assert.assertEquals(1, statements.size());
+        Assert.assertArrayEquals(new String[]{"01", "CLIENT"}, statements.get(0));
+    }
+
+    @Test
+    public void tokenize_periodInsideAPicture_shouldNotEndTheStatement() {
+        List<String[]> statements = CopybookTokenizer.tokenize("05 AMOUNT PIC 9(5).99.");
+
+        Assert.assertArrayEquals(new String[]{"05", "AMOUNT", "PIC", "9(5).99"}, statements.get(0));
+    }
+
+    @Test
+    public void tokenize_quotedLiteral_shouldBeASingleToken() {
+        List<String[]> statements = CopybookTokenizer.tokenize("05 LABEL PIC X(6) VALUE 'A. B''C'.\n05 OTHER PIC X.");
+
+        Assert.assertEquals(2, statements.size());
+        Assert.assertArrayEquals(new String[]{"05", "LABEL", "PIC", "X(6)", "VALUE", "'A. B''C'"}, statements.get(0));
+    }
+
+    @Test
+    public void tokenize_tabsAndCarriageReturns_shouldBeBlanks() {
+        List<String[]> statements = CopybookTokenizer.tokenize("01\tCLIENT.\r\n\t03  NAME\tPIC X.\r\n");
+
+        Assert.assertArrayEquals(new String[]{"03", "NAME", "PIC", "X"}, statements.get(1));
+    }
+
+    @Test
+    public void tokenize_lastStatementWithoutPeriod_shouldBeKept() {
+        Assert.assertArrayEquals(new String[]{"01", "CLIENT"}, CopybookTokenizer.tokenize("01 CLIENT").get(0));
+    }
+}
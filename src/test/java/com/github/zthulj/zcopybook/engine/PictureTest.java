@@ -0,0 +1,43 @@
+package com.github.zthulj.zcopybook.engine;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PictureTest {
+
+    @Test
+    public void parse_alphanumeric_shouldExpandRepetitions() {
+        Picture picture = Picture.parse("X(18)");
+        Assert.assertEquals(18, picture.getSize());
+        Assert.assertFalse(picture.isNumeric());
+    }
+
+    @Test
+    public void parse_signedWithDecimals_shouldComputeDigitsAndScale() {
+        Picture picture = Picture.parse("S9(13)V99");
+        Assert.assertEquals(15, picture.getSize());
+        Assert.assertEquals(15, picture.getDigits());
+        Assert.assertEquals(2, picture.getScale());
+        Assert.assertTrue(picture.isSigned());
+        Assert.assertTrue(picture.isNumeric());
+    }
+
+    @Test
+    public void parse_onlyDecimals_shouldHaveNoIntegerDigit() {
+        Picture picture = Picture.parse("SV9(4)");
+        Assert.assertEquals(4, picture.getDigits());
+        Assert.assertEquals(4, picture.getScale());
+    }
+
+    @Test
+    public void parse_editedPicture_shouldCountEachSymbol() {
+        Picture picture = Picture.parse("9(5).99");
+        Assert.assertEquals(8, picture.getSize());
+        Assert.assertFalse(picture.isNumeric());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_unclosedRepetition_shouldThrowIllegalArgExc() {
+        Picture.parse("X(18");
+    }
+}
@@ -0,0 +1,219 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.flow.Flow;
+import com.github.zthulj.zcopybook.plan.Filter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ZConverterProcessorTest {
+
+    private ZLoader loader = new ZLoader();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_withoutMapper_shouldThrowIllegalArgExc() throws IOException {
+        ZConverterProcessor.builder().converter(new ZConverter(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")))).build();
+    }
+
+    @Test
+    public void toJson_filteredRecords_shouldPublishTheOthersInOrder() throws IOException {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")))
+                .filter(Filter.startsWith("PAYMENT.REFERENCE", "P")).build();
+        ZConverterProcessor<String> processor = ZConverterProcessor.toJson(converter).executor(Runnable::run).build();
+        ListPublisher publisher = new ListPublisher(records("P001001234}012", "X002000000A00P", "P003000000A00P"));
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        Assert.assertEquals(Arrays.asList("{\"PAYMENT\":{\"REFERENCE\":\"P001\",\"AMOUNT\":\"001234}\",\"QUANTITY\":\"012\"}}",
+                "{\"PAYMENT\":{\"REFERENCE\":\"P003\",\"AMOUNT\":\"000000A\",\"QUANTITY\":\"00P\"}}"), subscriber.items);
+        Assert.assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void subscribe_slowSubscriber_shouldRequestNoMoreThanTheBuffer() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")));
+        ZConverterProcessor<Integer> processor = ZConverterProcessor.<Integer>builder().converter(converter)
+                .mapper(record -> record.length()).executor(Runnable::run).bufferSize(4).build();
+        ListPublisher publisher = new ListPublisher(Collections.nCopies(100, "P001001234}012".getBytes(StandardCharsets.UTF_8)));
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(2);
+
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        Assert.assertEquals(Arrays.asList(14, 14), subscriber.items);
+        Assert.assertEquals(6, publisher.requested);
+        Assert.assertEquals(6, publisher.next);
+        Assert.assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void subscribe_parallelConversion_shouldKeepTheOrder() throws Exception {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))).typedNumbers(true).build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ZConverterProcessor<String> processor = ZConverterProcessor.toJson(converter).executor(executor).parallelism(4).bufferSize(16).build();
+            List<byte[]> records = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                records.add(String.format("P%03d%07d%03d", i % 1000, i, i % 1000).getBytes(StandardCharsets.UTF_8));
+            }
+            RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+
+            processor.subscribe(subscriber);
+            new ListPublisher(records).subscribe(processor);
+
+            Assert.assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(1000, subscriber.items.size());
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(String.format("{\"PAYMENT\":{\"REFERENCE\":\"P%03d\",\"AMOUNT\":%d.%02d,\"QUANTITY\":%d}}", i, i / 100, i % 100, i), subscriber.items.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void subscribe_failedConversion_shouldCancelUpstreamAndSendTheError() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")));
+        ZConverterProcessor<String> processor = ZConverterProcessor.toJson(converter).executor(Runnable::run).build();
+        ListPublisher publisher = new ListPublisher(records("P001001234}012", "TOO SHORT", "P003000000A00P"));
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        Assert.assertEquals(1, subscriber.items.size());
+        Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assert.assertTrue(publisher.cancelled);
+    }
+
+    @Test
+    public void subscribe_secondSubscriber_shouldReceiveAnError() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")));
+        ZConverterProcessor<String> processor = ZConverterProcessor.toJson(converter).build();
+        RecordingSubscriber<String> second = new RecordingSubscriber<>(1);
+
+        processor.subscribe(new RecordingSubscriber<>(1));
+        processor.subscribe(second);
+
+        Assert.assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void subscribe_rejectedSubscriberCancelling_shouldNotStopTheFirstOne() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")));
+        ZConverterProcessor<String> processor = ZConverterProcessor.toJson(converter).executor(Runnable::run).build();
+        RecordingSubscriber<String> first = new RecordingSubscriber<>(Long.MAX_VALUE);
+        RecordingSubscriber<String> second = new RecordingSubscriber<String>(1) {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(-1);
+                subscription.cancel();
+            }
+        };
+
+        processor.subscribe(first);
+        processor.subscribe(second);
+        new ListPublisher(records("P001001234}012", "P002000000A00P")).subscribe(processor);
+
+        Assert.assertTrue(second.error instanceof IllegalStateException);
+        Assert.assertEquals(2, first.items.size());
+        Assert.assertTrue(first.completed);
+        Assert.assertNull(first.error);
+    }
+
+    private static List<byte[]> records(String... records) {
+        List<byte[]> bytes = new ArrayList<>();
+        for (String record : records) {
+            bytes.add(record.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes;
+    }
+
+    /**
+     * Publish a list as it is requested, completing after the last item
+     */
+    private static final class ListPublisher implements Flow.Publisher<byte[]> {
+        private final List<byte[]> records;
+        private int next;
+        private long requested;
+        private boolean emitting;
+        private volatile boolean cancelled;
+
+        private ListPublisher(List<byte[]> records) {
+            this.records = records;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super byte[]> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    synchronized (ListPublisher.this) {
+                        requested += n;
+                        if (emitting)
+                            return;
+                        emitting = true;
+                        while (!cancelled && next < Math.min(requested, records.size())) {
+                            subscriber.onNext(records.get(next++));
+                        }
+                        if (!cancelled && next == records.size())
+                            subscriber.onComplete();
+                        emitting = false;
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        private final long demand;
+        private final List<T> items = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        private RecordingSubscriber(long demand) {
+            this.demand = demand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(demand);
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+}
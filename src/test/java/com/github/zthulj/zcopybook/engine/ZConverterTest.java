@@ -1,11 +1,31 @@
 package com.github.zthulj.zcopybook.engine;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.metrics.CountingMetrics;
+import com.github.zthulj.zcopybook.model.Coordinates;
+import com.github.zthulj.zcopybook.model.ValueNode;
 import com.github.zthulj.zcopybook.model.ZCopyBook;
+import com.github.zthulj.zcopybook.plan.BytesRecord;
+import com.github.zthulj.zcopybook.plan.DecodeException;
+import com.github.zthulj.zcopybook.plan.Discriminator;
+import com.github.zthulj.zcopybook.plan.Filter;
+import com.github.zthulj.zcopybook.plan.StringRecord;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
 
 public class ZConverterTest {
 
@@ -36,4 +56,400 @@ public class ZConverterTest {
         Assert.assertEquals("{\"CLIENT\":{\"CLIENT-COMMON-INFOS\":{\"FIRSTNAME\":\"AZERTYUIOPMLKJHGFD\",\"LASTNAME\":\"AZERTYUIOPML\"},\"SIGNEDFLOAT\":\"1234567890°POIU\",\"SIGNEDINT\":\"LKJHGFHDJSKQL\",\"PIC-X\":\"I\",\"DUPLICATE\":\"T\",\"DUPLICATE2\":\"I\",\"DUPLICATE3\":\"T\",\"ELSE\":\"AJDNCBFGTYRUEIJFKR\"}}",json);
 
     }
+
+    @Test
+    public void writeJson_outputStream_shouldWriteUtf8Json() throws IOException {
+        ZCopyBook copybook = loader.load(Utils.fileFromResource("copybook/simplecopybook.cbl"));
+        ZConverter converter = new ZConverter(copybook);
+        String line = "AZERTYUIOPMLKJHGFDAZERTYUIOPML1234567890°POIULKJHGFHDJSKQLITITAJDNCBFGTYRUEIJFKR";
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.writeJson(line, out);
+
+        Assert.assertEquals(converter.convertToJson(line), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writeJson_manyLinesInTheSameGenerator_shouldStreamAllTheRecords() throws IOException {
+        ZCopyBook copybook = loader.load(Utils.fileFromResource("copybook/oneParentWithOccurs.cbl"));
+        ZConverter converter = new ZConverter(copybook);
+        String first = "111111111111111111222222222222333333333333333333444444444444555555555555555555666666666666";
+        String second = "ABCDEFGHIJKLMNOPQRABCDEFGHIJKLABCDEFGHIJKLMNOPQRABCDEFGHIJKLABCDEFGHIJKLMNOPQRABCDEFGHIJKL";
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = converter.createGenerator(out)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            converter.writeJson(first, generator);
+            converter.writeJson(second, generator);
+        }
+
+        Assert.assertEquals(converter.convertToJson(first) + "\n" + converter.convertToJson(second), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writeJson_nullGenerator_shouldThrowIllegalArgExeption() throws IOException {
+        ZCopyBook copybook = loader.load(Utils.fileFromResource("copybook/singleParentOneChildValue.cbl"));
+        new ZConverter(copybook).writeJson("AZERTYUIOPMLKJHGFD", (JsonGenerator) null);
+    }
+
+    @Test
+    public void convertToJson_ebcdicBytes_shouldDecodeEachFieldWithTheConverterCharset() throws IOException {
+        ZCopyBook copybook = loader.load(Utils.fileFromResource("copybook/simplecopybook.cbl"));
+        Charset cp037 = Charset.forName("Cp037");
+        ZConverter converter = ZConverter.builder().copyBook(copybook).charset(cp037).build();
+        String line = "AZERTYUIOPMLKJHGFDAZERTYUIOPML1234567890°POIULKJHGFHDJSKQLITITAJDNCBFGTYRUEIJFKR";
+        byte[] record = ("HEADER" + line + "TRAILER").getBytes(cp037);
+
+        String json = converter.convertToJson(record, 6, 80);
+
+        Assert.assertEquals(new ZConverter(copybook).convertToJson(line), json);
+    }
+
+    @Test
+    public void convertToJson_utf8DirectBuffer_shouldDecodeEachFieldAndKeepThePosition() throws IOException {
+        ZCopyBook copybook = loader.load(Utils.fileFromResource("copybook/aParentAndSomeChildsAtSameLevel.cbl"));
+        ZConverter converter = new ZConverter(copybook);
+        String line = "AZERTYUIOPMLKJHGFDAZERTYUIOPMLQSDFGHJKLMWXCVBNAZWXCVBNQSDFGHJKLMAZ";
+        ByteBuffer record = ByteBuffer.allocateDirect(70);
+        record.put("ABCD".getBytes(StandardCharsets.UTF_8)).put(line.getBytes(StandardCharsets.UTF_8)).position(4);
+
+        String json = converter.convertToJson(record);
+
+        Assert.assertEquals(converter.convertToJson(line), json);
+        Assert.assertEquals(4, record.position());
+    }
+
+    @Test
+    public void writeJson_reusedRecord_shouldConvertEachWrappedRecord() throws IOException {
+        ZCopyBook copybook = loader.load(Utils.fileFromResource("copybook/singleParentOneChildValue.cbl"));
+        ZConverter converter = ZConverter.builder().copyBook(copybook).charset(StandardCharsets.ISO_8859_1).build();
+        byte[] records = "AZERTYUIOPMLKJHGFDQSDFGHJKLMWXCVBNAZ".getBytes(StandardCharsets.ISO_8859_1);
+        BytesRecord record = converter.newBytesRecord();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = converter.createGenerator(out)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            converter.writeJson(record.wrap(records, 0, 18), generator);
+            converter.writeJson(record.wrap(records, 18, 18), generator);
+        }
+
+        Assert.assertEquals("{\"CLIENT\":{\"CLIENT-NAME\":\"AZERTYUIOPMLKJHGFD\"}}\n{\"CLIENT\":{\"CLIENT-NAME\":\"QSDFGHJKLMWXCVBNAZ\"}}",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void convertToJson_packedDecimals_shouldWriteJsonNumbers() throws IOException {
+        Charset cp037 = Charset.forName("Cp037");
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/packedDecimal.cbl"));
+        ZConverter converter = ZConverter.builder().copyBook(copybook).charset(cp037).build();
+        ByteBuffer record = ByteBuffer.allocate(18);
+        record.put("A001".getBytes(cp037))
+                .put(new byte[]{0x00, 0x12, 0x34, 0x56, 0x7D})
+                .put(new byte[]{0x00, 0x50, 0x0C})
+                .put(new byte[]{0x00, 0x04, 0x2F})
+                .put("XYZ".getBytes(cp037))
+                .flip();
+
+        String json = converter.convertToJson(record);
+
+        Assert.assertEquals("{\"ACCOUNT\":{\"ID\":\"A001\",\"BALANCE\":-12345.67,\"RATE\":0.0500,\"COUNTER\":42,\"LABEL\":\"XYZ\"}}", json);
+    }
+
+    @Test
+    public void convertToJson_binaryIntegers_shouldWriteJsonNumbers() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/binaryInteger.cbl")));
+        ByteBuffer record = ByteBuffer.allocate(22);
+        record.putShort((short) 0xFFFE).putInt(-42).putLong(-123456).putLong(-1L).flip();
+
+        String json = converter.convertToJson(record);
+
+        Assert.assertEquals("{\"COUNTERS\":{\"SMALL\":65534,\"KEY\":-42,\"AMOUNT\":-1234.56,\"TOTAL\":18446744073709551615}}", json);
+    }
+
+    @Test
+    public void convertToJson_typedNumbers_shouldWriteZonedDecimalsAsJsonNumbers() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"));
+        ZConverter converter = ZConverter.builder().copyBook(copybook).typedNumbers(true).build();
+
+        Assert.assertEquals("{\"PAYMENT\":{\"REFERENCE\":\"P001\",\"AMOUNT\":-123.40,\"QUANTITY\":12}}", converter.convertToJson("P001001234}012"));
+        Assert.assertEquals("{\"PAYMENT\":{\"REFERENCE\":\"P002\",\"AMOUNT\":0.01,\"QUANTITY\":-7}}", converter.convertToJson("P002000000A00P"));
+    }
+
+    @Test
+    public void convertToJson_typedNumbersFromEbcdic_shouldReadTheSignZone() throws IOException {
+        Charset cp037 = Charset.forName("Cp037");
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"));
+        ZConverter converter = ZConverter.builder().copyBook(copybook).charset(cp037).typedNumbers(true).build();
+        byte[] record = "P0030100000125".getBytes(cp037);
+        record[10] = (byte) 0xD0;
+        record[13] = (byte) 0xC5;
+
+        Assert.assertEquals("{\"PAYMENT\":{\"REFERENCE\":\"P003\",\"AMOUNT\":-1000.00,\"QUANTITY\":125}}", converter.convertToJson(record, 0, record.length));
+    }
+
+    @Test
+    public void convertToJson_withoutTypedNumbers_shouldKeepZonedDecimalsAsStrings() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")));
+
+        Assert.assertEquals("{\"PAYMENT\":{\"REFERENCE\":\"P001\",\"AMOUNT\":\"001234}\",\"QUANTITY\":\"012\"}}", converter.convertToJson("P001001234}012"));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void convertToJson_typedNumbersWithInvalidDigits_shouldThrowIllegalArgExeption() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"));
+        ZConverter.builder().copyBook(copybook).typedNumbers(true).build().convertToJson("P001ABCDEFG012");
+    }
+
+    @Test
+    public void convertToJson_errorSink_shouldRejectTheBadRecordsWithTheirReason() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"));
+        ZConverter converter = ZConverter.builder().copyBook(copybook).typedNumbers(true).build();
+        List<String> rejects = new ArrayList<>();
+        ErrorSink errors = (index, record, error) -> rejects.add(index + " " + error.getReason() + " " + error.getField() + " " + error.getValue() + " " + error.getStackTrace().length);
+        String[] lines = {"P001001234}012", "P001ABCDEFG012", "P002", "P003000000A00P"};
+        List<String> jsons = new ArrayList<>();
+
+        for (int i = 0; i < lines.length; i++) {
+            jsons.add(converter.convertToJson(new StringRecord().wrap(lines[i]), i, errors));
+        }
+
+        Assert.assertEquals("{\"PAYMENT\":{\"REFERENCE\":\"P001\",\"AMOUNT\":-123.40,\"QUANTITY\":12}}", jsons.get(0));
+        Assert.assertNull(jsons.get(1));
+        Assert.assertNull(jsons.get(2));
+        Assert.assertNotNull(jsons.get(3));
+        Assert.assertEquals(2, rejects.size());
+        Assert.assertEquals("1 INVALID_NUMBER PAYMENT.AMOUNT ABCDEFG 0", rejects.get(0));
+        Assert.assertEquals("2 WRONG_LENGTH null 4 bytes, 14 waited 0", rejects.get(1));
+    }
+
+    @Test
+    public void convertToJson_errorSinkAndCodecFailures_shouldRejectThemOnTheirField() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/redefines.cbl"));
+        CountingMetrics metrics = new CountingMetrics();
+        ZConverter converter = ZConverter.builder().copyBook(copybook)
+                .discriminator("TRANSACTION.PAYMENT", Discriminator.on("TRANSACTION.RECORD-TYPE", type -> Integer.parseInt(type) > 0 ? "REFUND" : null))
+                .charset(StandardCharsets.ISO_8859_1).metrics(metrics).build();
+        List<DecodeException> rejects = new ArrayList<>();
+        ErrorSink errors = (index, record, error) -> rejects.add(error);
+        BytesRecord record = converter.newBytesRecord();
+
+        Assert.assertNull(converter.convertToJson(new StringRecord().wrap("XFR761234001234{WB"), 0, errors));
+        Assert.assertNull(converter.convertToJson(record.wrap("1ABCDEF".getBytes(StandardCharsets.ISO_8859_1), 0, 18), 1, errors));
+
+        Assert.assertEquals(2, rejects.size());
+        Assert.assertEquals(DecodeException.Reason.DISCRIMINATOR_FAILED, rejects.get(0).getReason());
+        Assert.assertEquals("TRANSACTION.RECORD-TYPE", rejects.get(0).getField());
+        Assert.assertEquals("X", rejects.get(0).getValue());
+        Assert.assertTrue(rejects.get(0).getCause() instanceof NumberFormatException);
+        Assert.assertEquals(DecodeException.Reason.TRUNCATED, rejects.get(1).getReason());
+        Assert.assertEquals("TRANSACTION.REFUND.REASON", rejects.get(1).getField());
+        Assert.assertEquals(7, rejects.get(1).getOffset());
+        Assert.assertTrue(rejects.get(1).getCause() instanceof IndexOutOfBoundsException);
+        Assert.assertEquals(0, rejects.get(1).getStackTrace().length);
+        Assert.assertFalse(record.isLenient());
+        CountingMetrics.LayoutMetrics layout = metrics.getLayout(converter.getName());
+        Assert.assertEquals(1, layout.getDecodeErrors("TRANSACTION.RECORD-TYPE"));
+        Assert.assertEquals(1, layout.getDecodeErrors("TRANSACTION.REFUND.REASON"));
+    }
+
+    @Test
+    public void convertToJson_invalidNumber_shouldThrowADecodeExceptionWithItsStackTrace() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"));
+        try {
+            ZConverter.builder().copyBook(copybook).typedNumbers(true).build().convertToJson("P001ABCDEFG012");
+            Assert.fail();
+        } catch (DecodeException e) {
+            Assert.assertEquals(DecodeException.Reason.INVALID_NUMBER, e.getReason());
+            Assert.assertEquals(4, e.getOffset());
+            Assert.assertEquals("Invalid number for PAYMENT.AMOUNT at offset 4 : ABCDEFG", e.getMessage());
+            Assert.assertTrue(e.getStackTrace().length > 0);
+        }
+    }
+
+    @Test
+    public void convertToJson_afterAFailedRecord_shouldNotKeepItsPartialJson() throws IOException {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))).typedNumbers(true).build();
+        String first = converter.convertToJson("P001001234}012");
+        try {
+            converter.convertToJson("P002ABCDEFG012");
+            Assert.fail();
+        } catch (DecodeException e) {
+            Assert.assertEquals(DecodeException.Reason.INVALID_NUMBER, e.getReason());
+        }
+
+        Assert.assertEquals(first, converter.convertToJson("P001001234}012"));
+        Assert.assertEquals("{\"PAYMENT\":{\"REFERENCE\":\"P001\",\"AMOUNT\":-123.40,\"QUANTITY\":12}}", first);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void convertToJson_invalidPackedDecimal_shouldThrowIllegalArgExeption() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/packedDecimal.cbl")));
+        byte[] record = new byte[18];
+        converter.convertToJson(record, 0, record.length);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void convertToJson_bytesOfWrongLength_shouldThrowIllegalArgExeption() throws IOException {
+        ZCopyBook copybook = loader.load(Utils.fileFromResource("copybook/singleParentOneChildValue.cbl"));
+        new ZConverter(copybook).convertToJson(new byte[20], 0, 17);
+    }
+
+    @Test
+    public void convertToJson_occursDependingOn_shouldWriteThePresentOccurrencesOnly() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")));
+
+        Assert.assertEquals("{\"ORDER\":{\"ORDER-ID\":\"A001\",\"LINE-COUNT\":\"02\",\"ORDER-LINES\":[{\"PRODUCT\":\"P01\",\"QUANTITY\":\"10\"},{\"PRODUCT\":\"P02\",\"QUANTITY\":\"20\"}],\"STATUS\":\"S\"}}",
+                converter.convertToJson("A00102P0110P0220S"));
+        Assert.assertEquals("{\"ORDER\":{\"ORDER-ID\":\"A002\",\"LINE-COUNT\":\"00\",\"ORDER-LINES\":[],\"STATUS\":\"C\"}}",
+                converter.convertToJson("A00200C".getBytes(StandardCharsets.UTF_8), 0, 7));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void convertToJson_occursDependingOnPaddedToTheMaximum_shouldThrowIllegalArgExeption() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")));
+        converter.convertToJson("A00102P0110P0220                S");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void convertToJson_counterOutOfRange_shouldThrowIllegalArgExeption() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")));
+        converter.convertToJson("A00106P0110P0220P0330P0440P0550P0660S");
+    }
+
+    @Test
+    public void convertToJson_redefinesWithoutDiscriminator_shouldWriteTheRedefinedItemOnly() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/redefines.cbl")));
+
+        Assert.assertEquals("{\"TRANSACTION\":{\"RECORD-TYPE\":\"P\",\"PAYMENT\":{\"IBAN\":\"FR761234\",\"AMOUNT\":\"001234{\"},\"CHANNEL\":\"WB\"}}",
+                converter.convertToJson("PFR761234001234{WB"));
+    }
+
+    @Test
+    public void convertToJson_redefinesWithDiscriminator_shouldDecodeTheChosenBranchOnly() throws IOException {
+        ZConverter converter = ZConverter.builder()
+                .copyBook(loader.load(Utils.fileFromResource("copybook/redefines.cbl")))
+                .typedNumbers(true)
+                .discriminator("TRANSACTION.PAYMENT", Discriminator.on("TRANSACTION.RECORD-TYPE", type -> "R".equals(type) ? "REFUND" : "N".equals(type) ? "NOTE" : null))
+                .build();
+
+        Assert.assertEquals("{\"TRANSACTION\":{\"RECORD-TYPE\":\"P\",\"PAYMENT\":{\"IBAN\":\"FR761234\",\"AMOUNT\":123.40},\"CHANNEL\":\"WB\"}}",
+                converter.convertToJson("PFR761234001234{WB"));
+        // The amount of the payment branch is not a zoned decimal there : it must not be decoded
+        Assert.assertEquals("{\"TRANSACTION\":{\"RECORD-TYPE\":\"R\",\"REFUND\":{\"ORIGINAL-ID\":\"TX0001\",\"REASON\":\"DUP\"},\"CHANNEL\":\"WB\"}}",
+                converter.convertToJson("RTX0001DUP      WB"));
+        Assert.assertEquals("{\"TRANSACTION\":{\"RECORD-TYPE\":\"N\",\"NOTE\":\"CALL BACK LATER\",\"CHANNEL\":\"PH\"}}",
+                converter.convertToJson("NCALL BACK LATERPH"));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void convertToJson_discriminatorChoosingAnUnknownBranch_shouldThrowIllegalArgExeption() throws IOException {
+        ZConverter converter = ZConverter.builder()
+                .copyBook(loader.load(Utils.fileFromResource("copybook/redefines.cbl")))
+                .discriminator("TRANSACTION.PAYMENT", Discriminator.on("TRANSACTION.RECORD-TYPE", type -> "UNKNOWN"))
+                .build();
+        converter.convertToJson("PFR761234001234{WB");
+    }
+
+    @Test
+    public void convertToJson_projection_shouldConvertTheSelectedFieldsOnly() throws IOException {
+        ZConverter converter = ZConverter.builder()
+                .copyBook(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")))
+                .field("ORDER.ORDER-LINES.PRODUCT")
+                .field("ORDER.STATUS")
+                .build();
+
+        Assert.assertEquals("{\"ORDER\":{\"ORDER-LINES\":[{\"PRODUCT\":\"P01\"},{\"PRODUCT\":\"P02\"}],\"STATUS\":\"S\"}}",
+                converter.convertToJson("A00102P0110P0220S"));
+    }
+
+    @Test
+    public void convertToJson_filteredEbcdicRecord_shouldReturnNull() throws IOException {
+        Charset cp037 = Charset.forName("Cp037");
+        ZConverter converter = ZConverter.builder()
+                .copyBook(loader.load(Utils.fileFromResource("copybook/redefines.cbl")))
+                .charset(cp037)
+                .filter(Filter.in("TRANSACTION.RECORD-TYPE", "P", "R"))
+                .build();
+
+        Assert.assertNotNull(converter.convertToJson("PFR761234001234{WB".getBytes(cp037), 0, 18));
+        Assert.assertNull(converter.convertToJson("NCALL BACK LATERPH".getBytes(cp037), 0, 18));
+    }
+
+    @Test
+    public void convertToJson_compiledConverter_shouldMatchTheInterpretedOne() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/packedDecimal.cbl"));
+        ZConverter interpreted = ZConverter.builder().copyBook(copybook).charset(Charset.forName("Cp037")).build();
+        ZConverter compiled = ZConverter.builder().copyBook(copybook).charset(Charset.forName("Cp037")).compiled(true).build();
+        byte[] record = {(byte) 0xC1, (byte) 0xC2, (byte) 0xC3, (byte) 0xC4, 0x00, 0x12, 0x34, 0x56, 0x7D, 0x00, 0x12, 0x5C, 0x01, 0x23, 0x4F, (byte) 0xC1, (byte) 0xC2, (byte) 0xC3};
+
+        Assert.assertTrue(compiled.getPlan().isCompiled());
+        Assert.assertEquals(interpreted.convertToJson(record, 0, record.length), compiled.convertToJson(record, 0, record.length));
+    }
+
+    @Test
+    public void convertToJson_copybookWithOccurs_shouldBeIdenticalToTreeSerialization() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("integration/integration1.cbl"));
+        ZConverter converter = new ZConverter(copybook);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20; i++) {
+            String line = randomLine(random, copybook.getWaitedLength());
+            Assert.assertEquals(treeSerialization(copybook, line), converter.convertToJson(line));
+        }
+    }
+
+    @Test
+    public void convertToJson_sharedConverter_manyThreads_shouldNotMixRecords() throws Exception {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("integration/integration1.cbl"));
+        ZConverter converter = new ZConverter(copybook);
+        Random random = new Random(7);
+
+        List<String> lines = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            String line = randomLine(random, copybook.getWaitedLength());
+            lines.add(line);
+            expected.add(treeSerialization(copybook, line));
+        }
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> mismatches = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            mismatches.add(pool.submit(() -> {
+                start.await();
+                int errors = 0;
+                for (int i = 0; i < 200 * lines.size(); i++) {
+                    int index = (i + offset) % lines.size();
+                    if (!expected.get(index).equals(converter.convertToJson(lines.get(index))))
+                        errors++;
+                }
+                return errors;
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+
+        for (Future<Integer> result : mismatches) {
+            Assert.assertEquals(Integer.valueOf(0), result.get(1, TimeUnit.MINUTES));
+        }
+    }
+
+    private static String randomLine(Random random, int length) {
+        StringBuilder line = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            line.append((char) ('0' + random.nextInt(75)));
+        }
+        return line.toString();
+    }
+
+    private static String treeSerialization(ZCopyBook<String> copybook, String line) throws JsonProcessingException {
+        for (ValueNode<String> valueNode : copybook.getValueNodes()) {
+            Coordinates c = valueNode.getCoordinates();
+            valueNode.setValue(line.substring(c.getStart(), c.getEnd()));
+        }
+        return new ObjectMapper().writeValueAsString(copybook.getRootNode());
+    }
 }
@@ -0,0 +1,152 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+public class ZCopyBookRegistryTest {
+
+    private static final String CLIENT = "01 CLIENT.\n  03 NAME PIC X(4).\n";
+    private static final String CLIENT_V2 = "01 CLIENT.\n  03 NAME PIC X(4).\n  03 CITY PIC X(2).\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void load_sameContentTwice_shouldParseOnce() {
+        ZCopyBookRegistry registry = new ZCopyBookRegistry();
+
+        ZCopyBook<String> first = registry.load(CLIENT);
+        ZCopyBook<String> second = registry.load(new String(CLIENT.toCharArray()));
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void load_differentContents_shouldCacheBoth() {
+        ZCopyBookRegistry registry = new ZCopyBookRegistry();
+
+        Assert.assertNotSame(registry.load(CLIENT), registry.load(CLIENT_V2));
+        Assert.assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void load_moreThanMaxEntries_shouldEvictTheLeastRecentlyUsed() {
+        ZCopyBookRegistry registry = ZCopyBookRegistry.builder().maxEntries(2).build();
+        ZCopyBook<String> client = registry.load(CLIENT);
+        registry.load(CLIENT_V2);
+        registry.load(CLIENT);
+
+        registry.load("01 OTHER.\n  03 CODE PIC X.\n");
+
+        Assert.assertEquals(2, registry.size());
+        Assert.assertSame(client, registry.load(CLIENT));
+    }
+
+    @Test
+    public void load_file_shouldShareTheCacheWithStrings() throws IOException {
+        ZCopyBookRegistry registry = new ZCopyBookRegistry();
+        Path file = folder.newFile("client.cbl").toPath();
+        Files.write(file, CLIENT.getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertSame(registry.load(CLIENT), registry.load(file));
+    }
+
+    @Test
+    public void register_newVersion_shouldKeepTheOldConverterWorking() throws IOException {
+        ZCopyBookRegistry registry = new ZCopyBookRegistry();
+        registry.register("client", CLIENT);
+        ZConverter old = registry.getConverter("client");
+
+        registry.register("client", CLIENT_V2);
+
+        Assert.assertSame(registry.getConverter("client"), registry.getConverter("client"));
+        Assert.assertEquals("{\"CLIENT\":{\"NAME\":\"ABCD\"}}", old.convertToJson("ABCD"));
+        Assert.assertEquals("{\"CLIENT\":{\"NAME\":\"ABCD\",\"CITY\":\"EF\"}}", registry.getConverter("client").convertToJson("ABCDEF"));
+    }
+
+    @Test
+    public void getConverter_unknownName_shouldReturnNull() {
+        Assert.assertNull(new ZCopyBookRegistry().getConverter("unknown"));
+    }
+
+    @Test
+    public void watch_modifiedAndDeletedFiles_shouldSwapTheRegisteredVersions() throws Exception {
+        Path directory = folder.newFolder("copybooks").toPath();
+        Path file = directory.resolve("client.cbl");
+        Files.write(file, CLIENT.getBytes(StandardCharsets.UTF_8));
+
+        try (ZCopyBookRegistry registry = new ZCopyBookRegistry()) {
+            registry.watch(directory);
+            Assert.assertEquals(4, registry.getCopyBook("client.cbl").getWaitedLength());
+
+            Files.write(file, CLIENT_V2.getBytes(StandardCharsets.UTF_8));
+            awaitUntil(() -> registry.getCopyBook("client.cbl").getWaitedLength() == 6);
+
+            Files.write(directory.resolve("other.cbl"), "01 OTHER.\n  03 CODE PIC X.\n".getBytes(StandardCharsets.UTF_8));
+            awaitUntil(() -> null != registry.getCopyBook("other.cbl"));
+
+            Files.delete(file);
+            awaitUntil(() -> null == registry.getCopyBook("client.cbl"));
+        }
+    }
+
+    @Test
+    public void watch_fileStillBeingWritten_shouldOnlyLoadItOnceSettled() throws Exception {
+        Path directory = folder.newFolder("copybooks").toPath();
+        Path file = directory.resolve("client.cbl");
+        Files.write(file, CLIENT.getBytes(StandardCharsets.UTF_8));
+
+        try (ZCopyBookRegistry registry = ZCopyBookRegistry.builder().settleDelay(Duration.ofSeconds(2)).build()) {
+            registry.watch(directory);
+
+            Files.write(file, "01 CLIENT.\n  03 NAME PIC X(4).\n  03 CITY PIC X(1).\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(file, CLIENT_V2.getBytes(StandardCharsets.UTF_8));
+            awaitUntil(() -> registry.getCopyBook("client.cbl").getWaitedLength() == 6);
+
+            Assert.assertEquals(2, registry.size());
+        }
+    }
+
+    @Test
+    public void watch_sameFileNameInTwoDirectories_shouldThrowIllegalArgExc() throws Exception {
+        Path first = folder.newFolder("first").toPath();
+        Path second = folder.newFolder("second").toPath();
+        Files.write(first.resolve("client.cbl"), CLIENT.getBytes(StandardCharsets.UTF_8));
+        Files.write(second.resolve("client.cbl"), CLIENT_V2.getBytes(StandardCharsets.UTF_8));
+
+        try (ZCopyBookRegistry registry = new ZCopyBookRegistry()) {
+            registry.watch(first);
+            try {
+                registry.watch(second);
+                Assert.fail("The duplicate name should be rejected");
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals(4, registry.getCopyBook("client.cbl").getWaitedLength());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_nullCopybook_shouldThrowIllegalArgExc() {
+        new ZCopyBookRegistry().load((String) null);
+    }
+
+    private static void awaitUntil(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!condition.get()) {
+            if (System.currentTimeMillis() > deadline)
+                Assert.fail("Condition not met in time");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.framing.RecordFramer;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import com.github.zthulj.zcopybook.plan.DecodeException;
+import com.github.zthulj.zcopybook.plan.StringRecord;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class ZDispatcherTest {
+
+    private static final String HEADER = "H20240131";
+    private static final String DETAIL = "DACC001001234}";
+    private static final String TRAILER = "T0001";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ZLoader loader = new ZLoader();
+    private Map<String, ZCopyBook> records;
+
+    @Before
+    public void setUp() throws IOException {
+        records = loader.loadAll(new String(Files.readAllBytes(Utils.fileFromResource("copybook/multipleRecords.cbl").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void convertToJson_mixedRecords_shouldConvertEachOneWithItsLayout() throws IOException {
+        ZDispatcher dispatcher = dispatcher(StandardCharsets.UTF_8);
+
+        Assert.assertEquals("{\"HEADER\":{\"RECORD-TYPE\":\"H\",\"FILE-DATE\":\"20240131\"}}", dispatcher.convertToJson(HEADER));
+        Assert.assertEquals("{\"DETAIL\":{\"RECORD-TYPE\":\"D\",\"ACCOUNT\":\"ACC001\",\"AMOUNT\":-123.40}}", dispatcher.convertToJson(DETAIL));
+        Assert.assertEquals("{\"TRAILER\":{\"RECORD-TYPE\":\"T\",\"RECORD-COUNT\":\"0001\"}}", dispatcher.convertToJson(TRAILER.getBytes(StandardCharsets.UTF_8), 0, 5));
+    }
+
+    @Test
+    public void convertToJson_multiCharCodes_shouldBeFoundInTheTable() throws IOException {
+        ZDispatcher dispatcher = ZDispatcher.builder().offset(1).length(2)
+                .layout("20", new ZConverter(records.get("HEADER")))
+                .layout("00", new ZConverter(records.get("TRAILER")))
+                .build();
+
+        Assert.assertEquals("{\"TRAILER\":{\"RECORD-TYPE\":\"T\",\"RECORD-COUNT\":\"0001\"}}", dispatcher.convertToJson(TRAILER));
+        Assert.assertEquals("{\"HEADER\":{\"RECORD-TYPE\":\"H\",\"FILE-DATE\":\"20240131\"}}", dispatcher.convertToJson(HEADER));
+    }
+
+    @Test
+    public void convertToJson_codesShorterThanTheField_shouldBePaddedWithSpaces() throws IOException {
+        ZDispatcher dispatcher = ZDispatcher.builder().offset(0).length(2)
+                .layout("H", ZConverter.builder().copyBook(records.get("HEADER")).charset(StandardCharsets.ISO_8859_1).build())
+                .layout("T0", ZConverter.builder().copyBook(records.get("TRAILER")).charset(StandardCharsets.ISO_8859_1).build())
+                .build();
+
+        Assert.assertEquals("{\"HEADER\":{\"RECORD-TYPE\":\"H\",\"FILE-DATE\":\" 0240131\"}}", dispatcher.convertToJson("H 0240131"));
+        Assert.assertEquals("{\"TRAILER\":{\"RECORD-TYPE\":\"T\",\"RECORD-COUNT\":\"0001\"}}", dispatcher.convertToJson(TRAILER));
+        try {
+            dispatcher.convertToJson(HEADER);
+            Assert.fail();
+        } catch (DecodeException e) {
+            Assert.assertEquals(DecodeException.Reason.UNKNOWN_RECORD_TYPE, e.getReason());
+        }
+    }
+
+    @Test
+    public void convertToJson_unknownCode_shouldThrowDecodeException() throws IOException {
+        try {
+            dispatcher(StandardCharsets.UTF_8).convertToJson("X0001");
+            Assert.fail();
+        } catch (DecodeException e) {
+            Assert.assertEquals(DecodeException.Reason.UNKNOWN_RECORD_TYPE, e.getReason());
+            Assert.assertEquals("X", e.getValue());
+        }
+    }
+
+    @Test
+    public void convertToJson_unknownCodeWithDefault_shouldUseTheDefaultConverter() throws IOException {
+        ZDispatcher dispatcher = ZDispatcher.builder().offset(0).length(1)
+                .layout("H", new ZConverter(records.get("HEADER")))
+                .otherwise(new ZConverter(records.get("TRAILER")))
+                .build();
+
+        Assert.assertEquals("{\"TRAILER\":{\"RECORD-TYPE\":\"X\",\"RECORD-COUNT\":\"0001\"}}", dispatcher.convertToJson("X0001"));
+    }
+
+    @Test
+    public void convertToJson_errorSink_shouldRejectUnknownAndInvalidRecords() throws IOException {
+        ZDispatcher dispatcher = dispatcher(StandardCharsets.UTF_8);
+        List<String> rejects = new ArrayList<>();
+        ErrorSink errors = (index, record, error) -> rejects.add(index + " " + error.getReason());
+
+        Assert.assertNull(dispatcher.convertToJson(new StringRecord().wrap("X0001"), 0, errors));
+        Assert.assertNull(dispatcher.convertToJson(new StringRecord().wrap("DACC001ABCDEFG"), 1, errors));
+        Assert.assertNull(dispatcher.convertToJson(new StringRecord().wrap(""), 2, errors));
+        Assert.assertNotNull(dispatcher.convertToJson(new StringRecord().wrap(TRAILER), 3, errors));
+
+        Assert.assertEquals(Arrays.asList("0 UNKNOWN_RECORD_TYPE", "1 INVALID_NUMBER", "2 WRONG_LENGTH"), rejects);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_layoutsWithDifferentCharsets_shouldThrowIllegalArgExc() {
+        ZDispatcher.builder().offset(0).length(1)
+                .layout("H", new ZConverter(records.get("HEADER")))
+                .layout("T", ZConverter.builder().copyBook(records.get("TRAILER")).charset(Charset.forName("Cp037")).build())
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_codeLongerThanTheField_shouldThrowIllegalArgExc() {
+        ZDispatcher.builder().offset(0).length(1).layout("HD", new ZConverter(records.get("HEADER"))).build();
+    }
+
+    @Test
+    public void convert_mixedEbcdicFile_shouldConvertEachRecordWithItsLayout() throws IOException {
+        Charset cp037 = Charset.forName("Cp037");
+        ZDispatcher dispatcher = dispatcher(cp037);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (String record : Arrays.asList(HEADER, DETAIL, DETAIL, TRAILER)) {
+            content.write(new byte[]{0, (byte) (record.length() + 4), 0, 0});
+            content.write(record.getBytes(cp037));
+        }
+        Path input = folder.newFile().toPath();
+        Files.write(input, content.toByteArray());
+        Path output = folder.getRoot().toPath().resolve("out.json");
+
+        ZFileConverter fileConverter = ZFileConverter.builder().dispatcher(dispatcher).framer(RecordFramer.rdw()).build();
+
+        Assert.assertEquals(4, fileConverter.convert(input, output));
+        Assert.assertEquals(Arrays.asList(dispatcher.convertToJson(HEADER.getBytes(cp037), 0, 9), dispatcher.convertToJson(DETAIL.getBytes(cp037), 0, 14),
+                dispatcher.convertToJson(DETAIL.getBytes(cp037), 0, 14), dispatcher.convertToJson(TRAILER.getBytes(cp037), 0, 5)), Files.readAllLines(output));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_dispatcherWithoutFramer_shouldThrowIllegalArgExc() {
+        ZFileConverter.builder().dispatcher(dispatcher(StandardCharsets.UTF_8)).build();
+    }
+
+    private ZDispatcher dispatcher(Charset charset) {
+        return ZDispatcher.builder().offset(0).length(1)
+                .layout("H", ZConverter.builder().copyBook(records.get("HEADER")).charset(charset).build())
+                .layout("D", ZConverter.builder().copyBook(records.get("DETAIL")).charset(charset).typedNumbers(true).build())
+                .layout("T", ZConverter.builder().copyBook(records.get("TRAILER")).charset(charset).build())
+                .build();
+    }
+}
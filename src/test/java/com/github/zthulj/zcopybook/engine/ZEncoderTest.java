@@ -0,0 +1,166 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import com.github.zthulj.zcopybook.plan.Discriminator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class ZEncoderTest {
+
+    private ZLoader loader = new ZLoader();
+
+    @Test
+    public void encode_simpleCopybook_shouldRoundTrip() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/simplecopybook.cbl"));
+        String line = "AZERTYUIOPMLKJHGFDAZERTYUIOPML1234567890°POIULKJHGFHDJSKQLITITAJDNCBFGTYRUEIJFKR";
+
+        String json = new ZConverter(copybook).convertToJson(line);
+
+        Assert.assertEquals(line, new ZEncoder(copybook).encode(json));
+    }
+
+    @Test
+    public void encode_missingAndShortFields_shouldPadThem() throws IOException {
+        ZEncoder encoder = new ZEncoder(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")));
+
+        Assert.assertEquals("P1  000000{000", encoder.encode("{\"PAYMENT\":{\"REFERENCE\":\"P1\",\"AMOUNT\":0}}"));
+    }
+
+    @Test
+    public void encode_typedNumbers_shouldOverpunchTheSign() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"));
+        ZEncoder encoder = new ZEncoder(copybook);
+
+        Assert.assertEquals("P001001234}01B", encoder.encode("{\"PAYMENT\":{\"REFERENCE\":\"P001\",\"AMOUNT\":-123.40,\"QUANTITY\":12}}"));
+        Assert.assertEquals("P002000000A00P", encoder.encode("{\"PAYMENT\":{\"REFERENCE\":\"P002\",\"AMOUNT\":0.01,\"QUANTITY\":-7}}"));
+        Assert.assertEquals("P003000150{00P", encoder.encode("{\"PAYMENT\":{\"REFERENCE\":\"P003\",\"AMOUNT\":1.5E1,\"QUANTITY\":\"00P\"}}"));
+    }
+
+    @Test
+    public void encode_signSeparate_shouldWriteTheSignAtItsPlace() throws IOException {
+        ZCopyBook<String> copybook = loader.load("01 CLIENT.\n  03 BALANCE PIC S9(5) SIGN LEADING SEPARATE.\n  03 RATE PIC S9V99 SIGN TRAILING SEPARATE.\n  03 CODE PIC X.");
+        ZEncoder encoder = new ZEncoder(copybook);
+        ZConverter converter = ZConverter.builder().copyBook(copybook).typedNumbers(true).build();
+
+        Assert.assertEquals("-00042125+X", encoder.encode("{\"CLIENT\":{\"BALANCE\":-42,\"RATE\":1.25,\"CODE\":\"X\"}}"));
+        Assert.assertEquals("+00000000+ ", encoder.encode("{\"CLIENT\":{}}"));
+        Assert.assertEquals("{\"CLIENT\":{\"BALANCE\":-42,\"RATE\":1.25,\"CODE\":\"X\"}}", converter.convertToJson("-00042125+X"));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void encode_tooManyDecimals_shouldThrowIllegalArgExeption() throws IOException {
+        new ZEncoder(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))).encode("{\"PAYMENT\":{\"AMOUNT\":1.234}}");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void encode_tooManyDigits_shouldThrowIllegalArgExeption() throws IOException {
+        new ZEncoder(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))).encode("{\"PAYMENT\":{\"QUANTITY\":1000}}");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void encode_tooLongText_shouldThrowIllegalArgExeption() throws IOException {
+        new ZEncoder(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))).encode("{\"PAYMENT\":{\"REFERENCE\":\"P0001\"}}");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void encode_unknownField_shouldThrowIllegalArgExeption() throws IOException {
+        new ZEncoder(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))).encode("{\"PAYMENT\":{\"UNKNOWN\":\"A\"}}");
+    }
+
+    @Test
+    public void encode_packedDecimalsToEbcdic_shouldRoundTrip() throws IOException {
+        Charset cp037 = Charset.forName("Cp037");
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/packedDecimal.cbl"));
+        ZEncoder encoder = ZEncoder.builder().copyBook(copybook).charset(cp037).build();
+        String json = "{\"ACCOUNT\":{\"ID\":\"A001\",\"BALANCE\":-12345.67,\"RATE\":0.0500,\"COUNTER\":42,\"LABEL\":\"XYZ\"}}";
+        byte[] record = new byte[20];
+
+        int length = encoder.encode(encoder.createParser(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))), record, 2);
+
+        Assert.assertEquals(18, length);
+        Assert.assertArrayEquals(new byte[]{0x00, 0x12, 0x34, 0x56, 0x7D, 0x00, 0x50, 0x0C, 0x00, 0x04, 0x2C}, Arrays.copyOfRange(record, 6, 17));
+        Assert.assertEquals(json, ZConverter.builder().copyBook(copybook).charset(cp037).build().convertToJson(record, 2, length));
+    }
+
+    @Test
+    public void encode_binaryIntegers_shouldRoundTrip() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/binaryInteger.cbl"));
+        String json = "{\"COUNTERS\":{\"SMALL\":65534,\"KEY\":-42,\"AMOUNT\":-1234.56,\"TOTAL\":123456789012345678}}";
+        byte[] record = new byte[22];
+
+        new ZEncoder(copybook).encode(new ZEncoder(copybook).createParser(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))), record, 0);
+
+        Assert.assertEquals(json, new ZConverter(copybook).convertToJson(record, 0, record.length));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void encode_negativeUnsignedBinary_shouldThrowIllegalArgExeption() throws IOException {
+        new ZEncoder(loader.load(Utils.fileFromResource("copybook/binaryInteger.cbl"))).encode("{\"COUNTERS\":{\"SMALL\":-1}}");
+    }
+
+    @Test
+    public void encode_occurs_shouldFillTheMissingOccurrences() throws IOException {
+        ZEncoder encoder = new ZEncoder(loader.load(Utils.fileFromResource("copybook/oneParentWithOccurs.cbl")));
+        String json = "{\"CLIENT\":{\"CLIENT-COMMON-INFOS\":[{\"FIRSTNAME\":\"JOHN\",\"LASTNAME\":\"DOE\"},null,{\"LASTNAME\":\"SMITH\"}]}}";
+
+        Assert.assertEquals(String.format("%-18s%-12s%30s%18s%-12s", "JOHN", "DOE", "", "", "SMITH"), encoder.encode(json));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void encode_tooManyOccurrences_shouldThrowIllegalArgExeption() throws IOException {
+        new ZEncoder(loader.load(Utils.fileFromResource("copybook/oneParentWithOccurs.cbl"))).encode("{\"CLIENT\":{\"CLIENT-COMMON-INFOS\":[{},{},{},{}]}}");
+    }
+
+    @Test
+    public void encode_occursDependingOn_shouldMoveTheFollowingFields() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl"));
+        ZEncoder encoder = new ZEncoder(copybook);
+        ZConverter converter = new ZConverter(copybook);
+
+        Assert.assertEquals("A00102P0110P0220S", encoder.encode(converter.convertToJson("A00102P0110P0220S")));
+        Assert.assertEquals("A00200C", encoder.encode("{\"ORDER\":{\"ORDER-ID\":\"A002\",\"LINE-COUNT\":0,\"ORDER-LINES\":[],\"STATUS\":\"C\"}}"));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void encode_occurrencesBeyondTheCounter_shouldThrowIllegalArgExeption() throws IOException {
+        new ZEncoder(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")))
+                .encode("{\"ORDER\":{\"LINE-COUNT\":\"01\",\"ORDER-LINES\":[{},{}]}}");
+    }
+
+    @Test
+    public void encode_redefiningBranch_shouldRoundTrip() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/redefines.cbl"));
+        ZConverter converter = ZConverter.builder().copyBook(copybook)
+                .discriminator("TRANSACTION.PAYMENT", Discriminator.on("TRANSACTION.RECORD-TYPE", type -> "R".equals(type) ? "REFUND" : "N".equals(type) ? "NOTE" : null))
+                .build();
+        ZEncoder encoder = new ZEncoder(copybook);
+
+        Assert.assertEquals("RA12345DUP000000WB", encoder.encode(converter.convertToJson("RA12345DUP000000WB")));
+        Assert.assertEquals("NA NOTE OF 15 CHWB", encoder.encode(converter.convertToJson("NA NOTE OF 15 CHWB")));
+        Assert.assertEquals("PFR761234001234{WB", encoder.encode(converter.convertToJson("PFR761234001234{WB")));
+    }
+
+    @Test
+    public void encode_streamOfRecords_shouldReuseTheRecord() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"));
+        ZEncoder encoder = new ZEncoder(copybook);
+        String json = "{\"PAYMENT\":{\"REFERENCE\":\"P001\",\"AMOUNT\":1}} {\"PAYMENT\":{\"REFERENCE\":\"P002\"}}";
+        char[] record = new char[encoder.getRecordLength()];
+
+        try (JsonParser parser = encoder.createParser(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            Assert.assertEquals(14, encoder.encode(parser, record));
+            Assert.assertEquals("P001000010{000", new String(record));
+            Assert.assertEquals(14, encoder.encode(parser, record));
+            Assert.assertEquals("P0020000000000", new String(record));
+            Assert.assertEquals(-1, encoder.encode(parser, record));
+        }
+    }
+}
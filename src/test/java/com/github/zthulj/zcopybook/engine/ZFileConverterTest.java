@@ -0,0 +1,229 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.framing.RecordFramer;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import com.github.zthulj.zcopybook.plan.Filter;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class ZFileConverterTest {
+
+    private static final String FIRST = "AZERTYUIOPMLKJHGFD";
+    private static final String SECOND = "QSDFGHJKLMWXCVBNAZ";
+    private static final String THIRD = "WXCVBNQSDFGHJKLMAZ";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ZLoader loader = new ZLoader();
+
+    @Test
+    public void convert_recordsWithoutSeparator_shouldWriteOneJsonPerLine() throws IOException {
+        ZConverter converter = converter(StandardCharsets.UTF_8);
+        Path input = write(FIRST + SECOND + THIRD, StandardCharsets.UTF_8);
+
+        Assert.assertEquals(3, new ZFileConverter(converter).convert(input, folder.getRoot().toPath().resolve("out.json")));
+        Assert.assertEquals(expected(converter), Files.readAllLines(folder.getRoot().toPath().resolve("out.json")));
+    }
+
+    @Test
+    public void convert_recordsWithLineFeed_shouldDetectTheSeparator() throws IOException {
+        ZConverter converter = converter(StandardCharsets.UTF_8);
+        Path input = write(FIRST + "\n" + SECOND + "\n" + THIRD + "\n", StandardCharsets.UTF_8);
+        Path output = folder.getRoot().toPath().resolve("out.json");
+
+        Assert.assertEquals(3, new ZFileConverter(converter).convert(input, output));
+        Assert.assertEquals(expected(converter), Files.readAllLines(output));
+    }
+
+    @Test
+    public void convert_recordsWithCrLfAndNoLastSeparator_shouldConvertAllRecords() throws IOException {
+        ZConverter converter = converter(StandardCharsets.UTF_8);
+        Path input = write(FIRST + "\r\n" + SECOND + "\r\n" + THIRD, StandardCharsets.UTF_8);
+        Path output = folder.getRoot().toPath().resolve("out.json");
+
+        Assert.assertEquals(3, new ZFileConverter(converter).convert(input, output));
+        Assert.assertEquals(expected(converter), Files.readAllLines(output));
+    }
+
+    @Test
+    public void convert_ebcdicRecordsOverManyWindows_shouldConvertAllRecords() throws IOException {
+        Charset cp037 = Charset.forName("Cp037");
+        ZConverter converter = converter(cp037);
+        Path input = write(FIRST + SECOND + THIRD, cp037);
+        Path output = folder.getRoot().toPath().resolve("out.json");
+
+        ZFileConverter fileConverter = ZFileConverter.builder().converter(converter).lineSeparator(new byte[0]).mappingWindow(20).build();
+
+        Assert.assertEquals(3, fileConverter.convert(input, output));
+        Assert.assertEquals(expected(converter), Files.readAllLines(output));
+    }
+
+    @Test
+    public void convert_manyRecordsInParallel_shouldKeepTheOriginalOrder() throws IOException {
+        ZConverter converter = converter(StandardCharsets.UTF_8);
+        Random random = new Random(3);
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder record = new StringBuilder();
+            for (int j = 0; j < 18; j++) {
+                record.append((char) ('A' + random.nextInt(26)));
+            }
+            content.append(record).append('\n');
+            expected.add(converter.convertToJson(record.toString()));
+        }
+        Path input = write(content.toString(), StandardCharsets.UTF_8);
+        Path output = folder.getRoot().toPath().resolve("out.json");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ZFileConverter fileConverter = ZFileConverter.builder().converter(converter).executor(pool).chunkSize(19 * 7).mappingWindow(19 * 700).build();
+            Assert.assertEquals(5000, fileConverter.convert(input, output));
+        } finally {
+            pool.shutdown();
+        }
+        Assert.assertEquals(expected, Files.readAllLines(output));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_missingSeparatorInParallel_shouldThrowIllegalArgExc() throws IOException {
+        Path input = write(FIRST + "\n" + SECOND + "X" + THIRD + "\n", StandardCharsets.UTF_8);
+        ZFileConverter fileConverter = ZFileConverter.builder().converter(converter(StandardCharsets.UTF_8)).executor(ForkJoinPool.commonPool()).chunkSize(1).build();
+        fileConverter.convert(input, folder.getRoot().toPath().resolve("out.json"));
+    }
+
+    @Test
+    public void convert_emptyFile_shouldWriteNothing() throws IOException {
+        Path input = write("", StandardCharsets.UTF_8);
+        Path output = folder.getRoot().toPath().resolve("out.json");
+
+        Assert.assertEquals(0, new ZFileConverter(converter(StandardCharsets.UTF_8)).convert(input, output));
+        Assert.assertEquals(0, Files.size(output));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_truncatedRecord_shouldThrowIllegalArgExc() throws IOException {
+        Path input = write(FIRST + SECOND + "AZERTY", StandardCharsets.UTF_8);
+        new ZFileConverter(converter(StandardCharsets.UTF_8)).convert(input, folder.getRoot().toPath().resolve("out.json"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_missingSeparator_shouldThrowIllegalArgExc() throws IOException {
+        Path input = write(FIRST + "\n" + SECOND + "X" + THIRD + "\n", StandardCharsets.UTF_8);
+        new ZFileConverter(converter(StandardCharsets.UTF_8)).convert(input, folder.getRoot().toPath().resolve("out.json"));
+    }
+
+    @Test
+    public void convert_variableLengthRecords_shouldSliceThemWithTheirCounters() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")));
+        List<String> records = Arrays.asList("A00102P0110P0220S", "A00200C", "A00305P0101P0202P0303P0404P0505S");
+        Path output = folder.getRoot().toPath().resolve("out.json");
+        List<String> expected = new ArrayList<>();
+        for (String record : records) {
+            expected.add(converter.convertToJson(record));
+        }
+
+        Path input = write(String.join("\n", records) + "\n", StandardCharsets.UTF_8);
+        Assert.assertEquals(3, new ZFileConverter(converter).convert(input, output));
+        Assert.assertEquals(expected, Files.readAllLines(output));
+
+        input = write(String.join("", records), StandardCharsets.UTF_8);
+        Assert.assertEquals(3, ZFileConverter.builder().converter(converter).mappingWindow(20).build().convert(input, output));
+        Assert.assertEquals(expected, Files.readAllLines(output));
+    }
+
+    @Test
+    public void convert_filteredRecords_shouldWriteTheMatchingOnes() throws IOException {
+        ZConverter converter = ZConverter.builder()
+                .copyBook(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")))
+                .filter(Filter.equalTo("ORDER.STATUS", "S"))
+                .build();
+        Path input = write("A00102P0110P0220S\nA00200C\nA00305P0101P0202P0303P0404P0505S\n", StandardCharsets.UTF_8);
+        Path output = folder.getRoot().toPath().resolve("out.json");
+
+        Assert.assertEquals(3, new ZFileConverter(converter).convert(input, output));
+        Assert.assertEquals(Arrays.asList(converter.convertToJson("A00102P0110P0220S"), converter.convertToJson("A00305P0101P0202P0303P0404P0505S")),
+                Files.readAllLines(output));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_truncatedVariableLengthRecord_shouldThrowIllegalArgExc() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")));
+        Path input = write("A00102P0110P0220SA00102P01", StandardCharsets.UTF_8);
+        new ZFileConverter(converter).convert(input, folder.getRoot().toPath().resolve("out.json"));
+    }
+
+    @Test
+    public void convert_errorSink_shouldRejectTheBadRecordsAndGoOn() throws IOException {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))).typedNumbers(true).build();
+        Path input = write("P001001234}012\nP002ABCDEFG012\nP003000000A00P\nP0040000001XYZ\n", StandardCharsets.UTF_8);
+        Path output = folder.getRoot().toPath().resolve("out.json");
+        List<String> expected = Arrays.asList(converter.convertToJson("P001001234}012"), converter.convertToJson("P003000000A00P"));
+
+        for (ZFileConverter.ZFileConverterBuilder builder : Arrays.asList(ZFileConverter.builder(), ZFileConverter.builder().executor(ForkJoinPool.commonPool()).chunkSize(1))) {
+            List<String> rejects = Collections.synchronizedList(new ArrayList<>());
+            ZFileConverter fileConverter = builder.converter(converter)
+                    .errorSink((index, record, error) -> rejects.add(index + " " + error.getField()))
+                    .build();
+
+            Assert.assertEquals(4, fileConverter.convert(input, output));
+            Assert.assertEquals(expected, Files.readAllLines(output));
+            Collections.sort(rejects);
+            Assert.assertEquals(Arrays.asList("1 PAYMENT.AMOUNT", "3 PAYMENT.QUANTITY"), rejects);
+        }
+    }
+
+    @Test
+    public void convert_variableBlockedRecordsWithFramer_shouldConvertThemWithoutTheirDescriptors() throws IOException {
+        ZConverter converter = new ZConverter(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")));
+        List<String> records = Arrays.asList("A00102P0110P0220S", "A00200C", "A00305P0101P0202P0303P0404P0505S");
+        List<String> expected = new ArrayList<>();
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        for (String record : records) {
+            expected.add(converter.convertToJson(record));
+            block.write(new byte[]{0, (byte) (record.length() + 4), 0, 0});
+            block.write(record.getBytes(StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(new byte[]{0, (byte) (block.size() + 4), 0, 0});
+        block.writeTo(content);
+        Path input = folder.newFile().toPath();
+        Files.write(input, content.toByteArray());
+        Path output = folder.getRoot().toPath().resolve("out.json");
+
+        Assert.assertEquals(3, ZFileConverter.builder().converter(converter).framer(RecordFramer.blocked()).build().convert(input, output));
+        Assert.assertEquals(expected, Files.readAllLines(output));
+    }
+
+    private ZConverter converter(Charset charset) throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("copybook/singleParentOneChildValue.cbl"));
+        return ZConverter.builder().copyBook(copybook).charset(charset).build();
+    }
+
+    private List<String> expected(ZConverter converter) throws IOException {
+        return Arrays.asList(converter.convertToJson(FIRST), converter.convertToJson(SECOND), converter.convertToJson(THIRD));
+    }
+
+    private Path write(String content, Charset charset) throws IOException {
+        Path input = folder.newFile().toPath();
+        Files.write(input, content.getBytes(charset));
+        return input;
+    }
+}
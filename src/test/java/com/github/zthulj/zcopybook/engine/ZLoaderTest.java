@@ -7,6 +7,11 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
 
 public class ZLoaderTest {
 
@@ -173,7 +178,7 @@ public class ZLoaderTest {
     }
 
     @Test
-    public void convert_NodeWithRedefineField_ShouldIgnoreRedefine() throws IOException {
+    public void convert_NodeWithRedefineField_ShouldKeepRedefineAsAlternative() throws IOException {
         Node node = converter.load(fileFromResource("copybook/aNodeWithARedefine.cbl")).getRootNode();
 
         ParentNode rootExpected = NodeFactory.createRootNode();
@@ -185,6 +190,7 @@ public class ZLoaderTest {
 
         secondParent.addChild(NodeFactory.createValueNode(secondParent,Coordinates.create(0, 18)),"FIRSTNAME");
         secondParent.addChild(NodeFactory.createValueNode(secondParent,Coordinates.create(18, 30)),"LASTNAME");
+        firstParent.addRedefiningChild(NodeFactory.createParentNode(firstParent,3),"CLIENT-INFOS-OTHER", "CLIENT-COMMON-INFOS");
         firstParent.addChild(NodeFactory.createValueNode(firstParent, Coordinates.create(30, 48)),"SOMETHING");
         firstParent.addChild(NodeFactory.createValueNode(firstParent,Coordinates.create(48, 66)),"ELSE" );
 
@@ -193,7 +199,7 @@ public class ZLoaderTest {
     }
 
     @Test
-    public void convert_NodeWithRedefineStruct_ShouldIgnoreRedefine() throws IOException {
+    public void convert_NodeWithRedefineStruct_ShouldKeepRedefineAsAlternative() throws IOException {
         Node node = converter.load(fileFromResource("copybook/aNodeWithARedefineStruct.cbl")).getRootNode();
 
         ParentNode rootExpected = NodeFactory.createRootNode();
@@ -205,12 +211,44 @@ public class ZLoaderTest {
 
         secondParent.addChild(NodeFactory.createValueNode(secondParent,Coordinates.create(0, 18)),"FIRSTNAME");
         secondParent.addChild(NodeFactory.createValueNode(secondParent,Coordinates.create(18, 30)),"LASTNAME");
+        ParentNode redefining = NodeFactory.createParentNode(firstParent,3);
+        firstParent.addRedefiningChild(redefining,"CLIENT-INFOS-OTHER", "CLIENT-COMMON-INFOS");
+        redefining.addChild(NodeFactory.createValueNode(redefining,Coordinates.create(0, 18)),"GENDEREXTENDED");
+        redefining.addChild(NodeFactory.createValueNode(redefining,Coordinates.create(18, 30)),"ABRACADABRA");
         firstParent.addChild(NodeFactory.createValueNode(firstParent, Coordinates.create(30, 48)),"SOMETHING");
         firstParent.addChild(NodeFactory.createValueNode(firstParent,Coordinates.create(48, 66)),"ELSE" );
 
         Assert.assertEquals(rootExpected, node);
     }
 
+    @Test
+    public void convert_redefinesLongerThanTheRedefinedItem_shouldEndWithTheLongestBranch() {
+        ZCopyBook copyBook = converter.load("01 REC.\n  03 KIND PIC X.\n  03 DATA PIC X(4).\n  03 AMOUNT REDEFINES DATA PIC 9(6).\n  03 CODE REDEFINES DATA PIC XX.\n  03 LAST PIC X.");
+
+        ParentNode rec = (ParentNode) copyBook.getRootNode().getChilds().get("REC");
+        Assert.assertEquals(Coordinates.create(1, 7), ((ValueNode) rec.getChilds().get("AMOUNT")).getCoordinates());
+        Assert.assertEquals(Coordinates.create(1, 3), ((ValueNode) rec.getChilds().get("CODE")).getCoordinates());
+        Assert.assertEquals(Coordinates.create(7, 8), ((ValueNode) rec.getChilds().get("LAST")).getCoordinates());
+        Assert.assertTrue(rec.isRedefining("CODE"));
+        Assert.assertEquals(8, copyBook.getWaitedLength());
+        Assert.assertEquals(3, copyBook.getValueNodes().size());
+    }
+
+    @Test
+    public void convert_redefinesInsideAnOccurs_shouldBeCopiedInEachOccurrence() {
+        ZCopyBook copyBook = converter.load("01 REC.\n  03 ITEMS OCCURS 2.\n    05 TEXT PIC X(3).\n    05 NUM REDEFINES TEXT PIC 9(3).\n    05 FLAG PIC X.");
+
+        ParentArrayNode items = (ParentArrayNode) ((ParentNode) copyBook.getRootNode().getChilds().get("REC")).getChilds().get("ITEMS");
+        Assert.assertEquals(8, copyBook.getWaitedLength());
+        Assert.assertEquals(Coordinates.create(4, 7), ((ValueNode) items.getChildArray()[1].getChilds().get("NUM")).getCoordinates());
+        Assert.assertEquals(Coordinates.create(7, 8), ((ValueNode) items.getChildArray()[1].getChilds().get("FLAG")).getCoordinates());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_redefinesOfANonPreviousItem_shouldThrowIllegalArgExc() {
+        converter.load("01 REC.\n  03 A PIC X.\n  03 B PIC X.\n  03 C REDEFINES A PIC X.");
+    }
+
     @Test
     public void convert_NodeWithSignedValue_ShouldDetectSigned() throws IOException {
         Node node = converter.load(fileFromResource("copybook/simplecopybook.cbl")).getRootNode();
@@ -243,6 +281,146 @@ public class ZLoaderTest {
         Assert.assertEquals(ValueNode.ValueType.STRING, value.getValueType());
     }
 
+    @Test
+    public void convert_packedDecimals_shouldComputeTheByteLengthAndScale() throws IOException {
+        ZCopyBook copyBook = converter.load(fileFromResource("copybook/packedDecimal.cbl"));
+        ParentNode parent = (ParentNode) copyBook.getRootNode().getChilds().get("ACCOUNT");
+
+        ValueNode balance = (ValueNode) parent.getChilds().get("BALANCE");
+        ValueNode rate = (ValueNode) parent.getChilds().get("RATE");
+        ValueNode counter = (ValueNode) parent.getChilds().get("COUNTER");
+
+        Assert.assertEquals(ValueNode.ValueType.PACKED_DECIMAL, balance.getValueType());
+        Assert.assertEquals(Coordinates.create(4, 9), balance.getCoordinates());
+        Assert.assertEquals(2, balance.getScale());
+        Assert.assertEquals(Coordinates.create(9, 12), rate.getCoordinates());
+        Assert.assertEquals(4, rate.getScale());
+        Assert.assertEquals(Coordinates.create(12, 15), counter.getCoordinates());
+        Assert.assertEquals(0, counter.getScale());
+        Assert.assertEquals(18, copyBook.getWaitedLength());
+    }
+
+    @Test
+    public void convert_binaryIntegers_shouldUseTheStorageSize() throws IOException {
+        ZCopyBook copyBook = converter.load(fileFromResource("copybook/binaryInteger.cbl"));
+        ParentNode parent = (ParentNode) copyBook.getRootNode().getChilds().get("COUNTERS");
+
+        ValueNode small = (ValueNode) parent.getChilds().get("SMALL");
+        ValueNode key = (ValueNode) parent.getChilds().get("KEY");
+        ValueNode amount = (ValueNode) parent.getChilds().get("AMOUNT");
+        ValueNode total = (ValueNode) parent.getChilds().get("TOTAL");
+
+        Assert.assertEquals(ValueNode.ValueType.UNSIGNED_BINARY_INT, small.getValueType());
+        Assert.assertEquals(Coordinates.create(0, 2), small.getCoordinates());
+        Assert.assertEquals(ValueNode.ValueType.BINARY_INT, key.getValueType());
+        Assert.assertEquals(Coordinates.create(2, 6), key.getCoordinates());
+        Assert.assertEquals(Coordinates.create(6, 14), amount.getCoordinates());
+        Assert.assertEquals(2, amount.getScale());
+        Assert.assertEquals(Coordinates.create(14, 22), total.getCoordinates());
+        Assert.assertEquals(22, copyBook.getWaitedLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_binaryOfMoreThan18Digits_shouldThrowIllegalArgExc() {
+        converter.load("01 COUNTERS. 03 HUGE PIC 9(19) COMP.");
+    }
+
+    @Test
+    public void convert_signSeparate_shouldMakeRoomForTheSign() {
+        ZCopyBook copyBook = converter.load("01 CLIENT.\n  03 BALANCE PIC S9(5) SIGN LEADING SEPARATE.\n  03 RATE PIC S9V99 SIGN IS TRAILING SEPARATE CHARACTER.\n  03 CODE PIC X.");
+        ParentNode parent = (ParentNode) copyBook.getRootNode().getChilds().get("CLIENT");
+
+        ValueNode balance = (ValueNode) parent.getChilds().get("BALANCE");
+        ValueNode rate = (ValueNode) parent.getChilds().get("RATE");
+        Assert.assertEquals(ValueNode.ValueType.LEADING_SEPARATE_SIGN, balance.getValueType());
+        Assert.assertEquals(Coordinates.create(0, 6), balance.getCoordinates());
+        Assert.assertEquals(ValueNode.ValueType.TRAILING_SEPARATE_SIGN, rate.getValueType());
+        Assert.assertEquals(Coordinates.create(6, 10), rate.getCoordinates());
+        Assert.assertEquals(2, rate.getScale());
+        Assert.assertEquals(Coordinates.create(10, 11), ((ValueNode) parent.getChilds().get("CODE")).getCoordinates());
+        Assert.assertEquals(11, copyBook.getWaitedLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_leadingOverpunchedSign_shouldThrowIllegalArgExc() {
+        converter.load("01 CLIENT. 03 BALANCE PIC S9(5) SIGN IS LEADING.");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_signSeparateOnAnUnsignedPicture_shouldThrowIllegalArgExc() {
+        converter.load("01 CLIENT. 03 BALANCE PIC 9(5) SIGN TRAILING SEPARATE.");
+    }
+
+    @Test
+    public void convert_unsupportedUsages_shouldThrowIllegalArgExc() {
+        String[] fields = {"03 F PIC S9(4) COMP-1.", "03 G PIC X(2) COMP-3.", "03 H COMP-2.", "03 I PIC X(2) UNKNOWN."};
+        for (String field : fields) {
+            try {
+                converter.load("01 R.\n  03 A PIC X.\n  " + field + "\n  03 B PIC X.");
+                Assert.fail(field + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains(field.split(" ")[1]));
+            }
+        }
+    }
+
+    @Test
+    public void convert_renamesAndConditions_shouldTakeNoRoom() {
+        ZCopyBook copyBook = converter.load("01 R.\n  03 A PIC X.\n    88 IS-A VALUE 'A'.\n  03 B PIC X.\n  66 AB RENAMES A THRU B.");
+
+        Assert.assertEquals(2, copyBook.getWaitedLength());
+    }
+
+    @Test
+    public void convert_valueLiteralWithPeriodsAndEditedPicture_shouldKeepTheFields() {
+        ZCopyBook copyBook = converter.load("01 CLIENT.\n  03 LABEL PIC X(5) VALUE 'A. B'.\n  03 AMOUNT PIC 9(5).99.\n  03 CODE PIC X.");
+        ParentNode parent = (ParentNode) copyBook.getRootNode().getChilds().get("CLIENT");
+
+        Assert.assertEquals(Coordinates.create(0, 5), ((ValueNode) parent.getChilds().get("LABEL")).getCoordinates());
+        Assert.assertEquals(Coordinates.create(5, 13), ((ValueNode) parent.getChilds().get("AMOUNT")).getCoordinates());
+        Assert.assertEquals(Coordinates.create(13, 14), ((ValueNode) parent.getChilds().get("CODE")).getCoordinates());
+    }
+
+    @Test
+    public void convert_occursWithTimes_shouldCreateTheArray() {
+        ZCopyBook copyBook = converter.load("01 CLIENT.\n  03 PHONES OCCURS 3 TIMES.\n    05 PHONE PIC X(10).");
+
+        Assert.assertEquals(30, copyBook.getWaitedLength());
+    }
+
+    @Test
+    public void convert_occursDependingOn_shouldKeepTheRangeAndTheCounter() throws IOException {
+        ZCopyBook copyBook = converter.load(fileFromResource("copybook/occursDependingOn.cbl"));
+
+        ParentNode order = (ParentNode) copyBook.getRootNode().getChilds().get("ORDER");
+        ParentArrayNode lines = (ParentArrayNode) order.getChilds().get("ORDER-LINES");
+        Assert.assertEquals(0, lines.getMinOccurs());
+        Assert.assertEquals(5, lines.getOccursNumber());
+        Assert.assertEquals("LINE-COUNT", lines.getDependingOn());
+        Assert.assertEquals(32, copyBook.getWaitedLength());
+        Assert.assertEquals(Coordinates.create(31, 32), ((ValueNode) order.getChilds().get("STATUS")).getCoordinates());
+    }
+
+    @Test
+    public void convert_occursDependingOnWithKeysAndIndexes_shouldIgnoreThem() {
+        ZCopyBook copyBook = converter.load("01 CLIENT.\n  03 NB PIC 9.\n  03 PHONES OCCURS 1 TO 3 DEPENDING ON NB OF CLIENT\n     ASCENDING KEY IS PHONE INDEXED BY IDX.\n    05 PHONE PIC X(10).");
+
+        ParentArrayNode phones = (ParentArrayNode) ((ParentNode) copyBook.getRootNode().getChilds().get("CLIENT")).getChilds().get("PHONES");
+        Assert.assertEquals(1, phones.getMinOccurs());
+        Assert.assertEquals("NB", phones.getDependingOn());
+        Assert.assertEquals(31, copyBook.getWaitedLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_occursRangeWithoutCounter_shouldThrowIllegalArgExc() {
+        converter.load("01 CLIENT.\n  03 PHONES OCCURS 1 TO 3 TIMES.\n    05 PHONE PIC X(10).");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_invalidLevelNumber_shouldThrowIllegalArgExc() {
+        converter.load("01 CLIENT.\n  AB NAME PIC X(10).");
+    }
+
     @Test
     public void convert_duplicateKey_ShouldRenameKeys() throws IOException {
         Node node = converter.load(fileFromResource("copybook/simplecopybook.cbl")).getRootNode();
@@ -255,6 +433,33 @@ public class ZLoaderTest {
         Assert.assertNotNull(value2);
     }
 
+    @Test
+    public void loadAll_manyRecordLevels_shouldLoadEachOneFromOffsetZero() throws IOException {
+        String copybook = new String(Files.readAllBytes(fileFromResource("copybook/multipleRecords.cbl").toPath()), StandardCharsets.UTF_8);
+
+        Map<String, ZCopyBook> records = converter.loadAll(copybook);
+
+        Assert.assertEquals(Arrays.asList("HEADER", "DETAIL", "TRAILER"), new ArrayList<>(records.keySet()));
+        Assert.assertEquals(9, records.get("HEADER").getWaitedLength());
+        Assert.assertEquals(14, records.get("DETAIL").getWaitedLength());
+        Assert.assertEquals(5, records.get("TRAILER").getWaitedLength());
+        ParentNode detail = (ParentNode) ((ParentNode) records.get("DETAIL").getRootNode()).getChilds().get("DETAIL");
+        Assert.assertEquals(7, ((ValueNode) detail.getChilds().get("AMOUNT")).getCoordinates().getStart());
+    }
+
+    @Test
+    public void loadAll_recordRedefiningAnother_shouldLoadBothLayouts() {
+        Map<String, ZCopyBook> records = converter.loadAll("01 CLIENT.\n  03 NAME PIC X(10).\n01 COMPANY REDEFINES CLIENT.\n  03 SIREN PIC 9(9).");
+
+        Assert.assertEquals(10, records.get("CLIENT").getWaitedLength());
+        Assert.assertEquals(9, records.get("COMPANY").getWaitedLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void loadAll_duplicateRecordName_shouldThrowIllegalArgExc() {
+        converter.loadAll("01 CLIENT.\n  03 NAME PIC X(10).\n01 CLIENT.\n  03 SIREN PIC 9(9).");
+    }
+
     private File fileFromResource(String path) {
         return new File(getClass().getClassLoader().getResource(path).getFile());
     }
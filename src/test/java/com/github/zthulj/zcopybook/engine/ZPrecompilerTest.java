@@ -0,0 +1,37 @@
+package com.github.zthulj.zcopybook.engine;
+
+import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.plan.PlanFormat;
+import com.github.zthulj.zcopybook.plan.ZPlan;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class ZPrecompilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void precompile_filesAndDirectories_shouldWriteOnePlanPerCopybook() throws IOException {
+        Path copybooks = folder.newFolder("copybooks").toPath();
+        Files.copy(Utils.fileFromResource("copybook/redefines.cbl").toPath(), copybooks.resolve("redefines.cbl"));
+        Files.copy(Utils.fileFromResource("copybook/occursDependingOn.cbl").toPath(), copybooks.resolve("occursDependingOn.cbl"));
+        Path output = folder.getRoot().toPath().resolve("plans");
+
+        int count = ZPrecompiler.precompile(output, Arrays.asList(copybooks, Utils.fileFromResource("copybook/zonedDecimal.cbl").toPath()), StandardCharsets.UTF_8);
+
+        Assert.assertEquals(3, count);
+        ZPlan plan = PlanFormat.read(output.resolve("zonedDecimal" + PlanFormat.EXTENSION));
+        Assert.assertEquals("{\"PAYMENT\":{\"REFERENCE\":\"P001\",\"AMOUNT\":\"001234}\",\"QUANTITY\":\"012\"}}", new ZConverter(plan).convertToJson("P001001234}012"));
+        Assert.assertTrue(PlanFormat.read(output.resolve("occursDependingOn" + PlanFormat.EXTENSION)).isVariableLength());
+        Assert.assertTrue(Files.exists(output.resolve("redefines" + PlanFormat.EXTENSION)));
+    }
+}
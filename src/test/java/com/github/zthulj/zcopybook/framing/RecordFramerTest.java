@@ -0,0 +1,99 @@
+package com.github.zthulj.zcopybook.framing;
+
+import com.github.zthulj.zcopybook.codec.TextDecoder;
+import com.github.zthulj.zcopybook.plan.ByteBufferRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RecordFramerTest {
+
+    @Test
+    public void fixed_fixedBlockedRecords_shouldSliceThem() throws IOException {
+        Assert.assertEquals(Arrays.asList("ABCD", "EFGH", "IJKL"), read(RecordFramer.fixed(4), "ABCDEFGHIJKL".getBytes(StandardCharsets.UTF_8), 6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fixed_truncatedRecord_shouldThrowIllegalArgExc() throws IOException {
+        read(RecordFramer.fixed(4), "ABCDEF".getBytes(StandardCharsets.UTF_8), 16);
+    }
+
+    @Test
+    public void lines_mixedSeparatorsWithoutLastOne_shouldStripThem() throws IOException {
+        byte[] content = "FIRST\r\nSECOND LONGER THAN THE BUFFER\n\nLAST".getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertEquals(Arrays.asList("FIRST", "SECOND LONGER THAN THE BUFFER", "", "LAST"), read(RecordFramer.lines(), content, 8));
+    }
+
+    @Test
+    public void rdw_variableRecords_shouldSkipTheirDescriptors() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        rdw(content, "A00102P0110P0220S");
+        rdw(content, "A00200C");
+        rdw(content, "");
+
+        Assert.assertEquals(Arrays.asList("A00102P0110P0220S", "A00200C", ""), read(RecordFramer.rdw(), content.toByteArray(), 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rdw_spannedSegment_shouldThrowIllegalArgExc() throws IOException {
+        read(RecordFramer.rdw(), new byte[]{0, 6, 1, 0, 'A', 'B'}, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rdw_truncatedRecord_shouldThrowIllegalArgExc() throws IOException {
+        read(RecordFramer.rdw(), new byte[]{0, 9, 0, 0, 'A', 'B'}, 16);
+    }
+
+    @Test
+    public void blocked_variableBlockedRecords_shouldSkipBlockAndRecordDescriptors() throws IOException {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        rdw(first, "A00102P0110P0220S");
+        rdw(first, "A00200C");
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        rdw(second, "A00300S");
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(new byte[]{0, (byte) (first.size() + 4), 0, 0});
+        first.writeTo(content);
+        content.write(new byte[]{(byte) 0x80, 0, 0, (byte) (second.size() + 4)});
+        second.writeTo(content);
+        content.write(new byte[]{0, 4, 0, 0});
+
+        Assert.assertEquals(Arrays.asList("A00102P0110P0220S", "A00200C", "A00300S"), read(RecordFramer.blocked(), content.toByteArray(), 12));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blocked_recordOverflowingItsBlock_shouldThrowIllegalArgExc() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(new byte[]{0, 8, 0, 0});
+        rdw(content, "A00200C");
+        read(RecordFramer.blocked(), content.toByteArray(), 64);
+    }
+
+    private static void rdw(ByteArrayOutputStream out, String record) throws IOException {
+        int length = record.length() + 4;
+        out.write(new byte[]{(byte) (length >> 8), (byte) length, 0, 0});
+        out.write(record.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> read(RecordFramer framer, byte[] content, int bufferSize) throws IOException {
+        List<String> records = new ArrayList<>();
+        ByteBufferRecord record = new ByteBufferRecord(TextDecoder.of(StandardCharsets.UTF_8));
+        char[] chars = new char[64];
+        try (RecordReader reader = framer.open(Channels.newChannel(new ByteArrayInputStream(content)), bufferSize)) {
+            while (reader.next(record)) {
+                records.add(new String(chars, 0, record.decode(0, record.length(), chars)));
+            }
+            Assert.assertEquals(records.size(), reader.getRecords());
+        }
+        return records;
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.zthulj.zcopybook.metrics;
+
+import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.engine.ZConverter;
+import com.github.zthulj.zcopybook.engine.ZLoader;
+import com.github.zthulj.zcopybook.plan.DecodeException;
+import com.github.zthulj.zcopybook.plan.Filter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class CountingMetricsTest {
+
+    private final CountingMetrics metrics = new CountingMetrics();
+    private final ZLoader loader = new ZLoader(metrics);
+
+    @Test
+    public void load_copybook_shouldCountIt() throws IOException {
+        loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"));
+
+        Assert.assertEquals(1, metrics.getCopybooks());
+        Assert.assertTrue(metrics.getLoadNanos() > 0);
+    }
+
+    @Test
+    public void convertToJson_convertedAndFilteredRecords_shouldCountThemUnderTheLayout() throws IOException {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")))
+                .filter(Filter.startsWith("PAYMENT.REFERENCE", "P")).metrics(metrics).build();
+
+        converter.convertToJson("P001001234}012");
+        converter.convertToJson("P002000000A00P");
+        converter.convertToJson("X003000000A00P");
+
+        CountingMetrics.LayoutMetrics layout = metrics.getLayout("PAYMENT");
+        Assert.assertEquals("PAYMENT", converter.getName());
+        Assert.assertEquals(2, layout.getRecords());
+        Assert.assertEquals(1, layout.getFiltered());
+        Assert.assertEquals(42, layout.getBytes());
+        long latencies = 0;
+        for (int bucket = 0; bucket <= 64; bucket++) {
+            latencies += layout.getLatencies(bucket);
+        }
+        Assert.assertEquals(2, latencies);
+    }
+
+    @Test
+    public void convertToJson_wrongLength_shouldCountTheErrorOnTheRecordLength() throws IOException {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")))
+                .metrics(metrics).build();
+
+        try {
+            converter.convertToJson("P001001234}0");
+            Assert.fail();
+        } catch (DecodeException e) {
+            Assert.assertEquals(DecodeException.Reason.WRONG_LENGTH, e.getReason());
+        }
+
+        Assert.assertEquals(1, metrics.getLayout("PAYMENT").getDecodeErrors(ZMetrics.RECORD_LENGTH));
+    }
+
+    @Test
+    public void decodeError_noField_shouldCountItUnderTheWholeRecord() {
+        metrics.decodeError("PAYMENT", null);
+
+        Assert.assertEquals(1, metrics.getLayout("PAYMENT").getDecodeErrors(CountingMetrics.WHOLE_RECORD));
+    }
+
+    @Test
+    public void convertToJson_invalidField_shouldCountTheErrorOnIt() throws IOException {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")))
+                .typedNumbers(true).name("payments").metrics(metrics).build();
+
+        try {
+            converter.convertToJson("P00100X234}012");
+            Assert.fail();
+        } catch (DecodeException e) {
+            Assert.assertEquals("PAYMENT.AMOUNT", e.getField());
+        }
+
+        Assert.assertEquals(1, metrics.getLayout("payments").getDecodeErrors("PAYMENT.AMOUNT"));
+        Assert.assertEquals(0, metrics.getLayout("payments").getRecords());
+    }
+
+    @Test
+    public void convertToJson_occursDependingOn_shouldSumTheOccurrences() throws IOException {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")))
+                .metrics(metrics).build();
+
+        converter.convertToJson("A00102P0110P0220S");
+        converter.convertToJson("A00201P0330C");
+
+        Assert.assertEquals(3, metrics.getLayout("ORDER").getOccurrences().get("ORDER.ORDER-LINES").sum());
+    }
+
+    @Test
+    public void convertToJson_invalidCounter_shouldCountTheErrorOnIt() throws IOException {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")))
+                .metrics(metrics).build();
+
+        try {
+            converter.convertToJson("A0010XP0110S");
+            Assert.fail();
+        } catch (DecodeException e) {
+            Assert.assertEquals("ORDER.LINE-COUNT", e.getField());
+        }
+
+        Assert.assertEquals(1, metrics.getLayout("ORDER").getDecodeErrors("ORDER.LINE-COUNT"));
+    }
+
+    @Test
+    public void convertToJson_disabledMetrics_shouldNotBeCalled() throws IOException {
+        ZMetrics disabled = new CountingMetrics() {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        };
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")))
+                .metrics(disabled).build();
+
+        converter.convertToJson("P001001234}012");
+
+        Assert.assertTrue(((CountingMetrics) disabled).getLayouts().isEmpty());
+    }
+}
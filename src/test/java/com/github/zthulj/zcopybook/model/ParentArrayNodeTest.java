@@ -4,6 +4,12 @@ import com.github.zthulj.zcopybook.factory.NodeFactory;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 public class ParentArrayNodeTest {
 
 
@@ -72,6 +78,22 @@ public class ParentArrayNodeTest {
     }
 
 
+    @Test
+    public void size_nestedOccurs_shouldMultiplyTheStrides() {
+        ParentNode root = NodeFactory.createRootNode();
+        ParentArrayNode<String> outer = NodeFactory.createParentNodeArray(root, 0, 1000);
+        root.addChild(outer, "OUTER");
+        ParentArrayNode<String> inner = NodeFactory.createParentNodeArray(outer, 1, 1000);
+        outer.addChild(inner, "INNER");
+        inner.addChild(NodeFactory.createValueNode(inner, Coordinates.create(0, 3)), "VALUE");
+
+        outer.duplicateOccurs(inner.duplicateOccurs(3));
+
+        Assert.assertEquals(3000, inner.size());
+        Assert.assertEquals(3000, outer.getStride());
+        Assert.assertEquals(3000000, root.size());
+    }
+
     @Test
     public void populateOccurs_occurs3OneChild_shouldPopulateOccursWithOKCoords() {
         ParentNode root = NodeFactory.createRootNode();
@@ -213,4 +235,25 @@ public class ParentArrayNodeTest {
         Assert.assertEquals(Coordinates.create(10, 12), value_6.getCoordinates());
     }
 
+    @Test
+    public void serialize_duplicatedOccurs_shouldRebuildTheOccurrencesOnceDeserialized() throws IOException, ClassNotFoundException {
+        ParentNode root = NodeFactory.createRootNode();
+        ParentArrayNode<String> parent = NodeFactory.createParentNodeArray(root, 0, 3);
+        parent.addChild(NodeFactory.createValueNode(parent,Coordinates.create(0, 1)),"TEST");
+        parent.duplicateOccurs(1);
+        parent.getChildArray();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(parent);
+        }
+        ParentArrayNode<String> copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ParentArrayNode<String>) in.readObject();
+        }
+
+        Assert.assertEquals(1, copy.getStride());
+        Assert.assertEquals(Coordinates.create(2, 3), ((ValueNode) copy.getChildArray()[2].getChilds().get("TEST")).getCoordinates());
+    }
+
 }
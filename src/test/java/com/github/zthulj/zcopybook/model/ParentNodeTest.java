@@ -4,6 +4,12 @@ import com.github.zthulj.zcopybook.factory.NodeFactory;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 public class ParentNodeTest {
 
     @Test
@@ -32,4 +38,23 @@ public class ParentNodeTest {
         Node<String> root = NodeFactory.createRootNode();
         Assert.assertEquals(true, root.isParent());
     }
+
+    @Test
+    public void serialize_redefiningChild_shouldKeepItAsAnAlternativeView() throws IOException, ClassNotFoundException {
+        ParentNode<String> root = NodeFactory.createRootNode();
+        root.addChild(NodeFactory.createValueNode(root, Coordinates.create(0, 4)), "CODE");
+        root.addRedefiningChild(NodeFactory.createValueNode(root, Coordinates.create(0, 2)), "PREFIX", "CODE");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(root);
+        }
+        ParentNode<String> copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ParentNode<String>) in.readObject();
+        }
+
+        Assert.assertTrue(copy.isRedefining("PREFIX"));
+        Assert.assertEquals(4, copy.size());
+    }
 }
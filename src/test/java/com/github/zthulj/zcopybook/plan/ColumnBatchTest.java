@@ -0,0 +1,149 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.engine.ZConverter;
+import com.github.zthulj.zcopybook.engine.ZLoader;
+import com.github.zthulj.zcopybook.model.ValueNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+public class ColumnBatchTest {
+
+    private ZLoader loader = new ZLoader();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_nullPlan_shouldThrowIllegalArgExc() {
+        ColumnBatch.of(null, 10);
+    }
+
+    @Test
+    public void add_zonedDecimals_shouldKeepUnscaledLongs() throws IOException {
+        ColumnBatch batch = ColumnBatch.of(ZPlan.from(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))), 4);
+
+        Assert.assertTrue(batch.add("P001001234}012"));
+        Assert.assertTrue(batch.add("P002000000A00P"));
+
+        Assert.assertEquals(2, batch.getSize());
+        Column reference = batch.getColumn("PAYMENT.REFERENCE");
+        Column amount = batch.getColumn("PAYMENT.AMOUNT");
+        Assert.assertTrue(reference.isText());
+        Assert.assertEquals("P002", new String(reference.getChars(), reference.getTextOffset(1), reference.getTextLength(1)));
+        Assert.assertFalse(amount.isText());
+        Assert.assertEquals(2, amount.getScale());
+        Assert.assertEquals(-12340, amount.getLongs()[0]);
+        Assert.assertEquals(0.01, amount.getDouble(1), 0);
+        Assert.assertEquals(-7, batch.getColumn("PAYMENT.QUANTITY").getLong(1));
+    }
+
+    @Test
+    public void add_zonedDecimalNotANumber_shouldThrowADecodeException() throws IOException {
+        ColumnBatch batch = ColumnBatch.of(ZPlan.from(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))), 4);
+
+        try {
+            batch.add("P00100ABCDE012");
+            Assert.fail("A numeric column can't hold a text");
+        } catch (DecodeException e) {
+            Assert.assertEquals(DecodeException.Reason.INVALID_NUMBER, e.getReason());
+            Assert.assertEquals("PAYMENT.AMOUNT", e.getField());
+        }
+    }
+
+    @Test
+    public void of_tooManyOccurrences_shouldThrowIllegalArgExc() {
+        ZPlan plan = ZPlan.from(loader.load("01 ORDER.\n  03 ID PIC X(4).\n  03 LINES OCCURS 200.\n    05 ITEMS OCCURS 100.\n      07 CODE PIC X.\n"));
+
+        try {
+            ColumnBatch.of(plan, 1);
+            Assert.fail("The batch should be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("ORDER.LINES"));
+        }
+        Assert.assertEquals(1, ColumnBatch.of(plan.withProjection(Collections.singletonList("ORDER.ID")), 1).getColumns().size());
+    }
+
+    @Test
+    public void add_occursDependingOn_shouldLeaveTheMissingOccurrencesNull() throws IOException {
+        ColumnBatch batch = ColumnBatch.of(ZPlan.from(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl"))), 2);
+
+        batch.add("A00102P0110P0220S");
+        batch.add("A00200C");
+
+        Assert.assertEquals(13, batch.getColumns().size());
+        Assert.assertEquals("ORDER.ORDER-LINES[4].QUANTITY", batch.getColumns().get(11).getName());
+        Column product = batch.getColumn("ORDER.ORDER-LINES[1].PRODUCT");
+        Assert.assertEquals("P02", product.getText(0));
+        Assert.assertTrue(product.isNull(1));
+        Assert.assertTrue(batch.getColumn("ORDER.ORDER-LINES[2].PRODUCT").isNull(0));
+        Assert.assertEquals("S", batch.getColumn("ORDER.STATUS").getText(0));
+        Assert.assertEquals("C", batch.getColumn("ORDER.STATUS").getText(1));
+    }
+
+    @Test
+    public void add_discriminatedRedefines_shouldFillTheChosenBranchOnly() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")))
+                .withDiscriminator("TRANSACTION.PAYMENT", Discriminator.on("TRANSACTION.RECORD-TYPE", type -> "R".equals(type) ? "REFUND" : null));
+        ColumnBatch batch = ColumnBatch.of(plan, 2);
+
+        batch.add("PFR761234001234{WB");
+        batch.add("RA12345DUP      WB");
+
+        Assert.assertEquals(123.4, batch.getColumn("TRANSACTION.PAYMENT.AMOUNT").getDouble(0), 0);
+        Assert.assertTrue(batch.getColumn("TRANSACTION.PAYMENT.AMOUNT").isNull(1));
+        Assert.assertTrue(batch.getColumn("TRANSACTION.REFUND.REASON").isNull(0));
+        Assert.assertEquals("DUP", batch.getColumn("TRANSACTION.REFUND.REASON").getText(1));
+        Assert.assertTrue(batch.getColumn("TRANSACTION.NOTE").isNull(1));
+    }
+
+    @Test
+    public void add_projectedAndFilteredPlan_shouldSkipTheOtherFieldsAndRecords() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")))
+                .withFilter(Filter.equalTo("ORDER.STATUS", "S"))
+                .withProjection(Collections.singleton("ORDER.STATUS"));
+        ColumnBatch batch = ColumnBatch.of(plan, 2);
+
+        Assert.assertTrue(batch.add("A00102P0110P0220S"));
+        Assert.assertFalse(batch.add("A00200C"));
+
+        Assert.assertEquals(Collections.singletonList("ORDER.STATUS"), batch.getColumns().stream().map(Column::getName).collect(Collectors.toList()));
+        Assert.assertEquals(1, batch.getSize());
+    }
+
+    @Test
+    public void add_packedDecimalsFromConverterRecords_shouldDecodeWithItsCharset() throws IOException {
+        ZConverter converter = ZConverter.builder().copyBook(loader.load(Utils.fileFromResource("copybook/packedDecimal.cbl")))
+                .charset(Charset.forName("Cp037")).build();
+        ColumnBatch batch = converter.newColumnBatch(1);
+        byte[] record = {(byte) 0xC1, (byte) 0xC2, (byte) 0xC3, (byte) 0xC4, 0x00, 0x12, 0x34, 0x56, 0x7D, 0x00, 0x12, 0x5C, 0x01, 0x23, 0x4F, (byte) 0xC1, (byte) 0xC2, (byte) 0xC3};
+
+        batch.add(converter.newBytesRecord().wrap(record, 0, record.length));
+
+        Assert.assertEquals("ABCD", batch.getColumn("ACCOUNT.ID").getText(0));
+        Assert.assertEquals(ValueNode.ValueType.PACKED_DECIMAL, batch.getColumn("ACCOUNT.BALANCE").getValueType());
+        Assert.assertEquals(-1234567, batch.getColumn("ACCOUNT.BALANCE").getLong(0));
+        Assert.assertEquals(1234, batch.getColumn("ACCOUNT.COUNTER").getLong(0));
+        Assert.assertTrue(batch.isFull());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_fullBatch_shouldThrowIllegalStateExc() throws IOException {
+        ColumnBatch batch = ColumnBatch.of(ZPlan.from(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))), 1);
+        batch.add("P001001234}012");
+        batch.add("P001001234}012");
+    }
+
+    @Test
+    public void clear_fullBatch_shouldBeFilledAgain() throws IOException {
+        ColumnBatch batch = ColumnBatch.of(ZPlan.from(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))), 1);
+        batch.add("P001001234}012");
+        batch.clear();
+
+        batch.add("P002000000A00P");
+
+        Assert.assertEquals("P002", batch.getColumn("PAYMENT.REFERENCE").getText(0));
+    }
+}
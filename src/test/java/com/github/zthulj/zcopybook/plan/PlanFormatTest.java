@@ -0,0 +1,82 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.engine.ZConverter;
+import com.github.zthulj.zcopybook.engine.ZLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class PlanFormatTest {
+
+    private ZLoader loader = new ZLoader();
+
+    @Test
+    public void read_writtenPlans_shouldHaveTheSameSteps() throws IOException {
+        List<String> copybooks = Arrays.asList("simplecopybook.cbl", "oneParentWithOccurs.cbl", "occursDependingOn.cbl", "redefines.cbl",
+                "packedDecimal.cbl", "binaryInteger.cbl", "zonedDecimal.cbl", "parentManyChildWith88Level.cbl");
+        for (String copybook : copybooks) {
+            ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/" + copybook)));
+
+            ZPlan read = roundTrip(plan);
+
+            Assert.assertEquals(copybook, plan.getSteps().toString(), read.getSteps().toString());
+            Assert.assertEquals(plan.getRecordLength(), read.getRecordLength());
+            Assert.assertEquals(plan.getMinRecordLength(), read.getMinRecordLength());
+            Assert.assertEquals(plan.getMaxFieldLength(), read.getMaxFieldLength());
+            Assert.assertEquals(plan.isVariableLength(), read.isVariableLength());
+        }
+    }
+
+    @Test
+    public void read_writtenPlan_shouldConvertLikeTheCopybook() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")));
+        ZConverter expected = ZConverter.builder().plan(plan).filter(Filter.equalTo("ORDER.STATUS", "S")).build();
+        ZConverter converter = ZConverter.builder().plan(roundTrip(plan)).filter(Filter.equalTo("ORDER.STATUS", "S")).build();
+
+        Assert.assertEquals(expected.convertToJson("A00102P0110P0220S"), converter.convertToJson("A00102P0110P0220S"));
+        Assert.assertNull(converter.convertToJson("A00200C"));
+    }
+
+    @Test
+    public void read_typedAndProjectedPlan_shouldKeepThem() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl")))
+                .withTypedNumbers().withProjection(Arrays.asList("PAYMENT.AMOUNT"));
+
+        ZPlan read = roundTrip(plan);
+
+        Assert.assertTrue(read.isTypedNumbers());
+        Assert.assertEquals(new ZConverter(plan).convertToJson("P001001234}012"), new ZConverter(read).convertToJson("P001001234}012"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void write_planWithFilter_shouldThrowIllegalArgExc() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))).withFilter(Filter.startsWith("PAYMENT.REFERENCE", "P"));
+        PlanFormat.write(plan, new ByteArrayOutputStream());
+    }
+
+    @Test(expected = IOException.class)
+    public void read_notAPlan_shouldThrowIOException() throws IOException {
+        PlanFormat.read(new ByteArrayInputStream("01 RECORD.".getBytes()));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_unknownVersion_shouldThrowIOException() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PlanFormat.write(ZPlan.from(loader.load(Utils.fileFromResource("copybook/zonedDecimal.cbl"))), out);
+        byte[] bytes = out.toByteArray();
+        bytes[5] = 99;
+        PlanFormat.read(new ByteArrayInputStream(bytes));
+    }
+
+    private static ZPlan roundTrip(ZPlan plan) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PlanFormat.write(plan, out);
+        return PlanFormat.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,322 @@
+package com.github.zthulj.zcopybook.plan;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zthulj.zcopybook.Utils;
+import com.github.zthulj.zcopybook.engine.ZLoader;
+import com.github.zthulj.zcopybook.model.Coordinates;
+import com.github.zthulj.zcopybook.model.ValueNode;
+import com.github.zthulj.zcopybook.model.ZCopyBook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ZPlanTest {
+
+    private ZLoader loader = new ZLoader();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void from_nullCopybook_shouldThrowIllegalArgExc() {
+        ZPlan.from(null);
+    }
+
+    @Test
+    public void from_simpleCopybook_shouldHaveOneValueStepPerField() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/simplecopybook.cbl")));
+
+        long values = plan.getSteps().stream().filter(s -> s.getKind() == Step.Kind.VALUE).count();
+        Assert.assertEquals(9, values);
+        Assert.assertEquals(80, plan.getRecordLength());
+        Assert.assertEquals(18, plan.getMaxFieldLength());
+    }
+
+    @Test
+    public void from_simpleCopybook_shouldComputeJsonPaths() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/simplecopybook.cbl")));
+
+        Step lastname = plan.getSteps().stream().filter(s -> "LASTNAME".equals(s.getName())).findFirst().get();
+        Assert.assertEquals("CLIENT.CLIENT-COMMON-INFOS.LASTNAME", lastname.getPath());
+        Assert.assertEquals(18, lastname.getOffset());
+        Assert.assertEquals(12, lastname.getLength());
+    }
+
+    @Test
+    public void from_simpleCopybook_shouldPreEncodeFieldNames() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/simplecopybook.cbl")));
+
+        for (Step step : plan.getSteps()) {
+            if (null != step.getName())
+                Assert.assertEquals(step.getName(), step.getEncodedName().getValue());
+            else
+                Assert.assertNull(step.getEncodedName());
+        }
+    }
+
+    @Test
+    public void from_copybookWithOccurs_shouldKeepASingleTemplateWithStride() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/oneParentWithOccurs.cbl")));
+
+        Step array = plan.getSteps().stream().filter(s -> s.getKind() == Step.Kind.ARRAY_START).findFirst().get();
+        long values = plan.getSteps().stream().filter(s -> s.getKind() == Step.Kind.VALUE).count();
+
+        Assert.assertEquals(3, array.getOccurs());
+        Assert.assertEquals(30, array.getStride());
+        Assert.assertEquals(Step.Kind.ARRAY_END, plan.getSteps().get(array.getEnd()).getKind());
+        Assert.assertEquals(2, values);
+    }
+
+    @Test
+    public void from_occursDependingOn_shouldComputeTheLengthRange() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")));
+
+        Step array = plan.getSteps().stream().filter(s -> s.getKind() == Step.Kind.ARRAY_START).findFirst().get();
+        Step counter = plan.getSteps().stream().filter(s -> "LINE-COUNT".equals(s.getName())).findFirst().get();
+
+        Assert.assertTrue(plan.isVariableLength());
+        Assert.assertEquals(32, plan.getRecordLength());
+        Assert.assertEquals(7, plan.getMinRecordLength());
+        Assert.assertTrue(array.isDependingOn());
+        Assert.assertEquals(counter.getCounterSlot(), array.getCounterSlot());
+        Assert.assertEquals(17, plan.lengthOf(new StringRecord().wrap("A00102P0110P0220S")));
+    }
+
+    @Test
+    public void write_nestedOccursDependingOn_shouldShiftTheFollowingFields() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load("01 R.\n 05 N PIC 9.\n 05 G OCCURS 1 TO 3 DEPENDING ON N.\n  10 M PIC 9.\n  10 H OCCURS 0 TO 2 DEPENDING ON M.\n   15 V PIC X.\n 05 E PIC X."));
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(json)) {
+            plan.write("21a2bcz", generator);
+        }
+
+        Assert.assertEquals(7, plan.lengthOf(new StringRecord().wrap("21a2bcz")));
+        Assert.assertEquals("{\"R\":{\"N\":\"2\",\"G\":[{\"M\":\"1\",\"H\":[{\"V\":\"a\"}]},{\"M\":\"2\",\"H\":[{\"V\":\"b\"},{\"V\":\"c\"}]}],\"E\":\"z\"}}", json.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void from_counterDeclaredAfterTheOccurs_shouldThrowIllegalArgExc() {
+        ZPlan.from(loader.load("01 R.\n 05 G OCCURS 1 TO 3 DEPENDING ON N.\n  10 V PIC X.\n 05 N PIC 9."));
+    }
+
+    @Test
+    public void from_redefines_shouldCompileOneBranchPerAlternative() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")));
+
+        Step redefines = plan.getSteps().stream().filter(s -> s.getKind() == Step.Kind.REDEFINES).findFirst().get();
+        Assert.assertEquals("TRANSACTION.PAYMENT", redefines.getPath());
+        Assert.assertEquals(3, redefines.getBranchCount());
+        Assert.assertEquals("PAYMENT", plan.getSteps().get(redefines.getBranch(0)).getName());
+        Assert.assertEquals("REFUND", plan.getSteps().get(redefines.getBranch(1)).getName());
+        Assert.assertEquals("NOTE", plan.getSteps().get(redefines.getBranch(2)).getName());
+        Assert.assertEquals(redefines.getEnd() + 1, redefines.getBranchEnd(2));
+        Assert.assertEquals(18, plan.getRecordLength());
+        Assert.assertEquals(18, plan.getMinRecordLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withDiscriminator_fieldAfterTheRedefines_shouldThrowIllegalArgExc() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")));
+        plan.withDiscriminator("TRANSACTION.PAYMENT", Discriminator.on("TRANSACTION.CHANNEL", channel -> null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void from_counterInARedefines_shouldThrowIllegalArgExc() {
+        ZPlan.from(loader.load("01 R.\n 05 T PIC X.\n 05 A PIC X(2).\n 05 B REDEFINES A.\n  10 N PIC 9(2).\n 05 G OCCURS 0 TO 3 DEPENDING ON N.\n  10 V PIC X."));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withDiscriminator_notRedefinedItem_shouldThrowIllegalArgExc() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")));
+        plan.withDiscriminator("TRANSACTION.CHANNEL", Discriminator.on("TRANSACTION.RECORD-TYPE", type -> null));
+    }
+
+    @Test
+    public void withProjection_globPatterns_shouldKeepTheMatchingFieldsOnly() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")))
+                .withProjection(Arrays.asList("TRANSACTION.PAYMENT.IB?N", "**.CHANNEL"));
+
+        long values = plan.getSteps().stream().filter(s -> s.getKind() == Step.Kind.VALUE).count();
+        Assert.assertEquals(2, values);
+        Assert.assertEquals("{\"TRANSACTION\":{\"PAYMENT\":{\"IBAN\":\"FR761234\"},\"CHANNEL\":\"WB\"}}", write(plan, "PFR761234001234{WB"));
+    }
+
+    @Test
+    public void withProjection_group_shouldKeepAllItsFields() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")))
+                .withProjection(Collections.singleton("*.PAYMENT"));
+
+        Assert.assertEquals("{\"TRANSACTION\":{\"PAYMENT\":{\"IBAN\":\"FR761234\",\"AMOUNT\":\"001234{\"}}}", write(plan, "PFR761234001234{WB"));
+    }
+
+    @Test
+    public void withProjection_fieldAfterAnOccursDependingOn_shouldStillReadTheCounter() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load("01 R.\n 05 N PIC 9.\n 05 G OCCURS 1 TO 3 DEPENDING ON N.\n  10 M PIC 9.\n  10 H OCCURS 0 TO 2 DEPENDING ON M.\n   15 V PIC X.\n 05 E PIC X."))
+                .withProjection(Collections.singleton("R.E"));
+
+        Assert.assertTrue(plan.getSteps().stream().anyMatch(Step::isHidden));
+        Assert.assertEquals(7, plan.lengthOf(new StringRecord().wrap("21a2bcz")));
+        Assert.assertEquals("{\"R\":{\"E\":\"z\"}}", write(plan, "21a2bcz"));
+    }
+
+    @Test
+    public void withProjection_discriminatedRedefines_shouldKeepTheDiscriminatorHidden() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")))
+                .withDiscriminator("TRANSACTION.PAYMENT", Discriminator.on("TRANSACTION.RECORD-TYPE", type -> "N".equals(type) ? "NOTE" : null))
+                .withProjection(Collections.singleton("TRANSACTION.NOTE"));
+
+        Assert.assertEquals("{\"TRANSACTION\":{\"NOTE\":\"CALL BACK LATER\"}}", write(plan, "NCALL BACK LATERPH"));
+        Assert.assertEquals("{\"TRANSACTION\":{}}", write(plan, "PFR761234001234{WB"));
+    }
+
+    @Test
+    public void withProjection_branchesProjectedAway_shouldKeepTheFiltersOnTheirFields() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")))
+                .withDiscriminator("TRANSACTION.PAYMENT", Discriminator.on("TRANSACTION.RECORD-TYPE", type -> "R".equals(type) ? "REFUND" : null))
+                .withFilter(Filter.equalTo("TRANSACTION.REFUND.REASON", "DUP").or(Filter.equalTo("TRANSACTION.CHANNEL", "PH")))
+                .withProjection(Collections.singleton("TRANSACTION.RECORD-TYPE"));
+
+        Assert.assertTrue(plan.accepts(new StringRecord().wrap("RTX0001DUP      WB")));
+        Assert.assertFalse(plan.accepts(new StringRecord().wrap("RTX0001BAD      WB")));
+        Assert.assertTrue(plan.accepts(new StringRecord().wrap("PFR761234001234{PH")));
+        Assert.assertFalse(plan.accepts(new StringRecord().wrap("PFR761234001234{WB")));
+        Assert.assertEquals("{\"TRANSACTION\":{\"RECORD-TYPE\":\"R\"}}", write(plan, "RTX0001DUP      WB"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withProjection_noMatchingField_shouldThrowIllegalArgExc() throws IOException {
+        ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl"))).withProjection(Collections.singleton("TRANSACTION.UNKNOWN"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withProjection_emptyFields_shouldThrowIllegalArgExc() throws IOException {
+        ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl"))).withProjection(Collections.emptySet());
+    }
+
+    @Test
+    public void accepts_textFilters_shouldCompareThePaddedValues() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")));
+        PositionalRecord record = new StringRecord().wrap("PFR761234001234{WB");
+
+        Assert.assertTrue(plan.withFilter(Filter.equalTo("TRANSACTION.PAYMENT.IBAN", "FR761234")).accepts(record));
+        Assert.assertTrue(plan.withFilter(Filter.in("TRANSACTION.RECORD-TYPE", "R", "P")).accepts(record));
+        Assert.assertTrue(plan.withFilter(Filter.startsWith("TRANSACTION.PAYMENT.IBAN", "FR")).accepts(record));
+        Assert.assertTrue(plan.withFilter(Filter.between("TRANSACTION.CHANNEL", "PH", "WB")).accepts(record));
+        Assert.assertFalse(plan.withFilter(Filter.equalTo("TRANSACTION.PAYMENT.IBAN", "FR76")).accepts(record));
+        Assert.assertFalse(plan.withFilter(Filter.between("TRANSACTION.CHANNEL", "AA", "PH")).accepts(record));
+    }
+
+    @Test
+    public void accepts_numericFilters_shouldCompareTheScaledValues() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")));
+        // AMOUNT is S9(5)V99 : 001234{ is 123.40
+        PositionalRecord record = new StringRecord().wrap("PFR761234001234{WB");
+
+        Assert.assertTrue(plan.withFilter(Filter.equalTo("TRANSACTION.PAYMENT.AMOUNT", "123.4")).accepts(record));
+        Assert.assertTrue(plan.withFilter(Filter.between("TRANSACTION.PAYMENT.AMOUNT", "100", "123.405")).accepts(record));
+        Assert.assertFalse(plan.withFilter(Filter.between("TRANSACTION.PAYMENT.AMOUNT", "123.401", "200")).accepts(record));
+        Assert.assertFalse(plan.withFilter(Filter.equalTo("TRANSACTION.PAYMENT.AMOUNT", "123.401")).accepts(record));
+        Assert.assertFalse(plan.withFilter(Filter.equalTo("TRANSACTION.PAYMENT.AMOUNT", "0")).accepts(new StringRecord().wrap("RTX0001DUP      WB")));
+    }
+
+    @Test
+    public void accepts_combinedFilters_shouldShortCircuit() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl")));
+        PositionalRecord record = new StringRecord().wrap("PFR761234001234{WB");
+        Filter payment = Filter.equalTo("TRANSACTION.RECORD-TYPE", "P");
+        Filter web = Filter.equalTo("TRANSACTION.CHANNEL", "WB");
+
+        Assert.assertTrue(plan.withFilter(payment.and(web)).accepts(record));
+        Assert.assertFalse(plan.withFilter(payment.and(web.negate())).accepts(record));
+        Assert.assertTrue(plan.withFilter(payment.negate().or(web)).accepts(record));
+        Assert.assertFalse(plan.withFilter(payment).withFilter(web.negate()).accepts(record));
+    }
+
+    @Test
+    public void accepts_fieldAfterAnOccursDependingOn_shouldBeShifted() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")))
+                .withFilter(Filter.equalTo("ORDER.STATUS", "S"))
+                .withProjection(Collections.singleton("ORDER.ORDER-ID"));
+
+        Assert.assertTrue(plan.accepts(new StringRecord().wrap("A00102P0110P0220S")));
+        Assert.assertFalse(plan.accepts(new StringRecord().wrap("A00200C")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withFilter_fieldOfAnOccurs_shouldThrowIllegalArgExc() throws IOException {
+        ZPlan.from(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl"))).withFilter(Filter.equalTo("ORDER.ORDER-LINES.PRODUCT", "P01"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withFilter_valueLongerThanTheField_shouldThrowIllegalArgExc() throws IOException {
+        ZPlan.from(loader.load(Utils.fileFromResource("copybook/redefines.cbl"))).withFilter(Filter.equalTo("TRANSACTION.CHANNEL", "WEB"));
+    }
+
+    @Test
+    public void compiled_copybookWithOccurs_shouldWriteLikeTheInterpretedPlan() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("integration/integration1.cbl"));
+        ZPlan plan = ZPlan.from(copybook).withProjection(Arrays.asList("**.METADATA.*", "**.DATA-?"));
+        ZPlan compiled = plan.compiled();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < copybook.getWaitedLength(); i++) {
+            line.append((char) ('A' + i % 26));
+        }
+
+        Assert.assertTrue(compiled.isCompiled());
+        Assert.assertFalse(plan.isCompiled());
+        Assert.assertEquals(write(plan, line.toString()), write(compiled, line.toString()));
+    }
+
+    @Test
+    public void compiled_manyFields_shouldSplitTheGeneratedMethods() throws IOException {
+        StringBuilder copybook = new StringBuilder("01 R.\n");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            copybook.append(" 05 F").append(i).append(i % 2 == 0 ? " PIC X(2).\n" : " PIC S9(3)V9.\n");
+            line.append(i % 2 == 0 ? "AB" : "123D");
+        }
+        ZPlan plan = ZPlan.from(loader.load(copybook.toString())).withTypedNumbers();
+
+        Assert.assertEquals(write(plan, line.toString()), write(plan.compiled(), line.toString()));
+    }
+
+    @Test
+    public void compiled_occursDependingOn_shouldStayInterpreted() throws IOException {
+        ZPlan plan = ZPlan.from(loader.load(Utils.fileFromResource("copybook/occursDependingOn.cbl")));
+
+        Assert.assertFalse(plan.compiled().isCompiled());
+    }
+
+    @Test
+    public void write_copybookWithOccurs_shouldBeIdenticalToTreeSerialization() throws IOException {
+        ZCopyBook<String> copybook = loader.load(Utils.fileFromResource("integration/integration1.cbl"));
+        ZPlan plan = ZPlan.from(copybook);
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < copybook.getWaitedLength(); i++) {
+            line.append((char) ('A' + i % 26));
+        }
+
+        for (ValueNode<String> valueNode : copybook.getValueNodes()) {
+            Coordinates c = valueNode.getCoordinates();
+            valueNode.setValue(line.substring(c.getStart(), c.getEnd()));
+        }
+        String expected = new ObjectMapper().writeValueAsString(copybook.getRootNode());
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+            plan.write(line.toString(), generator);
+        }
+        Assert.assertEquals(expected, writer.toString());
+    }
+
+    private static String write(ZPlan plan, String record) throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(json)) {
+            plan.write(record, generator);
+        }
+        return json.toString();
+    }
+}